@@ -0,0 +1,95 @@
+package com.chitkara.parking;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Booking, cancellation, vehicle lookup and fee quotes on a generated lot, single-threaded and with four gates.
+// Throughput plus sampled latency percentiles; add -prof gc for the allocation rate.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingBenchmark {
+
+    @Param({"1000"})
+    public int slots;
+
+    @Param({"4"})
+    public int floors;
+
+    @Param({"Car,Bike"})
+    public String types;
+
+    @Param({"10000", "1000000"})
+    public int history;
+
+    private ParkingSystem ps;
+    private String[] typeNames;
+    private TariffTable tariff;
+    private final LocalDateTime quoteFrom = SyntheticLot.EPOCH.plusMinutes(17);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        typeNames = types.split(",");
+        ps = SyntheticLot.withHistory(slots, floors, typeNames, history);
+        tariff = new PricingEngine(new Tariff(2000, 3000, LocalTime.of(8, 0), LocalTime.of(20, 0), 20000, 10, 60, false))
+                .tableFor(typeNames[0], 1);
+    }
+
+    // One gate: book a slot and cancel it again, so the lot stays at steady occupancy
+    @Benchmark
+    @Threads(1)
+    public void bookThenCancel(Blackhole bh) {
+        bookThenCancelOnce(bh);
+    }
+
+    // Four gates booking and cancelling at once
+    @Benchmark
+    @Threads(4)
+    public void bookThenCancelContended(Blackhole bh) {
+        bookThenCancelOnce(bh);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Booking findSlotByVehicle() {
+        return ps.findBookingByVehicle(randomVehicle());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Booking findSlotByVehicleContended() {
+        return ps.findBookingByVehicle(randomVehicle());
+    }
+
+    // Exit-gate fee quote from a compiled tariff table with peak band and daily cap
+    @Benchmark
+    @Threads(1)
+    public long quoteFee() {
+        int minutes = ThreadLocalRandom.current().nextInt(3 * 24 * 60);
+        return tariff.quote(quoteFrom, quoteFrom.plusMinutes(minutes));
+    }
+
+    private void bookThenCancelOnce(Blackhole bh) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        LocalDateTime in = LocalDateTime.now();
+        String type = typeNames[rnd.nextInt(typeNames.length)];
+        User u = new User("Gate", SyntheticLot.vehicle(history + rnd.nextInt(1_000_000)), "9800000000");
+        BookingResult result = ps.bookSlot(u, in, in.plusHours(rnd.nextBoolean() ? 2 : 5), type);
+        bh.consume(result);
+        if (result.isSuccess()) {
+            bh.consume(ps.cancelBooking(result.getBooking().getBookingId()));
+        }
+    }
+
+    private String randomVehicle() {
+        return SyntheticLot.vehicle(1 + ThreadLocalRandom.current().nextInt(history));
+    }
+}
@@ -0,0 +1,98 @@
+package com.chitkara.parking;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Drives ParkingServer with many concurrent clients, each looping book → look up vehicle → cancel, and prints
+// throughput and latency percentiles per request. Starts its own server on a generated lot unless given a URL:
+//   java -cp benchmarks/target/benchmarks.jar com.chitkara.parking.LoadGenerator [clients] [rounds] [url]
+// Clients run on virtual threads when the JVM has them, like the server's handlers.
+public class LoadGenerator {
+    private static final Pattern BOOKING_ID = Pattern.compile("\"bookingId\":(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        String base = args.length > 2 ? args[2] : null;
+
+        ParkingServer server = null;
+        if (base == null) {
+            ParkingSystem ps = new ParkingSystem(SyntheticLot.slots(5000, 4, new String[] {"Car", "Bike"}), Path.of("."));
+            server = new ParkingServer(ps, 0);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+        }
+
+        ExecutorService pool = ParkingServer.newRequestExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(pool)
+                .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong failures = new AtomicLong();
+        String url = base;
+
+        long start = System.nanoTime();
+        ExecutorService gates = ParkingServer.newRequestExecutor();
+        for (int c = 0; c < clients; c++) {
+            int gate = c;
+            gates.execute(() -> {
+                for (int r = 0; r < rounds; r++) {
+                    try {
+                        round(client, url, gate, r, latency);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        gates.shutdown();
+        gates.awaitTermination(1, TimeUnit.HOURS);
+        long elapsed = System.nanoTime() - start;
+
+        long requests = latency.count();
+        System.out.printf("%d clients x %d rounds: %d requests in %.2f s, %.0f req/s, %d failed rounds%n",
+                clients, rounds, requests, elapsed / 1e9, requests / (elapsed / 1e9), failures.get());
+        System.out.printf("latency p50 %d µs, p99 %d µs, p99.9 %d µs, max %d µs%n",
+                latency.percentile(0.50, TimeUnit.MICROSECONDS), latency.percentile(0.99, TimeUnit.MICROSECONDS),
+                latency.percentile(0.999, TimeUnit.MICROSECONDS), latency.max(TimeUnit.MICROSECONDS));
+
+        pool.shutdown();
+        if (server != null) server.stop();
+    }
+
+    private static void round(HttpClient client, String base, int gate, int round, LatencyHistogram latency) throws Exception {
+        String vehicle = "LG" + gate + "x" + round;
+        String type = ThreadLocalRandom.current().nextBoolean() ? "Car" : "Bike";
+        String hours = ThreadLocalRandom.current().nextBoolean() ? "2" : "5";
+        HttpResponse<String> booked = send(client, HttpRequest.newBuilder(URI.create(base + "/bookings"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "name=Gate" + gate + "&vehicle=" + vehicle + "&contact=98000&type=" + type + "&hours=" + hours))
+                .build(), latency);
+        if (booked.statusCode() != 201) return;  // lot full for the type: nothing to look up or cancel
+
+        Matcher m = BOOKING_ID.matcher(booked.body());
+        if (!m.find()) throw new IllegalStateException("No booking id in " + booked.body());
+        send(client, HttpRequest.newBuilder(URI.create(base + "/vehicles/" + vehicle)).GET().build(), latency);
+        send(client, HttpRequest.newBuilder(URI.create(base + "/bookings/" + m.group(1))).DELETE().build(), latency);
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request, LatencyHistogram latency) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latency.record(System.nanoTime() - start);
+        return response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.chitkara.parking;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Start-up cost: loading a bookings.txt of the given history size into a fresh system
+@BenchmarkMode({Mode.AverageTime, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"1000"})
+    public int slots;
+
+    @Param({"4"})
+    public int floors;
+
+    @Param({"Car,Bike"})
+    public String types;
+
+    @Param({"10000", "1000000"})
+    public int history;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("bookings", ".txt");
+        SyntheticLot.writeBookingsFile(file, slots, history);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int loadBookingsFromFile() throws IOException {
+        ParkingSystem ps = new ParkingSystem(SyntheticLot.slots(slots, floors, types.split(",")));
+        return ps.loadBookingsFromFile(file);
+    }
+}
@@ -0,0 +1,61 @@
+package com.chitkara.parking;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generates lots and booking histories of a given size for the benchmarks. A fixed seed keeps runs comparable.
+final class SyntheticLot {
+    static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    private SyntheticLot() {
+    }
+
+    // slotCount slots spread over the floors, types assigned round-robin; ids start at 1001
+    static List<ParkingSlot> slots(int slotCount, int floors, String[] types) {
+        List<ParkingSlot> lot = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            lot.add(new ParkingSlot(1001 + i, 1 + i % floors, types[i % types.length]));
+        }
+        return lot;
+    }
+
+    static String vehicle(int n) {
+        return "PB" + (10000 + n);
+    }
+
+    // A system over a generated lot holding history closed bookings of distinct vehicles (ids 1..history)
+    static ParkingSystem withHistory(int slotCount, int floors, String[] types, int history) {
+        ParkingSystem ps = new ParkingSystem(slots(slotCount, floors, types));
+        Random rnd = new Random(42);
+        for (int id = 1; id <= history; id++) {
+            LocalDateTime in = EPOCH.plusMinutes(15L * id);
+            ps.restoreBooking(id, new User("User" + id, vehicle(id), "98" + (10000000 + id)),
+                    1001 + rnd.nextInt(slotCount), in, in.plusHours(1 + rnd.nextInt(6)), BookingStatus.CLOSED, Booking.OPEN);
+        }
+        return ps;
+    }
+
+    // Writes history rows in the bookings.txt format; rows are ACTIVE only on the last slotCount ids,
+    // so a load ends with one open booking per slot like a full lot
+    static void writeBookingsFile(Path file, int slotCount, int history) throws IOException {
+        Random rnd = new Random(42);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int id = 1; id <= history; id++) {
+                LocalDateTime in = EPOCH.plusMinutes(15L * id);
+                LocalDateTime out = in.plusHours(1 + rnd.nextInt(6));
+                boolean open = id > history - slotCount;
+                int slotId = open ? 1001 + (history - id) : 1001 + rnd.nextInt(slotCount);
+                w.write(id + ",User" + id + "," + vehicle(id) + ",98" + (10000000 + id) + "," + slotId + "," +
+                        in + "," + out + ",40.0," + (open ? BookingStatus.ACTIVE : BookingStatus.CLOSED));
+                w.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticLotTest {
+    private static final String[] TYPES = {"Car", "Bike"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void historyIsClosedAndLeavesTheLotEmpty() {
+        ParkingSystem ps = SyntheticLot.withHistory(100, 4, TYPES, 1000);
+        assertEquals(1000, ps.getAllBookings().size());
+        assertTrue(ps.getAllBookings().stream().allMatch(Booking::isClosed));
+        assertEquals(Map.of("Car", 50, "Bike", 50), ps.getFreeSlotCounts());
+        assertNotNull(ps.findBookingByVehicle(SyntheticLot.vehicle(1000)));
+    }
+
+    @Test
+    void bookingsFileLoadsAsAFullLot() throws IOException {
+        Path file = dir.resolve("bookings.txt");
+        SyntheticLot.writeBookingsFile(file, 100, 1000);
+        ParkingSystem ps = new ParkingSystem(SyntheticLot.slots(100, 4, TYPES), dir);
+        assertEquals(1000, ps.loadBookingsFromFile(file));
+        assertEquals(Map.of("Car", 0, "Bike", 0), ps.getFreeSlotCounts());
+    }
+}
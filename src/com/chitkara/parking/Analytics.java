@@ -0,0 +1,33 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+
+// Live analytics, updated by ParkingSystem as stays finish and waitlisted users are served,
+// so a report never has to walk the bookings. Updates are a few array and map writes under one monitor.
+public class Analytics {
+    private final AnalyticsReport report = new AnalyticsReport();
+
+    // A booking that held its slot has been closed (exit, expiry, or loaded as history)
+    void onStayClosed(Booking b) {
+        ParkingSlot slot = b.getSlot();
+        LocalDateTime in = b.getTimeIn();
+        LocalDateTime out = b.getTimeOut();
+        long fee = b.getFeePaise();
+        synchronized (report) {
+            report.addStay(slot.getFloor(), slot.getType(), in, out, fee);
+        }
+    }
+
+    void onWaitlistServed(WaitlistEntry e, LocalDateTime servedAt) {
+        synchronized (report) {
+            report.addWait(e.getJoinedAt(), servedAt);
+        }
+    }
+
+    // Copy of the figures so far
+    public AnalyticsReport snapshot() {
+        synchronized (report) {
+            return report.copy();
+        }
+    }
+}
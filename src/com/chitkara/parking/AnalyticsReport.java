@@ -0,0 +1,102 @@
+package com.chitkara.parking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Aggregates over finished stays: occupied minutes per floor/type and hour of day, revenue per day,
+// dwell time and waitlist waits. Each stay is folded in once and never kept, so memory depends on
+// the number of days and slot groups, not on the number of bookings. Reports from separate chunks
+// of history are combined with merge(). Not thread-safe; Analytics guards its live instance.
+public class AnalyticsReport {
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final Map<String, long[]> occupiedMinutes = new TreeMap<>();  // "Floor 1 Car" -> minutes per hour of day
+    private final TreeMap<LocalDate, Long> revenuePaise = new TreeMap<>();  // by exit date
+    private long stays;
+    private long dwellMinutes;
+    private long waits;
+    private long waitMinutes;
+
+    // One finished stay on a slot of the given floor and type
+    public void addStay(int floor, String type, LocalDateTime in, LocalDateTime out, long feePaise) {
+        long minutes = minutesBetween(in, out);
+        if (minutes < 0) return;
+        stays++;
+        dwellMinutes += minutes;
+        revenuePaise.merge(out.toLocalDate(), feePaise, Long::sum);
+
+        long[] byHour = occupiedMinutes.computeIfAbsent("Floor " + floor + " " + type, k -> new long[24]);
+        // Whole days add an hour to every bucket; the rest is walked hour by hour (at most 24 steps)
+        long days = minutes / MINUTES_PER_DAY;
+        if (days > 0) {
+            for (int h = 0; h < 24; h++) byHour[h] += days * 60;
+        }
+        long rest = minutes % MINUTES_PER_DAY;
+        int hour = in.getHour();
+        int offset = in.getMinute();
+        while (rest > 0) {
+            long inThisHour = Math.min(rest, 60 - offset);
+            byHour[hour] += inThisHour;
+            rest -= inThisHour;
+            hour = (hour + 1) % 24;
+            offset = 0;
+        }
+    }
+
+    public void addWait(LocalDateTime joined, LocalDateTime served) {
+        long minutes = minutesBetween(joined, served);
+        if (minutes < 0) return;
+        waits++;
+        waitMinutes += minutes;
+    }
+
+    public AnalyticsReport merge(AnalyticsReport other) {
+        other.occupiedMinutes.forEach((group, hours) -> {
+            long[] mine = occupiedMinutes.computeIfAbsent(group, k -> new long[24]);
+            for (int h = 0; h < 24; h++) mine[h] += hours[h];
+        });
+        other.revenuePaise.forEach((day, paise) -> revenuePaise.merge(day, paise, Long::sum));
+        stays += other.stays;
+        dwellMinutes += other.dwellMinutes;
+        waits += other.waits;
+        waitMinutes += other.waitMinutes;
+        return this;
+    }
+
+    public AnalyticsReport copy() {
+        return new AnalyticsReport().merge(this);
+    }
+
+    // Slot group ("Floor 1 Car") -> occupied minutes summed per hour of day (index 0-23)
+    public Map<String, long[]> getOccupiedMinutesByHour() {
+        Map<String, long[]> copy = new TreeMap<>();
+        occupiedMinutes.forEach((group, hours) -> copy.put(group, hours.clone()));
+        return copy;
+    }
+
+    public SortedMap<LocalDate, Long> getRevenuePaiseByDay() {
+        return Collections.unmodifiableSortedMap(revenuePaise);
+    }
+
+    public long getStays() {
+        return stays;
+    }
+
+    public double getAverageDwellMinutes() {
+        return stays == 0 ? 0 : (double) dwellMinutes / stays;
+    }
+
+    public long getWaits() {
+        return waits;
+    }
+
+    public double getAverageWaitMinutes() {
+        return waits == 0 ? 0 : (double) waitMinutes / waits;
+    }
+
+    private static long minutesBetween(LocalDateTime from, LocalDateTime to) {
+        return (to.toEpochSecond(ZoneOffset.UTC) - from.toEpochSecond(ZoneOffset.UTC)) / 60;
+    }
+}
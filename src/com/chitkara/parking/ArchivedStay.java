@@ -0,0 +1,34 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+
+// A completed or cancelled booking as kept in the BookingArchive; the fee is the one charged when it closed
+public class ArchivedStay {
+    private final int bookingId;
+    private final User user;
+    private final int slotId;
+    private final LocalDateTime timeIn;
+    private final LocalDateTime timeOut;
+    private final long feePaise;
+    private final boolean cancelled;
+
+    public ArchivedStay(int bookingId, User user, int slotId, LocalDateTime timeIn, LocalDateTime timeOut,
+                        long feePaise, boolean cancelled) {
+        this.bookingId = bookingId;
+        this.user = user;
+        this.slotId = slotId;
+        this.timeIn = timeIn;
+        this.timeOut = timeOut;
+        this.feePaise = feePaise;
+        this.cancelled = cancelled;
+    }
+
+    public int getBookingId() { return bookingId; }
+    public User getUser() { return user; }
+    public int getSlotId() { return slotId; }
+    public LocalDateTime getTimeIn() { return timeIn; }
+    public LocalDateTime getTimeOut() { return timeOut; }
+    public long getFeePaise() { return feePaise; }
+    public double getFee() { return feePaise / 100.0; }
+    public boolean isCancelled() { return cancelled; }
+}
@@ -0,0 +1,57 @@
+package com.chitkara.parking;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Publishes the lot's AvailabilitySnapshot. SlotPool reports every slot that is booked or freed, and the board
+// swaps in a copy with that slot's bit changed (compare-and-set, retried if another change won the race).
+// Each attempt reads the slot's current flag rather than applying a delta, so whichever publish for a slot
+// comes last leaves the flag's final value, however the flips and publishes interleave.
+class AvailabilityBoard {
+    private final AtomicReference<AvailabilitySnapshot> current;
+
+    AvailabilityBoard(List<ParkingSlot> slots) {
+        // Group by floor, then type, slot ids ascending within a group
+        TreeMap<Integer, TreeMap<String, List<ParkingSlot>>> byFloor = new TreeMap<>();
+        for (ParkingSlot slot : slots) {
+            byFloor.computeIfAbsent(slot.getFloor(), f -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                    .computeIfAbsent(slot.getType(), t -> new ArrayList<>())
+                    .add(slot);
+        }
+        List<AvailabilitySnapshot.Group> groups = new ArrayList<>();
+        int free = 0;
+        for (Map.Entry<Integer, TreeMap<String, List<ParkingSlot>>> floor : byFloor.entrySet()) {
+            for (List<ParkingSlot> members : floor.getValue().values()) {
+                members.sort(Comparator.comparingInt(ParkingSlot::getSlotId));
+                int[] ids = new int[members.size()];
+                long[] bits = new long[(members.size() + 63) >>> 6];
+                int groupFree = 0;
+                for (int i = 0; i < ids.length; i++) {
+                    ParkingSlot slot = members.get(i);
+                    slot.availabilityGroup = groups.size();
+                    slot.availabilityBit = i;
+                    ids[i] = slot.getSlotId();
+                    if (slot.isAvailable()) {
+                        bits[i >>> 6] |= 1L << i;
+                        groupFree++;
+                    }
+                }
+                groups.add(new AvailabilitySnapshot.Group(floor.getKey(), members.get(0).getType(), ids, bits, groupFree));
+                free += groupFree;
+            }
+        }
+        current = new AtomicReference<>(new AvailabilitySnapshot(1, groups.toArray(new AvailabilitySnapshot.Group[0]), free));
+    }
+
+    AvailabilitySnapshot current() {
+        return current.get();
+    }
+
+    void slotChanged(ParkingSlot slot) {
+        while (true) {
+            AvailabilitySnapshot s = current.get();
+            AvailabilitySnapshot next = s.with(slot.availabilityGroup, slot.availabilityBit, slot.isAvailable());
+            if (next == s || current.compareAndSet(s, next)) return;
+        }
+    }
+}
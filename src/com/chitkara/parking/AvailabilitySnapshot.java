@@ -0,0 +1,124 @@
+package com.chitkara.parking;
+
+import java.util.*;
+
+// Immutable picture of which slots are free, per floor and vehicle type. ParkingSystem publishes a new one
+// after every change in availability (see AvailabilityBoard), so display boards and apps never lock or
+// wait for a writer: getting the current snapshot is one volatile read and every count in it is a field.
+// Versions go up by one per published change.
+//
+// A change copies only the bitmap of the slot's floor/type group; all other groups are shared with the
+// previous version.
+public final class AvailabilitySnapshot {
+
+    public static final class Group {
+        private final int floor;
+        private final String type;
+        private final int[] slotIds;    // sorted, shared by every version
+        private final long[] freeBits;  // bit i set = slotIds[i] is free
+        private final int freeCount;
+
+        Group(int floor, String type, int[] slotIds, long[] freeBits, int freeCount) {
+            this.floor = floor;
+            this.type = type;
+            this.slotIds = slotIds;
+            this.freeBits = freeBits;
+            this.freeCount = freeCount;
+        }
+
+        public int getFloor() { return floor; }
+        public String getType() { return type; }
+        public int getSlotCount() { return slotIds.length; }
+        public int getFreeCount() { return freeCount; }
+
+        public boolean isFree(int bit) {
+            return (freeBits[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        // Ids of the free slots, ascending
+        public int[] getFreeSlotIds() {
+            int[] ids = new int[freeCount];
+            int n = 0;
+            for (int w = 0; w < freeBits.length; w++) {
+                long bits = freeBits[w];
+                while (bits != 0) {
+                    ids[n++] = slotIds[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                }
+            }
+            return ids;
+        }
+
+        Group with(int bit, boolean free) {
+            if (isFree(bit) == free) return this;
+            long[] bits = freeBits.clone();
+            bits[bit >>> 6] ^= 1L << bit;
+            return new Group(floor, type, slotIds, bits, freeCount + (free ? 1 : -1));
+        }
+    }
+
+    private final long version;
+    private final Group[] groups;  // ordered by floor, then type
+    private final int freeCount;
+
+    AvailabilitySnapshot(long version, Group[] groups, int freeCount) {
+        this.version = version;
+        this.groups = groups;
+        this.freeCount = freeCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Group> getGroups() {
+        return Collections.unmodifiableList(Arrays.asList(groups));
+    }
+
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    public int getFreeCount(String type) {
+        int n = 0;
+        for (Group g : groups) {
+            if (g.type.equalsIgnoreCase(type)) n += g.freeCount;
+        }
+        return n;
+    }
+
+    public int getFreeCount(int floor, String type) {
+        Group g = group(floor, type);
+        return g == null ? 0 : g.freeCount;
+    }
+
+    // Free slots per vehicle type (case-insensitive keys), including types with none free
+    public Map<String, Integer> getFreeCountsByType() {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Group g : groups) {
+            counts.merge(g.type, g.freeCount, Integer::sum);
+        }
+        return counts;
+    }
+
+    public int[] getFreeSlotIds(int floor, String type) {
+        Group g = group(floor, type);
+        return g == null ? new int[0] : g.getFreeSlotIds();
+    }
+
+    private Group group(int floor, String type) {
+        for (Group g : groups) {
+            if (g.floor == floor && g.type.equalsIgnoreCase(type)) return g;
+        }
+        return null;
+    }
+
+    // This snapshot with one slot's state changed, as the next version; itself if the slot already has that state
+    AvailabilitySnapshot with(int group, int bit, boolean free) {
+        Group changed = groups[group].with(bit, free);
+        if (changed == groups[group]) return this;
+        Group[] next = groups.clone();
+        next[group] = changed;
+        return new AvailabilitySnapshot(version + 1, next, freeCount + (free ? 1 : -1));
+    }
+}
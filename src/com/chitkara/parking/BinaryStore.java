@@ -0,0 +1,336 @@
+package com.chitkara.parking;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Fixed-width binary image of bookings and waitlist, loaded with one sequential scan of a memory-mapped file.
+//
+// Layout (big-endian):
+//   header   40 bytes  magic "PKLB", short version, short flags, int nextBookingId, int bookingCount,
+//                      int waitlistCount, long stringTableOffset, int stringCount,
+//                      long generation (snapshot tag, 0 for plain saves)
+//   bookings 53 bytes  int id, int name, int vehicle, int contact, int slotId, time timeIn, time timeOut,
+//                      long fee (paise), byte flags (bit 0 = closed, bit 1 = reserved)
+//   waitlist 37 bytes  int name, int vehicle, int contact, int vehicleType, byte priority (ordinal), time joinedAt,
+//                      long stay (seconds asked for, 0 = default handover)
+//   strings            per entry: unsigned short byte length + UTF-8 bytes
+// A time is long epoch seconds + int nanoseconds, wall-clock time encoded as UTC, so times round-trip exactly.
+// Name, vehicle and contact fields are indexes into the string table, so repeat customers cost 4 bytes each.
+// Older files still load: version 3 had no stay (29-byte waitlist entries); version 2 kept whole seconds only (longs, 45-byte bookings) and no joinedAt
+// (17-byte waitlist entries); version 1 also had no type or priority (12 bytes; read as Car, REGULAR).
+// Waiters from either join at load time.
+public class BinaryStore {
+    private static final int MAGIC = 0x504B4C42;  // "PKLB"
+    private static final short VERSION = 4;
+    private static final int HEADER_SIZE = 40;
+    private static final int BOOKING_SIZE = 53;
+    private static final int BOOKING_SIZE_V2 = 45;
+    private static final int WAITLIST_SIZE = 37;
+    private static final int WAITLIST_SIZE_V3 = 29;
+    private static final int WAITLIST_SIZE_V2 = 17;
+    private static final int WAITLIST_SIZE_V1 = 12;
+    private static final byte CLOSED = 1;
+    private static final byte RESERVED = 2;
+
+    // Streams records to a temporary file; commit() patches in the header and replaces the target with it.
+    // Closing without a commit, e.g. when writing failed half-way, deletes the temporary file and leaves the
+    // target as it was.
+    static class Writer implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> table = new ArrayList<>();
+        private final long generation;
+        private int bookingCount = 0;
+        private int waitlistCount = 0;
+        private int nextBookingId = 1;
+        private boolean committed;
+
+        Writer(Path target, long generation) throws IOException {
+            this.target = target;
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.generation = generation;
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.write(new byte[HEADER_SIZE]);  // placeholder
+        }
+
+        void nextBookingId(int id) {
+            nextBookingId = Math.max(nextBookingId, id);
+        }
+
+        // Bookings must all be written before the first waitlist entry
+        void booking(int id, String name, String vehicle, String contact, int slotId,
+                     LocalDateTime in, LocalDateTime out, long feePaise, BookingStatus status) throws IOException {
+            if (waitlistCount > 0) throw new IllegalStateException("Bookings must precede waitlist entries");
+            this.out.writeInt(id);
+            this.out.writeInt(intern(name));
+            this.out.writeInt(intern(vehicle));
+            this.out.writeInt(intern(contact));
+            this.out.writeInt(slotId);
+            time(in);
+            time(out);
+            this.out.writeLong(feePaise);
+            this.out.writeByte(flags(status));
+            bookingCount++;
+            nextBookingId(id + 1);
+        }
+
+        private static byte flags(BookingStatus status) {
+            return switch (status) {
+                case CLOSED -> CLOSED;
+                case RESERVED -> RESERVED;
+                case ACTIVE -> 0;
+            };
+        }
+
+        void waitlisted(String name, String vehicle, String contact, String vehicleType, WaitlistPriority priority,
+                        LocalDateTime joinedAt, Duration stay) throws IOException {
+            out.writeInt(intern(name));
+            out.writeInt(intern(vehicle));
+            out.writeInt(intern(contact));
+            out.writeInt(intern(vehicleType));
+            out.writeByte(priority.ordinal());
+            time(joinedAt);
+            out.writeLong(stay == null ? 0 : stay.getSeconds());
+            waitlistCount++;
+        }
+
+        private void time(LocalDateTime t) throws IOException {
+            out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(t.getNano());
+        }
+
+        private int intern(String s) {
+            Integer idx = strings.get(s);
+            if (idx != null) return idx;
+            table.add(s);
+            strings.put(s, table.size() - 1);
+            return table.size() - 1;
+        }
+
+        // Writes the string table and header, syncs, and atomically replaces the target file
+        void commit() throws IOException {
+            long tableOffset = HEADER_SIZE + (long) bookingCount * BOOKING_SIZE + (long) waitlistCount * WAITLIST_SIZE;
+            for (String s : table) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) throw new IOException("String too long for binary store: " + s.length() + " chars");
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putInt(nextBookingId).putInt(bookingCount).putInt(waitlistCount)
+                    .putLong(tableOffset).putInt(table.size()).putLong(generation);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+            out.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) return;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    // Writes a captured image; generation tags snapshots and is 0 for plain saves
+    static void write(StateImage image, long generation, Path file) throws IOException {
+        try (Writer w = new Writer(file, generation)) {
+            w.nextBookingId(image.nextBookingId);
+            for (Booking b : image.bookings) {
+                User u = b.getUser();
+                w.booking(b.getBookingId(), u.getName(), u.getVehicleNumber(), u.getContact(),
+                        b.getSlot().getSlotId(), b.getTimeIn(), b.getTimeOut(),
+                        b.getFeePaise(), b.getStatus());
+            }
+            for (WaitlistEntry e : image.waitlist) {
+                User u = e.getUser();
+                w.waitlisted(u.getName(), u.getVehicleNumber(), u.getContact(), e.getVehicleType().getName(), e.getPriority(),
+                        e.getJoinedAt(), e.getStay());
+            }
+            w.commit();
+        }
+    }
+
+    // Snapshot generation from the header
+    static long readGeneration(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+            while (buf.hasRemaining() && ch.read(buf) >= 0) { }
+            if (buf.position() < HEADER_SIZE || buf.getInt(0) != MAGIC) throw new IOException("Not a binary parking store: " + file);
+            return buf.getLong(32);
+        }
+    }
+
+    // Maps the file and restores every record into the system; returns the number of bookings loaded
+    static int load(Path file, ParkingSystem ps) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Binary store larger than 2 GB: " + file);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (size < HEADER_SIZE || buf.getInt(0) != MAGIC) throw new IOException("Not a binary parking store: " + file);
+            short version = buf.getShort(4);
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported binary store version " + version);
+            int nextBookingId = buf.getInt(8);
+            int bookingCount = buf.getInt(12);
+            int waitlistCount = buf.getInt(16);
+            int tableOffset = (int) buf.getLong(20);
+            int stringCount = buf.getInt(28);
+
+            // Decode each distinct string once
+            String[] strings = new String[stringCount];
+            buf.position(tableOffset);
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < stringCount; i++) {
+                int len = Short.toUnsignedInt(buf.getShort());
+                if (len > scratch.length) scratch = new byte[len];
+                buf.get(scratch, 0, len);
+                strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+            }
+
+            // Fixed-width records: one sequential pass with absolute reads
+            int pos = HEADER_SIZE;
+            int loaded = 0;
+            boolean exact = version >= 3;
+            int timeSize = exact ? 12 : 8;
+            int bookingSize = exact ? BOOKING_SIZE : BOOKING_SIZE_V2;
+            for (int i = 0; i < bookingCount; i++, pos += bookingSize) {
+                int id = buf.getInt(pos);
+                User user = ps.getCustomers().intern(strings[buf.getInt(pos + 4)], strings[buf.getInt(pos + 8)], strings[buf.getInt(pos + 12)]);
+                int slotId = buf.getInt(pos + 16);
+                LocalDateTime in = time(buf, pos + 20, exact);
+                LocalDateTime out = time(buf, pos + 20 + timeSize, exact);
+                long fee = buf.getLong(pos + 20 + 2 * timeSize);
+                byte flags = buf.get(pos + 20 + 2 * timeSize + 8);
+                BookingStatus status = (flags & CLOSED) != 0 ? BookingStatus.CLOSED
+                        : (flags & RESERVED) != 0 ? BookingStatus.RESERVED : BookingStatus.ACTIVE;
+
+                try {
+                    ps.restoreBooking(id, user, slotId, in, out, status, fee);
+                } catch (IllegalStateException e) {
+                    throw new IOException(file + ": " + e.getMessage());
+                }
+                if (ps.getBooking(id) != null) loaded++;
+            }
+            WaitlistPriority[] priorities = WaitlistPriority.values();
+            int waitlistSize = version == 1 ? WAITLIST_SIZE_V1 : version == 2 ? WAITLIST_SIZE_V2
+                    : version == 3 ? WAITLIST_SIZE_V3 : WAITLIST_SIZE;
+            for (int i = 0; i < waitlistCount; i++, pos += waitlistSize) {
+                User user = ps.getCustomers().intern(strings[buf.getInt(pos)], strings[buf.getInt(pos + 4)], strings[buf.getInt(pos + 8)]);
+                if (version == 1) {
+                    ps.applyWaitlistAdd(new WaitlistEntry(user, "Car", WaitlistPriority.REGULAR));
+                } else {
+                    VehicleType type = VehicleType.find(strings[buf.getInt(pos + 12)]);
+                    LocalDateTime joinedAt = exact ? time(buf, pos + 17, true) : LocalDateTime.now();
+                    long stay = version >= 4 ? buf.getLong(pos + 29) : 0;
+                    if (type != null) ps.applyWaitlistAdd(new WaitlistEntry(user, type, priorities[buf.get(pos + 16)], joinedAt,
+                            stay > 0 ? Duration.ofSeconds(stay) : null));
+                }
+            }
+            ps.applyBookingCounter(nextBookingId);
+            return loaded;
+        }
+    }
+
+    private static LocalDateTime time(ByteBuffer buf, int pos, boolean exact) {
+        return LocalDateTime.ofEpochSecond(buf.getLong(pos), exact ? buf.getInt(pos + 8) : 0, ZoneOffset.UTC);
+    }
+
+    // Converts the legacy text files into a binary store without touching any ParkingSystem. Lines that do not
+    // parse are left out and added to skipped; the store is only replaced once every line has been read.
+    public static int convert(Path bookingsTxt, Path waitlistTxt, Path out, List<String> skipped) throws IOException {
+        int count = 0;
+        try (Writer w = new Writer(out, 0)) {
+            if (Files.exists(bookingsTxt)) {
+                try (BufferedReader reader = Files.newBufferedReader(bookingsTxt, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isBlank()) continue;
+                        int id, slotId;
+                        LocalDateTime in, outTime;
+                        long fee;
+                        BookingStatus status;
+                        String[] parts;
+                        try {
+                            parts = RecordCodec.split(line);
+                            if (parts.length < 8) throw new IllegalArgumentException("Too few fields");
+                            id = Integer.parseInt(parts[0].trim());
+                            slotId = Integer.parseInt(parts[4].trim());
+                            in = LocalDateTime.parse(parts[5].trim());
+                            outTime = LocalDateTime.parse(parts[6].trim());
+                            fee = Math.round(Double.parseDouble(parts[7].trim()) * 100);
+                            status = parts.length > 8 ? BookingStatus.valueOf(parts[8].trim()) : BookingStatus.ACTIVE;
+                        } catch (RuntimeException e) {
+                            skipped.add(line);
+                            continue;
+                        }
+                        w.booking(id, parts[1].trim(), parts[2].trim(), parts[3].trim(), slotId, in, outTime, fee, status);
+                        count++;
+                    }
+                }
+            }
+            if (Files.exists(waitlistTxt)) {
+                try (BufferedReader reader = Files.newBufferedReader(waitlistTxt, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isBlank()) continue;
+                        String[] parts;
+                        WaitlistPriority priority;
+                        LocalDateTime joinedAt;
+                        Duration stay;
+                        try {
+                            parts = RecordCodec.split(line);
+                            if (parts.length < 3) throw new IllegalArgumentException("Too few fields");
+                            priority = parts.length > 4 ? WaitlistPriority.valueOf(parts[4].trim()) : WaitlistPriority.REGULAR;
+                            joinedAt = parts.length > 5 ? LocalDateTime.parse(parts[5].trim()) : LocalDateTime.now();
+                            stay = parts.length > 6 && !parts[6].isBlank() ? Duration.parse(parts[6].trim()) : null;
+                        } catch (RuntimeException e) {
+                            skipped.add(line);
+                            continue;
+                        }
+                        w.waitlisted(parts[0].trim(), parts[1].trim(), parts[2].trim(),
+                                parts.length > 3 ? parts[3].trim() : "Car", priority, joinedAt, stay);
+                    }
+                }
+            }
+            w.commit();
+        }
+        return count;
+    }
+
+    // Usage: BinaryStore [bookings.txt] [waitlist.txt] [parking.bin]
+    public static void main(String[] args) throws IOException {
+        Path bookings = Path.of(args.length > 0 ? args[0] : "bookings.txt");
+        Path waitlist = Path.of(args.length > 1 ? args[1] : "waitlist.txt");
+        Path out = Path.of(args.length > 2 ? args[2] : "parking.bin");
+        List<String> skipped = new ArrayList<>();
+        int count = convert(bookings, waitlist, out, skipped);
+        System.out.println("✅ Converted " + count + " bookings to " + out);
+        for (String line : skipped) {
+            System.out.println("⚠️ Skipped unreadable line: " + line);
+        }
+    }
+}
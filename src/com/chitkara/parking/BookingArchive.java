@@ -0,0 +1,381 @@
+package com.chitkara.parking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Completed and cancelled bookings, kept on disk instead of on the heap. Each one is appended to the segment
+// of the day its stay began (archive/2025-04-26.csv, in the bookings.txt format with CLOSED or CANCELLED as
+// the status, fields escaped by RecordCodec); segments are never rewritten.
+//
+// Opening the archive only lists the segment files. The first time a segment is read or appended to, it is
+// scanned once into a sparse index that is then kept up to date in memory:
+//   - the byte offset of every INDEX_STRIDE-th record, so a page can start mid-segment without reading
+//     everything before it;
+//   - a Bloom filter of vehicle numbers, so a vehicle lookup skips segments that cannot hold the vehicle;
+//   - for segments appended to, the booking ids, so archiving a booking twice (journal replay) writes it once.
+// Queries page through the segments lazily and hold the lock only to look at an index, never while reading
+// records: the part of a segment an index covers does not change.
+public class BookingArchive implements Closeable {
+    static final int INDEX_STRIDE = 64;
+    private static final int BLOOM_BITS = 1 << 15;  // 4 KB per segment; ~5% false positives at 5000 stays a day
+    private static final int OPEN_SEGMENTS = 8;     // segments kept open for appending
+    private static final String SUFFIX = ".csv";
+    private static final String CANCELLED = "CANCELLED";
+
+    private static class Segment {
+        final LocalDate day;
+        final Path file;
+        boolean indexed;
+        long end;                      // bytes of complete records covered by the index
+        int count;
+        long[] offsets = new long[1];  // offsets[i] = start of record i * INDEX_STRIDE
+        long[] bloom = new long[BLOOM_BITS >>> 6];
+        Set<Integer> ids;              // only for segments appended to
+        FileChannel channel;           // open for appending
+        boolean dirty;                 // appended to since the last sync
+
+        Segment(LocalDate day, Path file) {
+            this.day = day;
+            this.file = file;
+        }
+
+        void add(long offset, String vehicle) {
+            if (count % INDEX_STRIDE == 0) {
+                int i = count / INDEX_STRIDE;
+                if (i == offsets.length) offsets = Arrays.copyOf(offsets, i * 2);
+                offsets[i] = offset;
+            }
+            count++;
+            int h1 = vehicle.hashCode(), h2 = (h1 * 0x9E3779B9) >>> 15 | 1;
+            for (int k = 0; k < 3; k++) {
+                int bit = (h1 + k * h2) & (BLOOM_BITS - 1);
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(String vehicle) {
+            int h1 = vehicle.hashCode(), h2 = (h1 * 0x9E3779B9) >>> 15 | 1;
+            for (int k = 0; k < 3; k++) {
+                int bit = (h1 + k * h2) & (BLOOM_BITS - 1);
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+    }
+
+    // What a query may read of a segment: records [0, count), all within the first end bytes
+    private static class View {
+        final Segment segment;
+        final int count;
+        final long end;
+        final long[] offsets;
+
+        View(Segment s) {
+            this.segment = s;
+            this.count = s.count;
+            this.end = s.end;
+            this.offsets = s.offsets;
+        }
+    }
+
+    private final Path dir;
+    private final TreeMap<LocalDate, Segment> segments = new TreeMap<>();
+    private final LinkedHashMap<LocalDate, Segment> open = new LinkedHashMap<>();  // least recently appended first
+
+    public BookingArchive(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    LocalDate day = LocalDate.parse(name.substring(0, name.length() - SUFFIX.length()));
+                    segments.put(day, new Segment(day, file));
+                } catch (DateTimeParseException e) {
+                    // Not a segment
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    // Archives a closed booking with its fee as it stands; returns false if it was archived already
+    public synchronized boolean append(Booking b, boolean cancelled) throws IOException {
+        LocalDate day = b.getTimeIn().toLocalDate();
+        Segment s = segments.computeIfAbsent(day, d -> new Segment(d, dir.resolve(d + SUFFIX)));
+        if (!s.indexed || s.ids == null) install(s, scan(s, true));
+        if (!s.ids.add(b.getBookingId())) return false;
+
+        if (s.channel == null) {
+            s.channel = FileChannel.open(s.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            s.channel.truncate(s.end);  // drop a record torn by a crash
+            s.channel.position(s.end);
+            open.put(day, s);
+            if (open.size() > OPEN_SEGMENTS) closeOldest();
+        } else {
+            open.remove(day);
+            open.put(day, s);
+        }
+        User u = b.getUser();
+        String record = RecordCodec.join(b.getBookingId(), u.getName(), u.getVehicleNumber(), u.getContact(),
+                b.getSlot().getSlotId(), b.getTimeIn(), b.getTimeOut(), b.getFee(),
+                cancelled ? CANCELLED : BookingStatus.CLOSED.name()) + "\n";
+        ByteBuffer buf = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+        long offset = s.end;
+        while (buf.hasRemaining()) {
+            s.channel.write(buf);
+        }
+        s.add(offset, VehicleIndex.normalize(u.getVehicleNumber()));
+        s.end = s.channel.position();
+        s.dirty = true;
+        return true;
+    }
+
+    // Forces everything archived so far to disk, e.g. before a checkpoint drops the bookings from the snapshot
+    public synchronized void sync() throws IOException {
+        for (Segment s : open.values()) {
+            if (s.dirty) {
+                s.channel.force(false);
+                s.dirty = false;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (!open.isEmpty()) {
+            closeOldest();
+        }
+    }
+
+    private void closeOldest() throws IOException {
+        Iterator<Segment> it = open.values().iterator();
+        Segment s = it.next();
+        it.remove();
+        if (s.dirty) s.channel.force(false);
+        s.channel.close();
+        s.channel = null;
+        s.dirty = false;
+    }
+
+    // --- Queries ---
+
+    // The vehicle's stays, newest day first (in archiving order within a day); pageToken null for the first page
+    public HistoryPage findByVehicle(String vehicleNumber, String pageToken, int pageSize) throws IOException {
+        String key = VehicleIndex.normalize(vehicleNumber);
+        Cursor cursor = Cursor.parse(pageToken);
+        List<LocalDate> days;
+        synchronized (this) {
+            NavigableMap<LocalDate, Segment> range = cursor == null ? segments : segments.headMap(cursor.day, true);
+            days = new ArrayList<>(range.descendingKeySet());
+        }
+        return page(days, cursor, stay -> VehicleIndex.normalize(stay.getUser().getVehicleNumber()).equals(key), key, pageSize);
+    }
+
+    // Stays that began between from and to (inclusive), oldest day first
+    public HistoryPage findByDate(LocalDate from, LocalDate to, String pageToken, int pageSize) throws IOException {
+        Cursor cursor = Cursor.parse(pageToken);
+        List<LocalDate> days;
+        synchronized (this) {
+            LocalDate start = cursor == null ? from : cursor.day;
+            days = start.isAfter(to) ? List.of() : new ArrayList<>(segments.subMap(start, true, to, true).keySet());
+        }
+        return page(days, cursor, stay -> true, null, pageSize);
+    }
+
+    // The vehicle's most recent archived stay, or null
+    public ArchivedStay latestByVehicle(String vehicleNumber) throws IOException {
+        String key = VehicleIndex.normalize(vehicleNumber);
+        List<LocalDate> days;
+        synchronized (this) {
+            days = new ArrayList<>(segments.descendingKeySet());
+        }
+        for (LocalDate day : days) {
+            View v = view(day, key);
+            if (v == null) continue;
+            List<ArchivedStay> matches = new ArrayList<>();
+            read(v, 0, stay -> VehicleIndex.normalize(stay.getUser().getVehicleNumber()).equals(key), matches, Integer.MAX_VALUE);
+            ArchivedStay latest = null;
+            for (ArchivedStay stay : matches) {
+                if (latest == null || stay.getTimeOut().isAfter(latest.getTimeOut())) latest = stay;
+            }
+            if (latest != null) return latest;
+        }
+        return null;
+    }
+
+    private HistoryPage page(List<LocalDate> days, Cursor cursor, Predicate<ArchivedStay> filter, String vehicle,
+                             int pageSize) throws IOException {
+        List<ArchivedStay> page = new ArrayList<>();
+        for (LocalDate day : days) {
+            View v = view(day, vehicle);
+            if (v == null) continue;
+            int from = cursor != null && day.equals(cursor.day) ? cursor.ordinal : 0;
+            int next = read(v, from, filter, page, pageSize);
+            if (page.size() == pageSize) {
+                return new HistoryPage(page, day + ":" + next);
+            }
+        }
+        return new HistoryPage(page, null);
+    }
+
+    // Index of the day's segment, built on first use; null if the segment cannot hold the vehicle (when given)
+    private View view(LocalDate day, String vehicle) throws IOException {
+        Segment s;
+        synchronized (this) {
+            s = segments.get(day);
+            if (s.indexed) return vehicle == null || s.mightContain(vehicle) ? new View(s) : null;
+        }
+        Segment scanned = scan(s, false);  // outside the lock, so archiving goes on meanwhile
+        synchronized (this) {
+            if (!s.indexed) install(s, scanned);
+            return vehicle == null || s.mightContain(vehicle) ? new View(s) : null;
+        }
+    }
+
+    // Adds the matching stays from record from onwards to out until it holds limit; returns the next record to read
+    private static int read(View v, int from, Predicate<ArchivedStay> filter, List<ArchivedStay> out, int limit)
+            throws IOException {
+        if (from >= v.count) return from;
+        int ordinal = from - from % INDEX_STRIDE;
+        try (RecordReader reader = new RecordReader(v.segment.file, v.offsets[from / INDEX_STRIDE], v.end)) {
+            while (ordinal < v.count && out.size() < limit && reader.next()) {
+                if (ordinal++ < from) continue;
+                ArchivedStay stay = parse(reader.line);
+                if (stay != null && filter.test(stay)) out.add(stay);
+            }
+        }
+        return ordinal;
+    }
+
+    private static Segment scan(Segment s, boolean withIds) throws IOException {
+        Segment index = new Segment(s.day, s.file);
+        if (withIds) index.ids = new HashSet<>();
+        if (!Files.exists(s.file)) return index;
+        try (RecordReader reader = new RecordReader(s.file, 0, Long.MAX_VALUE)) {
+            while (reader.next()) {
+                String[] p;
+                try {
+                    p = RecordCodec.split(reader.line);
+                } catch (IllegalArgumentException e) {
+                    p = new String[0];  // malformed record: indexed under no vehicle, parse() skips it
+                }
+                index.add(reader.start, p.length > 2 ? VehicleIndex.normalize(p[2]) : "");
+                if (withIds && p.length > 0) {
+                    try {
+                        index.ids.add(Integer.parseInt(p[0].trim()));
+                    } catch (NumberFormatException e) {
+                        // Malformed record: nothing to deduplicate against
+                    }
+                }
+                index.end = reader.offset;
+            }
+        }
+        return index;
+    }
+
+    private static void install(Segment s, Segment index) {
+        s.end = index.end;
+        s.count = index.count;
+        s.offsets = index.offsets;
+        s.bloom = index.bloom;
+        if (index.ids != null) s.ids = index.ids;
+        s.indexed = true;
+    }
+
+    static ArchivedStay parse(String line) {
+        try {
+            String[] p = RecordCodec.split(line);
+            if (p.length < 9) return null;
+            return new ArchivedStay(Integer.parseInt(p[0].trim()), new User(p[1], p[2], p[3]), Integer.parseInt(p[4].trim()),
+                    LocalDateTime.parse(p[5].trim()), LocalDateTime.parse(p[6].trim()),
+                    Math.round(Double.parseDouble(p[7].trim()) * 100), p[8].trim().equals(CANCELLED));
+        } catch (RuntimeException e) {
+            return null;  // Skip malformed lines
+        }
+    }
+
+    // Page token: the day and record to continue from
+    private static class Cursor {
+        final LocalDate day;
+        final int ordinal;
+
+        Cursor(LocalDate day, int ordinal) {
+            this.day = day;
+            this.ordinal = ordinal;
+        }
+
+        static Cursor parse(String token) {
+            if (token == null) return null;
+            int colon = token.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Bad page token: " + token);
+            return new Cursor(LocalDate.parse(token.substring(0, colon)), Integer.parseInt(token.substring(colon + 1)));
+        }
+    }
+
+    // Reads newline-terminated records from a byte offset, tracking where each starts; a torn last record is not returned
+    private static class RecordReader implements Closeable {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos, len;
+        private final long end;
+        private byte[] lineBuf = new byte[256];
+        long offset;  // of the next byte
+        long start;   // of the current record
+        String line;
+
+        RecordReader(Path file, long position, long end) throws IOException {
+            SeekableByteChannel ch = Files.newByteChannel(file);
+            ch.position(position);
+            this.in = Channels.newInputStream(ch);
+            this.offset = position;
+            this.end = end;
+        }
+
+        boolean next() throws IOException {
+            if (offset >= end) return false;
+            long at = offset;
+            int n = 0;
+            while (true) {
+                if (pos == len) {
+                    len = in.read(buf);
+                    pos = 0;
+                    if (len <= 0) {
+                        len = 0;
+                        return false;
+                    }
+                }
+                byte b = buf[pos++];
+                offset++;
+                if (b == '\n') break;
+                if (n == lineBuf.length) lineBuf = Arrays.copyOf(lineBuf, n * 2);
+                lineBuf[n++] = b;
+            }
+            start = at;
+            line = new String(lineBuf, 0, n, StandardCharsets.UTF_8);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+
+// A state change of the engine, as delivered to EventBus subscribers once the change is complete.
+// booking is the live object, so a subscriber sees its current state, which may be newer than the event;
+// the waitlist events have no booking, only the user and vehicle type.
+public class BookingEvent {
+    public enum Type {
+        BOOKED,       // booked or reserved
+        CHECKED_IN,   // reservation window started
+        UPDATED,      // vehicle number or exit time changed
+        EXITED,       // left early
+        EXPIRED,      // exit time passed
+        CANCELLED,
+        WAITLISTED,
+        LEFT_WAITLIST,
+        PROMOTED      // waitlisted user handed a freed slot
+    }
+
+    private final Type type;
+    private final long sequence;
+    private final LocalDateTime at;
+    private final Booking booking;
+    private final Booking related;
+    private final User user;
+    private final String vehicleType;
+
+    BookingEvent(Type type, long sequence, Booking booking, Booking related, User user, String vehicleType) {
+        this.type = type;
+        this.sequence = sequence;
+        this.at = LocalDateTime.now();
+        this.booking = booking;
+        this.related = related;
+        this.user = user;
+        this.vehicleType = vehicleType;
+    }
+
+    public Type getType() { return type; }
+
+    // Position on the bus: gap-free and increasing, in the order the changes were published
+    public long getSequence() { return sequence; }
+
+    public LocalDateTime getAt() { return at; }
+
+    public Booking getBooking() { return booking; }
+
+    // For EXITED, EXPIRED and CANCELLED the booking that got the freed slot, for PROMOTED the one that freed it
+    public Booking getRelated() { return related; }
+
+    public User getUser() { return user; }
+
+    public String getVehicleType() { return vehicleType; }
+}
@@ -0,0 +1,30 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+
+// One item of a ParkingSystem.bookSlots batch
+public class BookingRequest {
+    private final User user;
+    private final LocalDateTime timeIn;
+    private final LocalDateTime timeOut;
+    private final String vehicleType;
+    private final int entrance;  // index into ParkingSystem.getEntrances()
+
+    public BookingRequest(User user, LocalDateTime timeIn, LocalDateTime timeOut, String vehicleType) {
+        this(user, timeIn, timeOut, vehicleType, 0);
+    }
+
+    public BookingRequest(User user, LocalDateTime timeIn, LocalDateTime timeOut, String vehicleType, int entrance) {
+        this.user = user;
+        this.timeIn = timeIn;
+        this.timeOut = timeOut;
+        this.vehicleType = vehicleType;
+        this.entrance = entrance;
+    }
+
+    public User getUser() { return user; }
+    public LocalDateTime getTimeIn() { return timeIn; }
+    public LocalDateTime getTimeOut() { return timeOut; }
+    public String getVehicleType() { return vehicleType; }
+    public int getEntrance() { return entrance; }
+}
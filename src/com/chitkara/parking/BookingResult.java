@@ -0,0 +1,51 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+
+// Returned by every mutating ParkingSystem call instead of printing to the console
+public class BookingResult {
+    private final ResultCode code;
+    private final Booking booking;    // booking the call acted on (null on failure)
+    private final Booking promoted;   // booking created for a waitlisted user, if the call freed a slot
+    private final LocalDateTime eta;  // OVERBOOKED only: when a slot is expected to come free (null if unknown)
+    private final int position;       // OVERBOOKED only: place in the waitlist for the type, 1 = next
+
+    private BookingResult(ResultCode code, Booking booking, Booking promoted) {
+        this(code, booking, promoted, null, 0);
+    }
+
+    private BookingResult(ResultCode code, Booking booking, Booking promoted, LocalDateTime eta, int position) {
+        this.code = code;
+        this.booking = booking;
+        this.promoted = promoted;
+        this.eta = eta;
+        this.position = position;
+    }
+
+    public static BookingResult ok(Booking booking) {
+        return new BookingResult(ResultCode.OK, booking, null);
+    }
+
+    public static BookingResult ok(Booking booking, Booking promoted) {
+        return new BookingResult(ResultCode.OK, booking, promoted);
+    }
+
+    public static BookingResult overbooked(LocalDateTime eta, int position) {
+        return new BookingResult(ResultCode.OVERBOOKED, null, null, eta, position);
+    }
+
+    public static BookingResult error(ResultCode code) {
+        return new BookingResult(code, null, null);
+    }
+
+    public static BookingResult error(ResultCode code, Booking booking) {
+        return new BookingResult(code, booking, null);
+    }
+
+    public boolean isSuccess() { return code == ResultCode.OK; }
+    public ResultCode getCode() { return code; }
+    public Booking getBooking() { return booking; }
+    public Booking getPromoted() { return promoted; }
+    public LocalDateTime getEta() { return eta; }
+    public int getPosition() { return position; }
+}
@@ -0,0 +1,7 @@
+package com.chitkara.parking;
+
+public enum BookingStatus {
+    RESERVED,  // advance booking whose window has not started; the slot is not held yet
+    ACTIVE,    // vehicle holds the slot
+    CLOSED     // cancelled or exited; the slot has been given back
+}
@@ -0,0 +1,148 @@
+package com.chitkara.parking;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bookings by id. Ids come from a counter, so they are dense and a booking is found by indexing a page of
+// PAGE_SIZE references: 4 bytes per id, where a ConcurrentHashMap<Integer, Booking> spends a node and a boxed
+// key (~50 bytes) per entry. Pages are added as ids grow and never dropped, so ids of archived bookings keep
+// costing 4 bytes each. Ids outside [0, MAX_DENSE_ID), e.g. from a hand-edited file, go to a hash map.
+// Reads never lock; values() iterates in id order and sees concurrent changes or not, like the map did.
+class BookingTable {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_DENSE_ID = 1 << 28;
+
+    private volatile AtomicReferenceArray<Booking>[] pages = newDirectory(16);
+    private final Map<Integer, Booking> sparse = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static AtomicReferenceArray<Booking>[] newDirectory(int length) {
+        return (AtomicReferenceArray<Booking>[]) new AtomicReferenceArray[length];
+    }
+
+    private static boolean dense(int id) {
+        return id >= 0 && id < MAX_DENSE_ID;
+    }
+
+    public Booking get(int id) {
+        if (!dense(id)) return sparse.get(id);
+        AtomicReferenceArray<Booking>[] dir = pages;
+        int p = id >>> PAGE_BITS;
+        if (p >= dir.length || dir[p] == null) return null;
+        return dir[p].get(id & (PAGE_SIZE - 1));
+    }
+
+    // Adds or replaces the booking under its id
+    public void put(Booking b) {
+        int id = b.getBookingId();
+        Booking previous = dense(id) ? page(id >>> PAGE_BITS).getAndSet(id & (PAGE_SIZE - 1), b) : sparse.put(id, b);
+        if (previous == null) size.incrementAndGet();
+    }
+
+    // Removes and returns whatever is stored under the id; only one of two concurrent callers gets it
+    public Booking remove(int id) {
+        Booking b = dense(id) ? removeDense(id) : sparse.remove(id);
+        if (b != null) size.decrementAndGet();
+        return b;
+    }
+
+    // Removes the booking only if it is still the one stored under its id
+    public boolean remove(Booking b) {
+        int id = b.getBookingId();
+        boolean removed;
+        if (dense(id)) {
+            AtomicReferenceArray<Booking> page = existingPage(id);
+            removed = page != null && page.compareAndSet(id & (PAGE_SIZE - 1), b, null);
+        } else {
+            removed = sparse.remove(id, b);
+        }
+        if (removed) size.decrementAndGet();
+        return removed;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // Live view in id order (the sparse ids last)
+    public Collection<Booking> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Booking> iterator() {
+                return new Cursor();
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    private Booking removeDense(int id) {
+        AtomicReferenceArray<Booking> page = existingPage(id);
+        return page == null ? null : page.getAndSet(id & (PAGE_SIZE - 1), null);
+    }
+
+    private AtomicReferenceArray<Booking> existingPage(int id) {
+        AtomicReferenceArray<Booking>[] dir = pages;
+        int p = id >>> PAGE_BITS;
+        return p < dir.length ? dir[p] : null;
+    }
+
+    private AtomicReferenceArray<Booking> page(int p) {
+        AtomicReferenceArray<Booking>[] dir = pages;
+        if (p < dir.length && dir[p] != null) return dir[p];
+        synchronized (this) {
+            dir = pages;
+            if (p >= dir.length) {
+                AtomicReferenceArray<Booking>[] grown = newDirectory(Math.max(dir.length * 2, p + 1));
+                System.arraycopy(dir, 0, grown, 0, dir.length);
+                dir = grown;
+            }
+            if (dir[p] == null) dir[p] = new AtomicReferenceArray<>(PAGE_SIZE);
+            pages = dir;  // publishes the new page along with the directory
+            return dir[p];
+        }
+    }
+
+    private class Cursor implements Iterator<Booking> {
+        private final AtomicReferenceArray<Booking>[] dir = pages;
+        private final Iterator<Booking> rest = sparse.values().iterator();
+        private int index;  // next dense id to look at
+        private Booking next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                int p = index >>> PAGE_BITS;
+                if (p >= dir.length) {
+                    if (!rest.hasNext()) return false;
+                    next = rest.next();
+                } else if (dir[p] == null) {
+                    index = (p + 1) << PAGE_BITS;
+                } else {
+                    next = dir[p].get(index & (PAGE_SIZE - 1));
+                    index++;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Booking next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Booking b = next;
+            next = null;
+            return b;
+        }
+    }
+}
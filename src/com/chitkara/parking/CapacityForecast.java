@@ -0,0 +1,81 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Expected free slots of one vehicle type over the next HORIZON_MINUTES, in STEP_MINUTES steps, as of at.
+// A parked vehicle whose booked exit falls within a step is certain to be gone by then (the expiry scheduler
+// releases it); one booked longer leaves early with the chance DepartureForecast gives for its stay so far.
+// Departures are taken as independent, so the freed count at a step has mean sum(p) and variance sum(p(1-p)).
+// Slots with another booking waiting after the current one are left out: they free up only to be taken again.
+// Immutable, so one forecast is shared by every reader until ParkingSystem replaces it.
+public class CapacityForecast {
+    public static final int STEP_MINUTES = 5;
+    public static final int HORIZON_MINUTES = 240;
+    private static final int STEPS = HORIZON_MINUTES / STEP_MINUTES;
+    private static final double Z_95 = 1.645;  // one-sided 95%
+
+    private final String vehicleType;
+    private final LocalDateTime at;
+    private final int freeNow;
+    private final double[] mean = new double[STEPS + 1];      // expected departures by step
+    private final double[] variance = new double[STEPS + 1];
+
+    CapacityForecast(VehicleType type, LocalDateTime at, int freeNow, List<Booking> occupants, DepartureForecast departures) {
+        this.vehicleType = type.getName();
+        this.at = at;
+        this.freeNow = freeNow;
+        for (Booking b : occupants) {
+            LocalDateTime in = b.getTimeIn();
+            DepartureForecast.Survival s = departures.survival(type, in.getHour());
+            for (int k = 1; k <= STEPS; k++) {
+                LocalDateTime t = at.plusMinutes((long) k * STEP_MINUTES);
+                double p;
+                if (!b.getTimeOut().isAfter(t)) {
+                    p = 1;
+                } else if (s == null) {
+                    p = 0;  // nothing learned yet: only booked exits count
+                } else {
+                    p = s.leaveWithin(in, at, (long) k * STEP_MINUTES);
+                }
+                mean[k] += p;
+                variance[k] += p * (1 - p);
+            }
+        }
+    }
+
+    private static int step(int minutes) {
+        return Math.max(0, Math.min(STEPS, minutes / STEP_MINUTES));
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    public LocalDateTime getAt() {
+        return at;
+    }
+
+    public int getFreeNow() {
+        return freeNow;
+    }
+
+    // Free slots expected minutes from at (capped at the horizon)
+    public double getExpectedFree(int minutes) {
+        return freeNow + mean[step(minutes)];
+    }
+
+    // Free slots there will be minutes from at with about 95% confidence; never below getFreeNow()
+    public int getSafeFree(int minutes) {
+        int k = step(minutes);
+        return freeNow + Math.max(0, (int) Math.floor(mean[k] - Z_95 * Math.sqrt(variance[k])));
+    }
+
+    // When the position-th user in line (1 = first) can expect a slot, or null if not within the horizon
+    public LocalDateTime getEta(int position) {
+        for (int k = 0; k <= STEPS; k++) {
+            if (freeNow + mean[k] >= position) return at.plusMinutes((long) k * STEP_MINUTES);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chitkara.parking;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One User per customer, keyed by normalized vehicle number, so a repeat customer's bookings share the
+// same object and strings instead of carrying a copy each. A vehicle that comes back under another name
+// or contact gets a new User, which then becomes the registered one; earlier bookings keep theirs.
+// Shared Users must not be changed in place: a booking moves to another vehicle through ParkingSystem.
+public class CustomerRegistry {
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    // The registered User with these details, or u itself once registered
+    public User intern(User u) {
+        String key = VehicleIndex.normalize(u.getVehicleNumber());
+        User known = users.get(key);
+        if (same(known, u.getName(), u.getVehicleNumber(), u.getContact())) return known;
+        users.put(key, u);
+        return u;
+    }
+
+    // As intern(User), without allocating when the customer is known, e.g. for each line of a file
+    public User intern(String name, String vehicleNumber, String contact) {
+        User known = users.get(VehicleIndex.normalize(vehicleNumber));
+        if (same(known, name, vehicleNumber, contact)) return known;
+        return intern(new User(name, vehicleNumber, contact));
+    }
+
+    public User find(String vehicleNumber) {
+        return users.get(VehicleIndex.normalize(vehicleNumber));
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    private static boolean same(User known, String name, String vehicleNumber, String contact) {
+        return known != null && Objects.equals(known.getName(), name)
+                && Objects.equals(known.getVehicleNumber(), vehicleNumber) && Objects.equals(known.getContact(), contact);
+    }
+}
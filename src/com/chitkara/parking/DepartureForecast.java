@@ -0,0 +1,107 @@
+package com.chitkara.parking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Learns how long stays last, per vehicle type and hour of arrival, from every stay that closes (exit, expiry,
+// history loaded from files or the archive). Each (type, hour) keeps a histogram of stay lengths in
+// BUCKET_MINUTES buckets up to a day, plus an overflow bucket; recording a stay is one atomic increment.
+//
+// From the histogram follows the chance that a vehicle still parked leaves within the next w minutes, given
+// how long it has stayed so far: 1 - S(stayed + w) / S(stayed), with S the share of stays lasting at least
+// that long. An hour with fewer than MIN_SAMPLES stays borrows the figures of all hours of the type.
+class DepartureForecast {
+    static final int BUCKET_MINUTES = 15;
+    private static final int BUCKETS = 24 * 60 / BUCKET_MINUTES;  // the last one holds every stay of a day or more
+    private static final int ALL_HOURS = 24;                      // row summing every hour
+    private static final int ROW = BUCKETS + 1;
+    private static final int MIN_SAMPLES = 30;
+
+    // Indexed by VehicleType code: 25 rows of ROW counts, hour by hour and then all hours
+    private volatile AtomicLongArray[] counts = new AtomicLongArray[0];
+
+    void record(Booking b) {
+        record(b.getSlot().getVehicleType(), b.getTimeIn(), b.getTimeOut());
+    }
+
+    void record(VehicleType type, LocalDateTime in, LocalDateTime out) {
+        if (type == null || out.isBefore(in)) return;
+        long minutes = Duration.between(in, out).toMinutes();
+        int bucket = (int) Math.min(minutes / BUCKET_MINUTES, BUCKETS);
+        AtomicLongArray c = countsFor(type);
+        c.incrementAndGet(in.getHour() * ROW + bucket);
+        c.incrementAndGet(ALL_HOURS * ROW + bucket);
+    }
+
+    // Stays of the type learned so far
+    long samples(VehicleType type) {
+        AtomicLongArray c = existing(type);
+        if (c == null) return 0;
+        long n = 0;
+        for (int b = 0; b < ROW; b++) {
+            n += c.get(ALL_HOURS * ROW + b);
+        }
+        return n;
+    }
+
+    // Survival table of the type for stays that began in the given hour, or null with no history at all
+    Survival survival(VehicleType type, int hour) {
+        AtomicLongArray c = existing(type);
+        if (c == null) return null;
+        Survival s = new Survival(c, hour);
+        if (s.total() >= MIN_SAMPLES) return s;
+        s = new Survival(c, ALL_HOURS);
+        return s.total() == 0 ? null : s;
+    }
+
+    private AtomicLongArray existing(VehicleType type) {
+        AtomicLongArray[] all = counts;
+        return type != null && type.code() < all.length ? all[type.code()] : null;
+    }
+
+    private AtomicLongArray countsFor(VehicleType type) {
+        AtomicLongArray c = existing(type);
+        if (c != null) return c;
+        synchronized (this) {
+            AtomicLongArray[] all = counts;
+            if (type.code() >= all.length) all = Arrays.copyOf(all, type.code() + 1);
+            if (all[type.code()] == null) all[type.code()] = new AtomicLongArray((ALL_HOURS + 1) * ROW);
+            counts = all;
+            return all[type.code()];
+        }
+    }
+
+    // Copy of one row as tail sums: atLeast[k] stays lasted k buckets or more
+    static final class Survival {
+        private final long[] atLeast = new long[ROW + 1];
+
+        private Survival(AtomicLongArray c, int row) {
+            for (int k = ROW - 1; k >= 0; k--) {
+                atLeast[k] = atLeast[k + 1] + c.get(row * ROW + k);
+            }
+        }
+
+        long total() {
+            return atLeast[0];
+        }
+
+        // Stays lasting at least the given minutes, interpolated within a bucket; flat past a day
+        private double lasting(long minutes) {
+            if (minutes >= (long) BUCKETS * BUCKET_MINUTES) return atLeast[BUCKETS];
+            int k = (int) (minutes / BUCKET_MINUTES);
+            double f = (double) (minutes % BUCKET_MINUTES) / BUCKET_MINUTES;
+            return atLeast[k] - f * (atLeast[k] - atLeast[k + 1]);
+        }
+
+        // Chance that a vehicle parked since in and still there at now leaves within the next minutes;
+        // 0 once it has stayed longer than any stay seen
+        double leaveWithin(LocalDateTime in, LocalDateTime now, long minutes) {
+            long stayed = Math.max(0, Duration.between(in, now).toMinutes());
+            double still = lasting(stayed);
+            if (still <= 0) return 0;
+            return 1 - lasting(stayed + minutes) / still;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.chitkara.parking;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded ring buffer carrying BookingEvents from the engine to subscribers, each on its own daemon thread.
+//
+// Publishing is lock-free: a producer takes the next sequence with one getAndIncrement and stores the event
+// in its slot; it never waits on a subscriber unless the ring is full. Then it backs off (spin, then short
+// parks) until the slowest subscriber has moved on, so a stalled consumer slows the engine down instead of
+// losing events or growing memory. ParkingSystem publishes only after releasing its locks, so a subscriber
+// may call back into it (e.g. to save), but must not publish itself: with the ring full it would wait on itself.
+//
+// A subscriber gets every event published after it subscribed, in sequence order and in batches of whatever
+// has accumulated (up to MAX_BATCH), so a slow consumer such as a file rewrite does its work once per batch.
+// An idle subscriber parks; a producer wakes it only if it is parked, so an event usually costs no syscall.
+public class EventBus implements Closeable {
+    public interface Subscriber {
+        void onEvents(List<BookingEvent> batch);
+    }
+
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final int mask;
+    private final AtomicReferenceArray<BookingEvent> ring;
+    private final AtomicLong next = new AtomicLong();  // next sequence to hand out
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private volatile long gatingCache = -1;            // lowest sequence some consumer has yet to read, or -1
+    private volatile boolean closed;
+    private final LongAdder stalls = new LongAdder();  // publishes that found the ring full
+    private final LongAdder failures = new LongAdder();  // batches a subscriber threw on, Errors included
+
+    public EventBus(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    private class Consumer implements Runnable {
+        final String name;
+        final Subscriber subscriber;
+        final AtomicLong read;  // next sequence to read
+        final AtomicBoolean parked = new AtomicBoolean();
+        final Thread thread;
+        volatile boolean stopped;
+
+        Consumer(String name, Subscriber subscriber, long from) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.read = new AtomicLong(from);
+            this.thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<BookingEvent> batch = new ArrayList<>();
+            while (true) {
+                long seq = read.get();
+                BookingEvent e;
+                while (batch.size() < MAX_BATCH && (e = ring.get((int) seq & mask)) != null && e.getSequence() == seq) {
+                    batch.add(e);
+                    seq++;
+                }
+                if (!batch.isEmpty()) {
+                    try {
+                        subscriber.onEvents(batch);
+                    } catch (Throwable ex) {
+                        // Errors too (an assertion, a deep recursion): a dead consumer would stop the ring
+                        failures.increment();  // the events are not offered again
+                    }
+                    batch.clear();
+                    read.set(seq);  // frees the slots for producers
+                    continue;
+                }
+                if (stopped && seq >= next.get()) return;  // closed and drained
+                parked.set(true);
+                e = ring.get((int) seq & mask);
+                if (!stopped && (e == null || e.getSequence() != seq)) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked.set(false);
+            }
+        }
+
+        void wake() {
+            if (parked.get() && parked.compareAndSet(true, false)) LockSupport.unpark(thread);
+        }
+    }
+
+    // Starts delivering events published from now on to the subscriber
+    public void subscribe(String name, Subscriber subscriber) {
+        if (closed) throw new IllegalStateException("Event bus closed");
+        Consumer c = new Consumer(name, subscriber, next.get());
+        consumers.add(c);
+        gatingCache = -1;
+        c.thread.start();
+    }
+
+    boolean hasSubscribers() {
+        return !consumers.isEmpty();
+    }
+
+    // Returns false once the bus is closed, or when nobody subscribes (the event is not even built)
+    public boolean publish(BookingEvent.Type type, Booking booking, Booking related, User user, String vehicleType) {
+        if (closed || consumers.isEmpty()) return false;
+        long seq = next.getAndIncrement();
+        awaitCapacity(seq);
+        ring.set((int) seq & mask, new BookingEvent(type, seq, booking, related, user, vehicleType));
+        for (Consumer c : consumers) {
+            c.wake();
+        }
+        return true;
+    }
+
+    // Slot seq reuses the one of seq - capacity, which every consumer must have read
+    private void awaitCapacity(long seq) {
+        long wrap = seq - mask - 1;
+        if (wrap < 0) return;
+        long gate = gatingCache;
+        if (gate > wrap) return;
+        boolean stalled = false;
+        for (int spins = 0; ; spins++) {
+            gate = Long.MAX_VALUE;
+            for (Consumer c : consumers) {
+                if (c.thread.getState() == Thread.State.TERMINATED && !c.stopped) {
+                    consumers.remove(c);  // died anyway; waiting for it would block every publisher for good
+                    continue;
+                }
+                gate = Math.min(gate, c.read.get());
+            }
+            if (gate == Long.MAX_VALUE) gate = seq + 1;  // everyone unsubscribed meanwhile
+            gatingCache = gate;
+            if (gate > wrap) return;
+            if (!stalled) {
+                stalled = true;
+                stalls.increment();
+            }
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    public long getPublished() {
+        return next.get();
+    }
+
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    // Events published but not yet handled by the slowest subscriber
+    public long getBacklog() {
+        long end = next.get();
+        long lag = 0;
+        for (Consumer c : consumers) {
+            lag = Math.max(lag, end - c.read.get());
+        }
+        return lag;
+    }
+
+    // Stops taking events, lets every subscriber finish what was published and waits for them
+    @Override
+    public void close() {
+        closed = true;
+        for (Consumer c : consumers) {
+            c.stopped = true;
+            LockSupport.unpark(c.thread);
+        }
+        for (Consumer c : consumers) {
+            try {
+                c.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.chitkara.parking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Releases bookings when their exit time passes, so a finished or overstayed booking does not hold its slot
+// until someone cancels it. Every open booking has an entry in a DelayQueue ordered on timeOut; one daemon
+// thread sleeps until the earliest entry is due, so the cost follows the bookings that expire, not the number held.
+//
+// Entries are never removed: when one fires, ParkingSystem.expire() checks the booking again and ignores it if it
+// was closed meanwhile, or has it rescheduled if its exit time moved later. An earlier exit time is scheduled anew.
+public class ExpiryScheduler {
+
+    private static class Entry implements Delayed {
+        final int bookingId;
+        final LocalDateTime due;
+
+        Entry(int bookingId, LocalDateTime due) {
+            this.bookingId = bookingId;
+            this.due = due;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            // Wall-clock times, like everything else in the system
+            return unit.convert(Duration.between(LocalDateTime.now(), due));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return due.compareTo(((Entry) other).due);
+        }
+    }
+
+    private final ParkingSystem ps;
+    private final DelayQueue<Entry> queue = new DelayQueue<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    ExpiryScheduler(ParkingSystem ps) {
+        this.ps = ps;
+    }
+
+    // Booking will be looked at again once its current exit time has passed; ignored while stopped
+    // so an engine that never starts expiry (tools, benchmarks) does not collect entries
+    void schedule(Booking b) {
+        if (!running) return;
+        queue.add(new Entry(b.getBookingId(), b.getTimeOut()));
+    }
+
+    public synchronized void start() {
+        if (worker != null) return;
+        running = true;
+        worker = new Thread(this::run, "booking-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Returns once an expiry already in progress has finished, so the caller can save or close the journal
+    public synchronized void stop() {
+        if (worker == null) return;
+        // Wake the worker with an entry that is already due rather than interrupting it:
+        // an interrupt in the middle of a journal write would close the journal's FileChannel
+        running = false;
+        queue.clear();
+        queue.add(new Entry(-1, LocalDateTime.MIN));
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    private void run() {
+        while (running) {
+            Entry e;
+            try {
+                e = queue.take();
+            } catch (InterruptedException ie) {
+                return;
+            }
+            if (e.bookingId < 0) continue;  // stop() wake-up
+            try {
+                ps.expire(e.bookingId, LocalDateTime.now());
+            } catch (Throwable ex) {
+                // e.g. the journal failed, or an Error in a subscriber; this thread is the only one expiring
+                // bookings, so it must not die: count it and put the entry back to be retried
+                ps.getMetrics().expiryFailures.increment();
+                queue.add(new Entry(e.bookingId, LocalDateTime.now().plusSeconds(30)));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.chitkara.parking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+// One streaming pass over a bookings file (bookings.txt format), or over every segment of a BookingArchive
+// directory, into an AnalyticsReport. Lines are read lazily and folded into per-thread reports that are
+// merged at the end, so the archive is never held in memory; with parallel set the lines are split across
+// the common pool.
+// Only finished stays count: reservations, cancellations and bookings whose exit time is still ahead are skipped.
+// Fees are taken from the file, as charged at the time.
+public class HistoryAnalyzer {
+
+    public static AnalyticsReport analyze(Path bookingsFile, List<ParkingSlot> lot, boolean parallel) throws IOException {
+        Map<Integer, ParkingSlot> slotsById = new HashMap<>();
+        for (ParkingSlot s : lot) slotsById.put(s.getSlotId(), s);
+        LocalDateTime now = LocalDateTime.now();
+
+        try (Stream<String> lines = lines(bookingsFile)) {
+            Stream<String> source = parallel ? lines.parallel() : lines;
+            return source.collect(Collector.of(
+                    AnalyticsReport::new,
+                    (report, line) -> addLine(report, line, slotsById, now),
+                    AnalyticsReport::merge,
+                    Collector.Characteristics.UNORDERED));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Stream<String> lines(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return Files.lines(path, StandardCharsets.UTF_8);
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(path)) {
+            segments = files.filter(f -> f.getFileName().toString().endsWith(".csv")).sorted().toList();
+        }
+        return segments.stream().flatMap(f -> {
+            try {
+                return Files.lines(f, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void addLine(AnalyticsReport report, String line, Map<Integer, ParkingSlot> slotsById, LocalDateTime now) {
+        if (line.isBlank()) return;
+        try {
+            String[] p = RecordCodec.split(line);
+            if (p.length < 8) return;  // Skip malformed lines
+            if (p.length > 8 && (p[8].trim().equals(BookingStatus.RESERVED.name()) || p[8].trim().equals("CANCELLED"))) return;
+            ParkingSlot slot = slotsById.get(Integer.parseInt(p[4].trim()));
+            if (slot == null) return;
+            LocalDateTime out = LocalDateTime.parse(p[6].trim());
+            if (out.isAfter(now)) return;
+            report.addStay(slot.getFloor(), slot.getType(), LocalDateTime.parse(p[5].trim()), out,
+                    Math.round(Double.parseDouble(p[7].trim()) * 100));
+        } catch (RuntimeException e) {
+            // Skip malformed lines
+        }
+    }
+
+    // Usage: HistoryAnalyzer [bookings.txt | archive] [--parallel]; slot floors and types come from the same
+    // lot file Main uses (-Dparking.topology, default lot.txt), or the built-in lot without one
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 && !args[0].startsWith("--") ? args[0] : "bookings.txt");
+        boolean parallel = List.of(args).contains("--parallel");
+        AnalyticsReport report = analyze(file, Main.loadTopology().getSlots(), parallel);
+        Main.printReport(report);
+    }
+}
@@ -0,0 +1,26 @@
+package com.chitkara.parking;
+
+import java.util.List;
+
+// One page of an archive query; pass getNextPageToken() back to continue, null once there is nothing more
+public class HistoryPage {
+    private final List<ArchivedStay> stays;
+    private final String nextPageToken;
+
+    HistoryPage(List<ArchivedStay> stays, String nextPageToken) {
+        this.stays = stays;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<ArchivedStay> getStays() {
+        return stays;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasMore() {
+        return nextPageToken != null;
+    }
+}
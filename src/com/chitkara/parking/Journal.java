@@ -0,0 +1,277 @@
+package com.chitkara.parking;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Append-only write-ahead log of ParkingSystem mutations, one CSV record per line, fields escaped by RecordCodec:
+//   B,id,name,vehicle,contact,slotId,timeIn,timeOut,status[,fee]
+//                                                     booking created (also used for waitlist promotion);
+//                                                     status is RESERVED, ACTIVE or CLOSED, ACTIVE if missing;
+//                                                     a CLOSED one carries the fee charged, in paise
+//   A,id                                              advance reservation checked in
+//   C,id                                              booking cancelled
+//   V,id,vehicle                                      vehicle number changed
+//   T,id,timeOut[,fee]                                exit time changed; fee (paise) re-charged for a closed stay
+//   U,id,vehicle,timeOut[,fee]                        vehicle and exit time changed together; fee as for T
+//   X,id,timeOut[,fee]                                early exit, slot released, fee (paise) charged
+//                                                     (older T and X records: fee from the tariff at replay)
+//   W,name,vehicle,contact,type,priority,joinedAt[,stay]
+//                                                     user joined the waitlist, asking for an ISO-8601 stay if given
+//                                                     (older records: Car, REGULAR, replay time)
+//   P,vehicle                                         vehicle left the waitlist, promoted or withdrawn
+//                                                     (older records: bare P, head of the single queue)
+//   N,nextId                                          booking id counter (written by snapshots)
+// Each record is written straight to the file; fsync is batched every syncEvery records (group commit).
+// Replay stops with an IOException at the first record it cannot apply, since skipping one would silently
+// lose a booking or a cancellation; only an unterminated last line (a crash mid-append) is dropped.
+public class Journal implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final int syncEvery;
+    private int unsynced = 0;
+
+    public Journal(Path path, int syncEvery) throws IOException {
+        this.path = path;
+        this.syncEvery = Math.max(1, syncEvery);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        dropTornTail();
+        channel.position(channel.size());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized void append(String record) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        if (++unsynced >= syncEvery) {
+            sync();
+        }
+    }
+
+    // Writes a batch of records with one write and at most one fsync
+    public synchronized void appendAll(List<String> records) throws IOException {
+        if (records.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+            sb.append(record).append('\n');
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        unsynced += records.size();
+        if (unsynced >= syncEvery) {
+            sync();
+        }
+    }
+
+    // Forces everything appended so far to disk
+    public synchronized void sync() throws IOException {
+        if (unsynced == 0) return;
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    // A crash mid-append can leave a partial last line; cut it off so new records start on a fresh line
+    private void dropTornTail() throws IOException {
+        long size = channel.size();
+        if (size == 0) return;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        long pos = size;
+        while (pos > 0) {
+            one.clear();
+            channel.read(one, pos - 1);
+            if (one.get(0) == '\n') break;
+            pos--;
+        }
+        if (pos < size) {
+            channel.truncate(pos);
+        }
+    }
+
+    // --- Record encoding ---
+
+    static String booked(Booking b) {
+        User u = b.getUser();
+        if (b.isClosed()) {
+            return RecordCodec.join("B", b.getBookingId(), u.getName(), u.getVehicleNumber(), u.getContact(),
+                    b.getSlot().getSlotId(), b.getTimeIn(), b.getTimeOut(), b.getStatus(), b.getFeePaise());
+        }
+        return RecordCodec.join("B", b.getBookingId(), u.getName(), u.getVehicleNumber(), u.getContact(),
+                b.getSlot().getSlotId(), b.getTimeIn(), b.getTimeOut(), b.getStatus());
+    }
+
+    static String activated(int id) {
+        return RecordCodec.join("A", id);
+    }
+
+    static String cancelled(int id) {
+        return RecordCodec.join("C", id);
+    }
+
+    static String vehicleChanged(int id, String vehicle) {
+        return RecordCodec.join("V", id, vehicle);
+    }
+
+    static String exitTimeChanged(int id, LocalDateTime out) {
+        return RecordCodec.join("T", id, out);
+    }
+
+    // A closed stay's new exit time, with the fee it is now charged
+    static String exitTimeChanged(int id, LocalDateTime out, long feePaise) {
+        return RecordCodec.join("T", id, out, feePaise);
+    }
+
+    static String updated(int id, String vehicle, LocalDateTime out) {
+        return RecordCodec.join("U", id, vehicle, out);
+    }
+
+    static String updated(int id, String vehicle, LocalDateTime out, long feePaise) {
+        return RecordCodec.join("U", id, vehicle, out, feePaise);
+    }
+
+    static String exited(int id, LocalDateTime out, long feePaise) {
+        return RecordCodec.join("X", id, out, feePaise);
+    }
+
+    static String waitlisted(WaitlistEntry e) {
+        User u = e.getUser();
+        if (e.getStay() != null) {
+            return RecordCodec.join("W", u.getName(), u.getVehicleNumber(), u.getContact(),
+                    e.getVehicleType(), e.getPriority(), e.getJoinedAt(), e.getStay());
+        }
+        return RecordCodec.join("W", u.getName(), u.getVehicleNumber(), u.getContact(),
+                e.getVehicleType(), e.getPriority(), e.getJoinedAt());
+    }
+
+    static String unwaitlisted(String vehicle) {
+        return RecordCodec.join("P", vehicle);
+    }
+
+    static String counter(int nextId) {
+        return RecordCodec.join("N", nextId);
+    }
+
+    // --- Recovery ---
+
+    // Re-applies every record in the file to the system, in order; returns the number of records applied.
+    // Throws IOException naming the line of the first record that cannot be applied.
+    public static int replay(Path path, ParkingSystem ps) throws IOException {
+        if (!Files.exists(path)) return 0;
+        boolean torn = endsTorn(path);
+        int count = 0;
+        int lineNo = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                lineNo++;
+                String next = reader.readLine();
+                if (!line.isBlank()) {
+                    try {
+                        if (apply(RecordCodec.split(line), ps)) count++;
+                    } catch (RuntimeException e) {
+                        if (next == null && torn) break;  // half-written when the process died
+                        throw new IOException("Bad record at " + path + ":" + lineNo + ": " + e.getMessage(), e);
+                    }
+                }
+                line = next;
+            }
+        }
+        return count;
+    }
+
+    private static boolean endsTorn(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() == 0) return false;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            ch.read(last, ch.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private static void fields(String[] p, int min, int max) {
+        if (p.length < min || p.length > max) {
+            throw new IllegalArgumentException(p[0] + " record with " + p.length + " fields");
+        }
+    }
+
+    // Fee in paise at index i, or Booking.OPEN for a record written before fees were journaled
+    private static long fee(String[] p, int i) {
+        if (p.length <= i) return Booking.OPEN;
+        long fee = Long.parseLong(p[i]);
+        if (fee < 0) throw new IllegalArgumentException("Negative fee " + fee);
+        return fee;
+    }
+
+    private static boolean apply(String[] p, ParkingSystem ps) {
+        switch (p[0]) {
+            case "B" -> {
+                fields(p, 8, 10);
+                ps.restoreBooking(Integer.parseInt(p[1]), ps.getCustomers().intern(p[2], p[3], p[4]),
+                        Integer.parseInt(p[5]), LocalDateTime.parse(p[6]), LocalDateTime.parse(p[7]),
+                        p.length > 8 ? BookingStatus.valueOf(p[8]) : BookingStatus.ACTIVE, fee(p, 9));
+            }
+            case "A" -> {
+                fields(p, 2, 2);
+                ps.applyActivate(Integer.parseInt(p[1]));
+            }
+            case "C" -> {
+                fields(p, 2, 2);
+                ps.applyCancel(Integer.parseInt(p[1]));
+            }
+            case "V" -> {
+                fields(p, 3, 3);
+                ps.applyVehicleChange(Integer.parseInt(p[1]), p[2]);
+            }
+            case "T" -> {
+                fields(p, 3, 4);
+                ps.applyExitTime(Integer.parseInt(p[1]), LocalDateTime.parse(p[2]), fee(p, 3));
+            }
+            case "U" -> {
+                fields(p, 4, 5);
+                ps.applyUpdate(Integer.parseInt(p[1]), p[2], LocalDateTime.parse(p[3]), fee(p, 4));
+            }
+            case "X" -> {
+                fields(p, 3, 4);
+                ps.applyEarlyExit(Integer.parseInt(p[1]), LocalDateTime.parse(p[2]), fee(p, 3));
+            }
+            case "W" -> {
+                fields(p, 4, 8);
+                VehicleType type = VehicleType.find(p.length > 4 ? p[4] : "Car");
+                if (type == null) return false;  // a type the lot no longer has
+                ps.applyWaitlistAdd(new WaitlistEntry(ps.getCustomers().intern(p[1], p[2], p[3]), type,
+                        p.length > 5 ? WaitlistPriority.valueOf(p[5]) : WaitlistPriority.REGULAR,
+                        p.length > 6 ? LocalDateTime.parse(p[6]) : LocalDateTime.now(),
+                        p.length > 7 ? Duration.parse(p[7]) : null));
+            }
+            case "P" -> {
+                fields(p, 1, 2);
+                ps.applyWaitlistRemove(p.length > 1 ? p[1] : null);
+            }
+            case "N" -> {
+                fields(p, 2, 2);
+                ps.applyBookingCounter(Integer.parseInt(p[1]));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+}
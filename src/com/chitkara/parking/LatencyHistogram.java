@@ -0,0 +1,69 @@
+package com.chitkara.parking;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// HDR-style latency histogram in nanoseconds: log-linear buckets, 16 per power of two, so any value is
+// counted to within about 6%. record() is one array increment and no allocation; safe from any thread.
+// Values from 0 to about 2^40 ns (18 minutes) are bucketed; anything longer lands in the last bucket.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;               // buckets per power of two
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Values below SUB get a bucket each; above, the top SUB_BITS bits after the leading one pick the bucket
+    private static int index(long v) {
+        if (v < SUB) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((v >>> shift) & (SUB - 1));
+    }
+
+    // Upper bound of a bucket, the value reported for it
+    private static long highestIn(int index) {
+        if (index < SUB) return index;
+        int shift = index / SUB - 1;
+        long sub = index % SUB;
+        return ((SUB + sub + 1) << shift) - 1;
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    // Latency at the given quantile (0.5 = median, 0.99 = p99), in the requested unit; 0 when empty
+    public long percentile(double quantile, TimeUnit unit) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return unit.convert(Math.min(highestIn(i), max.get()), TimeUnit.NANOSECONDS);
+        }
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long max(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+}
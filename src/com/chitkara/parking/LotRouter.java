@@ -0,0 +1,107 @@
+package com.chitkara.parking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Routes requests to independent lots by lot id. Each lot is its own partition: a ParkingSystem with its
+// own locks, journal and files, so lots never contend with each other. Questions about every lot
+// (nearest lot with a free slot, where is this vehicle) fan out over the lots in parallel and merge.
+public class LotRouter {
+    private final Map<String, ParkingLot> lots = new ConcurrentHashMap<>();
+
+    public void addLot(ParkingLot lot) {
+        if (lots.putIfAbsent(lot.getId(), lot) != null) {
+            throw new IllegalArgumentException("Duplicate lot id: " + lot.getId());
+        }
+    }
+
+    // Creates a lot whose files live in root/<id>/ and loads whatever that directory already holds
+    public ParkingLot openLot(String id, double x, double y, List<ParkingSlot> slots, Path root) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(id));
+        ParkingSystem ps = new ParkingSystem(slots, dir);
+        ps.setArchive(new BookingArchive(dir.resolve("archive")));
+        ps.loadBookingsFromFile();
+        ps.loadWaitlistFromFile();
+        ParkingLot lot = new ParkingLot(id, x, y, ps);
+        addLot(lot);
+        return lot;
+    }
+
+    public ParkingLot getLot(String lotId) {
+        return lots.get(lotId);
+    }
+
+    public Collection<ParkingLot> getLots() {
+        return Collections.unmodifiableCollection(lots.values());
+    }
+
+    // --- Routed operations ---
+
+    public BookingResult bookSlot(String lotId, User u, LocalDateTime in, LocalDateTime out, String vehicleType) {
+        ParkingLot lot = lots.get(lotId);
+        if (lot == null) return BookingResult.error(ResultCode.LOT_NOT_FOUND);
+        return lot.getSystem().bookSlot(u, in, out, vehicleType);
+    }
+
+    public BookingResult cancelBooking(String lotId, int bookingId) {
+        ParkingLot lot = lots.get(lotId);
+        if (lot == null) return BookingResult.error(ResultCode.LOT_NOT_FOUND);
+        return lot.getSystem().cancelBooking(bookingId);
+    }
+
+    // --- Cross-lot queries ---
+
+    // Closest lot to (x, y) that has a free slot of the type right now, or null
+    public ParkingLot nearestWithFreeSlot(String vehicleType, double x, double y) {
+        return lots.values().parallelStream()
+                .filter(lot -> lot.getSystem().getFreeSlotCount(vehicleType) > 0)
+                .min(Comparator.comparingDouble(lot -> lot.distanceTo(x, y)))
+                .orElse(null);
+    }
+
+    // Lot id -> the vehicle's latest booking there, for every lot that knows the vehicle
+    public Map<String, Booking> findVehicle(String vehicleNumber) {
+        return lots.values().parallelStream()
+                .map(lot -> Map.entry(lot.getId(), Optional.ofNullable(lot.getSystem().findBookingByVehicle(vehicleNumber))))
+                .filter(e -> e.getValue().isPresent())
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get(), (a, b) -> a, TreeMap::new));
+    }
+
+    // Lot id -> free slots of the type
+    public Map<String, Integer> freeSlots(String vehicleType) {
+        return lots.values().parallelStream()
+                .collect(Collectors.toMap(ParkingLot::getId,
+                        lot -> lot.getSystem().getFreeSlotCount(vehicleType),
+                        Integer::sum, TreeMap::new));
+    }
+
+    // Writes every lot's text files, in parallel
+    public void saveAll() throws IOException {
+        try {
+            lots.values().parallelStream().forEach(lot -> {
+                try {
+                    lot.getSystem().saveBookingsToFile();
+                    lot.getSystem().saveWaitlistToFile();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void startExpiry() {
+        lots.values().forEach(lot -> lot.getSystem().startExpiry());
+    }
+
+    public void stopExpiry() {
+        lots.values().forEach(lot -> lot.getSystem().stopExpiry());
+    }
+}
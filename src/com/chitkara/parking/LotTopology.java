@@ -0,0 +1,170 @@
+package com.chitkara.parking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// A lot's slots and entrances, read from a text file instead of hard-coded. One line per slot or range of slots,
+// entrance or lift:
+//   slotId[-lastSlotId],floor,type[,distance[,x,y]]
+//   entrance,name,floor,x,y
+//   lift,x,y
+// e.g.
+//   101,1,Car,10          one Car slot on floor 1, 10 m from the entrance
+//   201-260,2,Bike,,0,10  sixty Bike slots on floor 2 in a row starting at (0,10), one bay (3 m) apart along x
+//   entrance,North,1,0,0
+//   lift,20,5
+// Coordinates are metres on the slot's floor; '#' starts a comment. Slot ids must be unique.
+//
+// Every slot gets a walking distance to each entrance, worked out once here: along the aisles (|dx| + |dy|)
+// on the same floor, otherwise through the lift that makes the trip shortest, plus FLOOR_METRES per floor.
+// A lot without entrance lines has one entrance, "Main", at (0,0) on floor 1; a slot without coordinates
+// keeps its distance column (default 0), which needs a lot with a single entrance.
+public class LotTopology {
+    public static final int FLOOR_METRES = 10;  // what one floor by lift or ramp is worth in walking metres
+    public static final int BAY_WIDTH = 3;      // metres between neighbouring slots of a range
+
+    private static class SlotSpec {
+        final int slotId, floor, distance, x, y;
+        final VehicleType type;
+        final boolean located;
+
+        SlotSpec(int slotId, int floor, VehicleType type, int distance, boolean located, int x, int y) {
+            this.slotId = slotId;
+            this.floor = floor;
+            this.type = type;
+            this.distance = distance;
+            this.located = located;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class Point {
+        final String name;
+        final int floor, x, y;
+
+        Point(String name, int floor, int x, int y) {
+            this.name = name;
+            this.floor = floor;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private final List<ParkingSlot> slots;
+    private final List<String> entrances;
+
+    private LotTopology(List<ParkingSlot> slots, List<String> entrances) {
+        this.slots = slots;
+        this.entrances = entrances;
+    }
+
+    // The given slots with one entrance, e.g. the built-in lot or a generated one
+    public static LotTopology of(List<ParkingSlot> slots) {
+        return new LotTopology(slots, List.of("Main"));
+    }
+
+    public static LotTopology load(Path file) throws IOException {
+        List<SlotSpec> specs = new ArrayList<>();
+        List<Point> entrances = new ArrayList<>();
+        List<Point> lifts = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                if (line.isBlank()) continue;
+                String[] p = line.split(",");
+                for (int i = 0; i < p.length; i++) {
+                    p[i] = p[i].trim();
+                }
+                try {
+                    if (p[0].equalsIgnoreCase("entrance")) {
+                        if (p.length < 5) throw new IllegalArgumentException("expected entrance,name,floor,x,y");
+                        entrances.add(new Point(p[1], Integer.parseInt(p[2]), Integer.parseInt(p[3]), Integer.parseInt(p[4])));
+                    } else if (p[0].equalsIgnoreCase("lift")) {
+                        if (p.length < 3) throw new IllegalArgumentException("expected lift,x,y");
+                        lifts.add(new Point("lift", 0, Integer.parseInt(p[1]), Integer.parseInt(p[2])));
+                    } else {
+                        if (p.length < 3) throw new IllegalArgumentException("expected slotId,floor,type[,distance[,x,y]]");
+                        int dash = p[0].indexOf('-');
+                        int first = Integer.parseInt(dash < 0 ? p[0] : p[0].substring(0, dash).trim());
+                        int last = dash < 0 ? first : Integer.parseInt(p[0].substring(dash + 1).trim());
+                        int floor = Integer.parseInt(p[1]);
+                        VehicleType type = VehicleType.of(p[2]);
+                        int distance = p.length > 3 && !p[3].isEmpty() ? Integer.parseInt(p[3]) : 0;
+                        boolean located = p.length > 5;
+                        int x = located ? Integer.parseInt(p[4]) : 0;
+                        int y = located ? Integer.parseInt(p[5]) : 0;
+                        if (last < first) throw new IllegalArgumentException("empty range " + p[0]);
+                        for (int id = first; id <= last; id++) {
+                            if (!seen.add(id)) throw new IllegalArgumentException("duplicate slot id " + id);
+                            specs.add(new SlotSpec(id, floor, type, distance, located, x + (id - first) * BAY_WIDTH, y));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (specs.isEmpty()) throw new IOException(file + ": no slots defined");
+        if (entrances.isEmpty()) entrances.add(new Point("Main", 1, 0, 0));
+
+        List<ParkingSlot> slots = new ArrayList<>(specs.size());
+        for (SlotSpec s : specs) {
+            int[] distances = new int[entrances.size()];
+            if (s.located) {
+                for (int e = 0; e < distances.length; e++) {
+                    distances[e] = walk(entrances.get(e), s, lifts);
+                }
+            } else if (distances.length == 1) {
+                distances[0] = s.distance;
+            } else {
+                throw new IOException(file + ": slot " + s.slotId + " needs x,y coordinates in a lot with several entrances");
+            }
+            slots.add(new ParkingSlot(s.slotId, s.floor, s.type, distances));
+        }
+        List<String> names = new ArrayList<>();
+        for (Point e : entrances) {
+            names.add(e.name);
+        }
+        return new LotTopology(slots, names);
+    }
+
+    private static int walk(Point entrance, SlotSpec slot, List<Point> lifts) {
+        if (entrance.floor == slot.floor) {
+            return Math.abs(entrance.x - slot.x) + Math.abs(entrance.y - slot.y);
+        }
+        int floors = Math.abs(entrance.floor - slot.floor) * FLOOR_METRES;
+        if (lifts.isEmpty()) {
+            // Ramp next to the entrance
+            return Math.abs(entrance.x - slot.x) + Math.abs(entrance.y - slot.y) + floors;
+        }
+        int best = Integer.MAX_VALUE;
+        for (Point lift : lifts) {
+            int d = Math.abs(entrance.x - lift.x) + Math.abs(entrance.y - lift.y) + floors
+                    + Math.abs(lift.x - slot.x) + Math.abs(lift.y - slot.y);
+            best = Math.min(best, d);
+        }
+        return best;
+    }
+
+    public List<ParkingSlot> getSlots() {
+        return slots;
+    }
+
+    // Entrance names; a slot's distances are indexed the same way
+    public List<String> getEntrances() {
+        return entrances;
+    }
+}
@@ -1,10 +1,68 @@
 package com.chitkara.parking;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Scanner;
+import javax.management.JMException;
 
+// Console front end: reads the menu, calls the headless ParkingSystem API and prints its results.
+// Persistence is chosen with -Dparking.persistence:
+//   csv (default)  rewrite bookings.txt / waitlist.txt in the background after each batch of changes
+//   journal        append each change to journal.<n>.log and checkpoint into snapshot.dat;
+//                  the text files are only read until the first snapshot exists.
+//                  -Dparking.journal.syncEvery=N fsyncs once per N records (default 1),
+//                  -Dparking.snapshot.intervalSeconds=S checkpoints every S seconds (default 300)
+// -Dparking.storage=binary swaps the text images for the binary format: parking.bin in csv mode,
+// snapshot.bin in journal mode. Existing text files are still read when no binary file exists yet;
+// `java com.chitkara.parking.BinaryStore` converts them up front.
+// -Dparking.dataDir=<dir> keeps all of these files in one lot's directory (default: the working directory);
+// several lots in one process are served through LotRouter instead.
+// The slots come from lot.txt when present (-Dparking.topology=<file>, format in LotTopology),
+// otherwise the built-in four-slot lot is used.
+// Fees follow tariffs.txt when present (-Dparking.tariffs=<file>, format in PricingEngine).
+// Bookings are released automatically once their exit time passes (see ExpiryScheduler).
+// Closed and cancelled bookings move to archive/ in the data directory (see BookingArchive) and are
+// browsed with option 17; closed rows left in an older bookings.txt are moved there on the first start.
+// How long stays last is learned from that history (the last LEARN_DAYS days) and from every stay that ends;
+// option 18 shows the resulting capacity forecast. -Dparking.overbook=<share> (e.g. 0.1) lets a full vehicle
+// type take up to that share of its slots in extra bookings, first in line for the next freed slot, when the
+// forecast expects one within -Dparking.overbook.minutes (default 30).
+// -Dparking.http.port=<port> also serves the lot over HTTP/JSON next to the menu (see ParkingServer), on the
+// loopback interface unless -Dparking.http.host=<address> says otherwise;
+// use journal persistence for many clients, since csv mode rewrites the whole text files for every batch.
 public class Main {
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final boolean JOURNAL_MODE = "journal".equalsIgnoreCase(System.getProperty("parking.persistence", "csv"));
+    private static final boolean BINARY = "binary".equalsIgnoreCase(System.getProperty("parking.storage", "text"));
+    private static final Path DATA_DIR = Path.of(System.getProperty("parking.dataDir", "."));
+    private static final Path BINARY_FILE = DATA_DIR.resolve("parking.bin");
+    private static SnapshotManager snapshots;  // journal mode only
+    private static ParkingServer server;  // only with -Dparking.http.port
+    private static final int HISTORY_PAGE = 10;
+    private static final int LEARN_DAYS = 90;
+    private static final int[] FORECAST_MINUTES = {15, 30, 60, 120};
+
     public static void main(String[] args) {
-        ParkingSystem ps = new ParkingSystem();
+        ParkingSystem ps = new ParkingSystem(loadTopology(), DATA_DIR);
+        loadTariffs(ps);
+        openArchive(ps);
+        configureForecast(ps);
+        try {
+            ParkingMetrics.register(ps);  // jconsole: com.chitkara.parking:type=ParkingMetrics
+        } catch (JMException e) {
+            System.out.println("⚠️ Metrics not published over JMX: " + e.getMessage());
+        }
+        load(ps);
+        subscribe(ps);
+        ps.startExpiry();  // finished bookings from before the restart are released straight away
+        startServer(ps);
         Scanner sc = new Scanner(System.in);
         while (true) {
             System.out.println("\n--- Parking Lot Menu ---");
@@ -17,10 +75,19 @@ public class Main {
             System.out.println("7. View Waitlist");
             System.out.println("8. Exit");
             System.out.println("9. Check Total Fare"); // ✅ NEW FEATURE
+            System.out.println("10. Reserve a Slot in Advance");
+            System.out.println("11. Check In Reservation");
+            System.out.println("12. Leave Waitlist");
+            System.out.println("13. View Analytics");
+            System.out.println("14. View Metrics");
+            System.out.println("15. Batch Booking from File");
+            System.out.println("16. Bulk Check-Out");
+            System.out.println("17. View Booking History");
+            System.out.println("18. View Capacity Forecast");
             System.out.print("Choose an option: ");
             int choice = sc.nextInt();
             switch (choice) {
-                case 1 -> ps.viewAvailableSlots();
+                case 1 -> viewAvailableSlots(ps);
                 case 2 -> {
                     sc.nextLine();  // Consume newline
                     System.out.print("Enter your name: ");
@@ -35,38 +102,38 @@ public class Main {
                     LocalDateTime in = LocalDateTime.now();
                     LocalDateTime out = in.plusHours(2);
 
+                    int entrance = askEntrance(ps, sc);
+
                     User u = new User(name, vehicle, contact);
-                    ps.bookSlot(u, in, out, type, sc);
-                    ps.saveBookingsToFile();
-                    ps.saveWaitlistToFile();
+                    bookSlot(ps, u, in, out, type, entrance, sc);
                 }
                 case 3 -> {
                     System.out.print("Enter Booking ID to cancel: ");
                     int cancelId = sc.nextInt();
-                    ps.cancelBooking(cancelId);
-                    ps.saveBookingsToFile();
-                    ps.saveWaitlistToFile();
+                    cancelBooking(ps, cancelId);
                 }
                 case 4 -> {
                     System.out.print("Enter Booking ID to update: ");
                     int updId = sc.nextInt();
                     sc.nextLine();  // consume newline
-                    ps.updateBooking(updId, sc);
-                    ps.saveBookingsToFile();
-                    ps.saveWaitlistToFile();
+                    updateBooking(ps, updId, sc);
                 }
-                case 5 -> ps.viewAllBookings();
+                case 5 -> viewAllBookings(ps);
                 case 6 -> {
                     sc.nextLine();  // Consume newline
                     System.out.print("Enter your vehicle number: ");
                     String vehicleNumber = sc.nextLine();
-                    ps.findSlotByVehicle(vehicleNumber);
+                    findSlotByVehicle(ps, vehicleNumber);
                 }
-                case 7 -> ps.viewWaitlist();
+                case 7 -> viewWaitlist(ps);
                 case 8 -> {
                     System.out.println("Goodbye!");
-                    ps.saveBookingsToFile();
-                    ps.saveWaitlistToFile();
+                    if (server != null) server.stop();
+                    ps.stopExpiry();
+                    ps.getEvents().close();  // pending notifications and saves run first
+                    save(ps);
+                    closeJournal();
+                    closeArchive(ps);
                     sc.close();
                     return;
                 }
@@ -74,10 +141,639 @@ public class Main {
                     sc.nextLine();  // Consume newline
                     System.out.print("Enter vehicle number: ");
                     String vehicleNumber = sc.nextLine();
-                    ps.checkFareByVehicleNumber(vehicleNumber);
+                    checkFareByVehicleNumber(ps, vehicleNumber);
+                }
+                case 10 -> {
+                    sc.nextLine();  // Consume newline
+                    System.out.print("Enter your name: ");
+                    String name = sc.nextLine();
+                    System.out.print("Enter vehicle type (Car/Bike): ");
+                    String type = sc.nextLine().trim();
+                    System.out.print("Enter vehicle number: ");
+                    String vehicle = sc.nextLine();
+                    System.out.print("Enter contact: ");
+                    String contact = sc.nextLine();
+                    System.out.print("Enter entry time (yyyy-MM-dd HH:mm): ");
+                    LocalDateTime in = LocalDateTime.parse(sc.nextLine().trim(), FMT);
+                    System.out.print("Enter exit time (yyyy-MM-dd HH:mm): ");
+                    LocalDateTime out = LocalDateTime.parse(sc.nextLine().trim(), FMT);
+
+                    reserveSlot(ps, new User(name, vehicle, contact), in, out, type);
+                }
+                case 11 -> {
+                    System.out.print("Enter Booking ID to check in: ");
+                    int checkInId = sc.nextInt();
+                    checkIn(ps, checkInId);
+                }
+                case 12 -> {
+                    sc.nextLine();  // Consume newline
+                    System.out.print("Enter vehicle number: ");
+                    String vehicleNumber = sc.nextLine();
+                    leaveWaitlist(ps, vehicleNumber);
+                }
+                case 13 -> printReport(ps.getAnalytics());
+                case 14 -> System.out.print("\n📈 Metrics\n" + ps.getMetrics().dump(ps));
+                case 15 -> {
+                    sc.nextLine();  // Consume newline
+                    System.out.print("Enter batch file (name,vehicle,contact,type,hours per line): ");
+                    batchBook(ps, Path.of(sc.nextLine().trim()));
+                }
+                case 16 -> {
+                    sc.nextLine();  // Consume newline
+                    System.out.print("Enter Booking IDs (comma-separated): ");
+                    bulkCheckOut(ps, sc.nextLine());
+                }
+                case 17 -> {
+                    sc.nextLine();  // Consume newline
+                    viewHistory(ps, sc);
+                }
+                case 18 -> {
+                    sc.nextLine();  // Consume newline
+                    System.out.print("Enter vehicle type (Car/Bike): ");
+                    viewForecast(ps, sc.nextLine().trim());
                 }
                 default -> System.out.println("Invalid option.");
             }
         }
     }
+
+    // Side effects of a change run off the caller's thread: the text or binary files are rewritten once per
+    // batch of changes (journal mode has logged them already), and expirations are announced on the console
+    private static void subscribe(ParkingSystem ps) {
+        if (!JOURNAL_MODE) ps.getEvents().subscribe("persistence", batch -> save(ps));
+        ps.getEvents().subscribe("notifications", batch -> {
+            for (BookingEvent e : batch) {
+                if (e.getType() != BookingEvent.Type.EXPIRED) continue;
+                Booking b = e.getBooking();
+                System.out.println("\n🔔 Booking " + b.getBookingId() + " (" + b.getUser().getVehicleNumber() +
+                        ") ended; slot " + b.getSlot().getSlotId() + (e.getRelated() == null ? " is free again."
+                        : " goes to " + e.getRelated().getUser().getDetails() + " from the waitlist."));
+            }
+        });
+    }
+
+    private static void startServer(ParkingSystem ps) {
+        Integer port = Integer.getInteger("parking.http.port");
+        if (port == null) return;
+        try {
+            // Loopback unless -Dparking.http.host names another interface: the API has no authentication
+            String host = System.getProperty("parking.http.host");
+            server = host == null ? new ParkingServer(ps, port)
+                    : new ParkingServer(ps, InetAddress.getByName(host), port);
+            server.start();
+            System.out.println("✅ Serving HTTP on port " + server.getPort() + ".");
+        } catch (IOException e) {
+            System.out.println("⚠️ HTTP server not started: " + e.getMessage());
+        }
+    }
+
+    // Shared with HistoryAnalyzer's command line, so both see the same slots
+    static LotTopology loadTopology() {
+        Path file = Path.of(System.getProperty("parking.topology", "lot.txt"));
+        if (!Files.exists(file)) return LotTopology.of(ParkingSystem.defaultLot());
+        try {
+            LotTopology lot = LotTopology.load(file);
+            System.out.println("✅ Loaded " + lot.getSlots().size() + " slots and " + lot.getEntrances().size() +
+                    " entrance(s) from " + file + ".");
+            return lot;
+        } catch (IOException e) {
+            System.out.println("⚠️ Error loading lot topology, using the built-in lot: " + e.getMessage());
+            return LotTopology.of(ParkingSystem.defaultLot());
+        }
+    }
+
+    // Asks which entrance the driver is at when the lot has more than one; returns its index
+    private static int askEntrance(ParkingSystem ps, Scanner sc) {
+        List<String> entrances = ps.getEntrances();
+        if (entrances.size() == 1) return 0;
+        System.out.print("Enter entrance (" + String.join("/", entrances) + "): ");
+        String name = sc.nextLine().trim();
+        for (int i = 0; i < entrances.size(); i++) {
+            if (entrances.get(i).equalsIgnoreCase(name)) return i;
+        }
+        System.out.println("⚠️ Unknown entrance, using " + entrances.get(0) + ".");
+        return 0;
+    }
+
+    private static void loadTariffs(ParkingSystem ps) {
+        Path file = Path.of(System.getProperty("parking.tariffs", "tariffs.txt"));
+        if (!Files.exists(file)) return;  // standard ₹20/hour
+        try {
+            ps.setPricing(PricingEngine.load(file));
+            System.out.println("✅ Loaded tariffs from " + file + ".");
+        } catch (IOException e) {
+            System.out.println("⚠️ Error loading tariffs, using ₹20/hour: " + e.getMessage());
+        }
+    }
+
+    private static void openArchive(ParkingSystem ps) {
+        try {
+            ps.setArchive(new BookingArchive(DATA_DIR.resolve("archive")));
+        } catch (IOException e) {
+            System.out.println("⚠️ Archive unavailable, closed bookings stay in memory: " + e.getMessage());
+        }
+    }
+
+    // Learns from archived stays before the text files load (their closed rows are learned as they load)
+    private static void configureForecast(ParkingSystem ps) {
+        try {
+            int learned = ps.learnFromArchive(LEARN_DAYS);
+            if (learned > 0) System.out.println("✅ Learned stay lengths from " + learned + " archived bookings.");
+        } catch (IOException e) {
+            System.out.println("⚠️ Error reading archive for forecasts: " + e.getMessage());
+        }
+        String share = System.getProperty("parking.overbook");
+        if (share == null) return;
+        try {
+            ps.setOverbooking(Double.parseDouble(share), Integer.getInteger("parking.overbook.minutes", 30));
+        } catch (IllegalArgumentException e) {
+            System.out.println("⚠️ Overbooking stays off: " + e.getMessage());
+        }
+    }
+
+    private static void closeArchive(ParkingSystem ps) {
+        BookingArchive archive = ps.getArchive();
+        if (archive == null) return;
+        try {
+            archive.close();
+        } catch (IOException e) {
+            System.out.println("⚠️ Error closing archive: " + e.getMessage());
+        }
+    }
+
+    private static void load(ParkingSystem ps) {
+        if (JOURNAL_MODE) {
+            snapshots = new SnapshotManager(ps, DATA_DIR, Integer.getInteger("parking.journal.syncEvery", 1), BINARY);
+            try {
+                if (snapshots.loadSnapshot()) {
+                    System.out.println("✅ Loaded snapshot with " + ps.getAllBookings().size() + " bookings.");
+                    replayJournal();
+                    return;
+                }
+            } catch (IOException e) {
+                // Starting from part of the state would hand out slots that are taken
+                System.out.println("❌ Error loading snapshot, not starting: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // No snapshot yet (or csv mode): start from the binary image if there is one, else the text files
+        if (BINARY && Files.exists(BINARY_FILE)) {
+            try {
+                System.out.println("✅ Loaded " + ps.loadFromBinary(BINARY_FILE) + " bookings.");
+                if (JOURNAL_MODE) replayJournal();
+                return;
+            } catch (IOException e) {
+                System.out.println("⚠️ Error loading bookings: " + e.getMessage());
+            }
+        }
+
+        List<String> skipped = new ArrayList<>();
+        try {
+            System.out.println("✅ Loaded " + ps.loadBookingsFromFile(DATA_DIR.resolve("bookings.txt"), skipped) + " bookings.");
+        } catch (IOException e) {
+            System.out.println("⚠️ Error loading bookings: " + e.getMessage());
+        }
+        try {
+            System.out.println("✅ Loaded " + ps.loadWaitlistFromFile(skipped) + " waitlist users.");
+        } catch (IOException e) {
+            System.out.println("⚠️ Error loading waitlist: " + e.getMessage());
+        }
+        for (String line : skipped) {
+            System.out.println("⚠️ Skipped unreadable line: " + line);
+        }
+        if (JOURNAL_MODE) replayJournal();
+    }
+
+    private static void replayJournal() {
+        try {
+            System.out.println("✅ Replayed " + snapshots.replayJournal() + " journal records.");
+        } catch (IOException e) {
+            System.out.println("❌ Error replaying journal, not starting: " + e.getMessage());
+            System.exit(1);
+        }
+        try {
+            snapshots.openJournal();
+            snapshots.startPeriodic(Long.getLong("parking.snapshot.intervalSeconds", 300));
+        } catch (IOException e) {
+            System.out.println("⚠️ Error opening journal: " + e.getMessage());
+        }
+    }
+
+    // Final checkpoint on exit, so the next start reads the snapshot and an empty tail
+    private static void closeJournal() {
+        if (snapshots == null) return;
+        try {
+            snapshots.close();
+        } catch (IOException e) {
+            System.out.println("⚠️ Error closing journal: " + e.getMessage());
+        }
+    }
+
+    // In journal mode every change is already on disk, so there is nothing to rewrite
+    private static void save(ParkingSystem ps) {
+        if (JOURNAL_MODE) return;
+        if (BINARY) {
+            try {
+                ps.saveToBinary(BINARY_FILE);
+            } catch (IOException e) {
+                System.out.println("⚠️ Error saving bookings: " + e.getMessage());
+            }
+            return;
+        }
+        try {
+            ps.saveBookingsToFile();
+        } catch (IOException e) {
+            System.out.println("⚠️ Error saving bookings: " + e.getMessage());
+        }
+        try {
+            ps.saveWaitlistToFile();
+        } catch (IOException e) {
+            System.out.println("⚠️ Error saving waitlist: " + e.getMessage());
+        }
+    }
+
+    private static void viewAvailableSlots(ParkingSystem ps) {
+        System.out.println("\n--- Available Parking Slots ---");
+        AvailabilitySnapshot snapshot = ps.getAvailability();  // one consistent view, however busy the gates are
+        if (snapshot.getFreeCount() == 0) {
+            System.out.println("No slots available at the moment.");
+            return;
+        }
+        for (AvailabilitySnapshot.Group g : snapshot.getGroups()) {
+            for (int slotId : g.getFreeSlotIds()) {
+                System.out.println("Slot ID: " + slotId +
+                        ", Floor: " + g.getFloor() +
+                        ", Type: " + g.getType());
+            }
+        }
+    }
+
+    private static void bookSlot(ParkingSystem ps, User u, LocalDateTime in, LocalDateTime out, String vehicleType,
+                                 int entrance, Scanner sc) {
+        BookingResult result = ps.bookSlot(u, in, out, vehicleType, entrance);
+        if (result.isSuccess()) {
+            System.out.println("Booking ID: " + result.getBooking().getBookingId() + " successfully created!");
+            return;
+        }
+        if (result.getCode() == ResultCode.OVERBOOKED) {
+            System.out.println("🕒 The lot is full, but a slot is expected to free up soon. You are number " +
+                    result.getPosition() + " in line" +
+                    (result.getEta() == null ? "." : " (expected around " + result.getEta().format(FMT) + ")."));
+            return;
+        }
+
+        if (!ps.hasSlotsFor(vehicleType)) {
+            System.out.println("⚠️ This lot has no slots for vehicle type " + vehicleType + ".");
+            return;
+        }
+        System.out.println("⚠️ No available slots for your vehicle type (" + vehicleType + ").");
+        System.out.print("Do you want to join the waitlist? (Y/N): ");
+        String input = sc.nextLine().trim();
+        if (input.equalsIgnoreCase("Y")) {
+            System.out.print("Do you hold a parking permit? (Y/N): ");
+            WaitlistPriority priority = sc.nextLine().trim().equalsIgnoreCase("Y") ? WaitlistPriority.PERMIT : WaitlistPriority.REGULAR;
+            if (ps.joinWaitlist(u, vehicleType, priority)) {
+                System.out.println("✅ You’ve been added to the waitlist.");
+                LocalDateTime eta = ps.waitlistEta(vehicleType);
+                if (eta != null) System.out.println("🕒 Expected wait: a slot around " + eta.format(FMT) + ".");
+            } else {
+                System.out.println("⚠️ Vehicle " + u.getVehicleNumber() + " is already on the waitlist.");
+            }
+        } else {
+            System.out.println("❌ Booking canceled. You are not added to waitlist.");
+        }
+    }
+
+    // Books every line of the file at once, from now for the given number of hours
+    private static void batchBook(ParkingSystem ps, Path file) {
+        List<BookingRequest> requests = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank()) continue;
+                String[] p = line.split(",");
+                if (p.length < 5) {
+                    System.out.println("⚠️ Skipping malformed line: " + line);
+                    continue;
+                }
+                User u = new User(p[0].trim(), p[1].trim(), p[2].trim());
+                requests.add(new BookingRequest(u, now, now.plusHours(Long.parseLong(p[4].trim())), p[3].trim()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("⚠️ Error reading batch file: " + e.getMessage());
+            return;
+        }
+        List<BookingResult> results = ps.bookSlots(requests);
+        int booked = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BookingResult r = results.get(i);
+            String vehicle = requests.get(i).getUser().getVehicleNumber();
+            if (r.isSuccess()) {
+                booked++;
+                System.out.println("✅ " + vehicle + ": Booking ID " + r.getBooking().getBookingId() + ", slot " + r.getBooking().getSlot().getSlotId());
+            } else {
+                System.out.println("⚠️ " + vehicle + ": " + r.getCode());
+            }
+        }
+        System.out.println(booked + " of " + results.size() + " bookings created.");
+    }
+
+    private static void bulkCheckOut(ParkingSystem ps, String idList) {
+        List<Integer> ids = new ArrayList<>();
+        try {
+            for (String id : idList.split(",")) {
+                if (!id.isBlank()) ids.add(Integer.parseInt(id.trim()));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ Invalid Booking ID: " + e.getMessage());
+            return;
+        }
+        List<BookingResult> results = ps.earlyExit(ids, LocalDateTime.now());
+        for (int i = 0; i < results.size(); i++) {
+            BookingResult r = results.get(i);
+            switch (r.getCode()) {
+                case OK -> {
+                    System.out.println("✅ Booking ID " + ids.get(i) + " checked out. Fee: ₹" + r.getBooking().getFee());
+                    printPromotion(r);
+                }
+                case BOOKING_NOT_FOUND -> System.out.println("⚠️ Booking ID " + ids.get(i) + " not found.");
+                case ALREADY_EXITED -> System.out.println("⚠️ Booking ID " + ids.get(i) + " has already exited.");
+                default -> System.out.println("⚠️ Booking ID " + ids.get(i) + ": " + r.getCode());
+            }
+        }
+    }
+
+    private static void reserveSlot(ParkingSystem ps, User u, LocalDateTime in, LocalDateTime out, String vehicleType) {
+        BookingResult result = ps.reserveSlot(u, in, out, vehicleType);
+        switch (result.getCode()) {
+            case OK -> System.out.println("✅ Booking ID: " + result.getBooking().getBookingId() + " reserved in slot " +
+                    result.getBooking().getSlot().getSlotId() + " from " + in.format(FMT) + " to " + out.format(FMT) + ".");
+            case INVALID_TIME -> System.out.println("⚠️ Error: Exit time must be after entry time.");
+            default -> System.out.println("⚠️ No " + vehicleType + " slot is free for that whole period.");
+        }
+    }
+
+    private static void checkIn(ParkingSystem ps, int id) {
+        BookingResult result = ps.checkIn(id);
+        switch (result.getCode()) {
+            case OK -> System.out.println("✅ Checked in. Please park in slot " + result.getBooking().getSlot().getSlotId() + ".");
+            case SLOT_OCCUPIED -> System.out.println("⚠️ Slot " + result.getBooking().getSlot().getSlotId() + " is still occupied. Please try again shortly.");
+            case ALREADY_EXITED -> System.out.println("⚠️ Error: Booking " + id + " is already closed.");
+            default -> System.out.println("⚠️ Booking ID " + id + " not found.");
+        }
+    }
+
+    private static void cancelBooking(ParkingSystem ps, int id) {
+        BookingResult result = ps.cancelBooking(id);
+        if (!result.isSuccess()) {
+            System.out.println("⚠️ Booking ID " + id + " not found.");
+            return;
+        }
+        System.out.println("✅ Booking " + id + " canceled. Slot " + result.getBooking().getSlot().getSlotId() + " is now free.");
+        printPromotion(result);
+    }
+
+    private static void updateBooking(ParkingSystem ps, int id, Scanner sc) {
+        Booking b = ps.getBooking(id);
+        if (b == null) {
+            System.out.println("⚠️ Booking ID " + id + " not found.");
+            return;
+        }
+
+        // Show current times
+        System.out.println("\n--- Update Booking ID " + id + " ---");
+        System.out.println("Current entry time: " + b.getTimeIn().format(FMT));
+        System.out.println("Current exit  time: " + b.getTimeOut().format(FMT));
+        System.out.println("1. Change vehicle number");
+        System.out.println("2. Change booking end time manually");
+        System.out.println("3. Mark Early Exit (Leave now)");
+        System.out.print("Choose an option: ");
+        int choice = sc.nextInt();
+        sc.nextLine(); // consume newline
+
+        switch (choice) {
+            case 1 -> {
+                System.out.print("Enter new vehicle number: ");
+                String newVehicle = sc.nextLine();
+                if (ps.changeVehicleNumber(id, newVehicle).isSuccess()) {
+                    System.out.println("✅ Vehicle number updated.");
+                }
+            }
+            case 2 -> {
+                System.out.print("Enter new exit time (yyyy-MM-dd HH:mm): ");
+                String input = sc.nextLine();
+                LocalDateTime newOut = LocalDateTime.parse(input, FMT);
+
+                BookingResult result = ps.changeExitTime(id, newOut);
+                if (result.getCode() == ResultCode.INVALID_TIME) {
+                    System.out.println("⚠️ Error: Exit time cannot be before entry time.");
+                } else if (result.getCode() == ResultCode.SLOT_CONFLICT) {
+                    System.out.println("⚠️ Error: Slot is reserved by another booking in that period.");
+                } else if (result.isSuccess()) {
+                    System.out.println("✅ Exit time updated. (Fee recalculated: ₹" + result.getBooking().getFee() + ")");
+                }
+            }
+            case 3 -> {
+                BookingResult result = ps.earlyExit(id, LocalDateTime.now());
+                switch (result.getCode()) {
+                    case OK -> {
+                        System.out.println("✅ Early exit marked. Exit time updated to now (Fee remains unchanged: ₹" + result.getBooking().getFee() + ")");
+                        printPromotion(result);
+                    }
+                    case INVALID_TIME -> System.out.println("⚠️ Error: Cannot leave before entry time.");
+                    case ALREADY_EXITED -> System.out.println("⚠️ Error: Booking " + id + " has already exited.");
+                    default -> System.out.println("⚠️ Booking ID " + id + " not found.");
+                }
+            }
+            default -> System.out.println("⚠️ Invalid choice.");
+        }
+    }
+
+    private static void printPromotion(BookingResult result) {
+        Booking newBooking = result.getPromoted();
+        if (newBooking == null) return;
+        System.out.println("🔄 Waitlisted user " + newBooking.getUser().getDetails() +
+                " has been booked into slot " + newBooking.getSlot().getSlotId() +
+                " with Booking ID " + newBooking.getBookingId());
+    }
+
+    private static void viewAllBookings(ParkingSystem ps) {
+        Collection<Booking> bookings = ps.getAllBookings();
+        if (bookings.isEmpty()) {
+            System.out.println("📭 No bookings found.");
+            return;
+        }
+
+        System.out.println("\n📋 All Bookings:");
+        for (Booking b : bookings) {
+            System.out.println("---------------------------");
+            System.out.println("Booking ID: " + b.getBookingId());
+            System.out.println("User: " + b.getUser().getDetails());
+            System.out.println("Slot ID: " + b.getSlot().getSlotId() + " | Type: " + b.getSlot().getType());
+            System.out.println("Entry Time: " + b.getTimeIn().format(FMT));
+            System.out.println("Exit Time: " + b.getTimeOut().format(FMT));
+            System.out.println("Fee: ₹" + b.getFee());
+            System.out.println("Status: " + b.getStatus());
+        }
+    }
+
+    private static void findSlotByVehicle(ParkingSystem ps, String vehicleNumber) {
+        Booking b = ps.findBookingByVehicle(vehicleNumber);
+        if (b == null) {
+            System.out.println("⚠️ Vehicle not found.");
+            return;
+        }
+
+        System.out.println("✅ Slot found!");
+        System.out.println("Booking ID: " + b.getBookingId());
+        System.out.println("Slot ID: " + b.getSlot().getSlotId());
+        System.out.println("Entry Time: " + b.getTimeIn());
+        System.out.println("Exit Time: " + b.getTimeOut());
+    }
+
+    private static void viewWaitlist(ParkingSystem ps) {
+        System.out.println("\n📋 Current Waitlist:");
+        List<WaitlistEntry> waitlist = ps.getWaitlist();
+        if (waitlist.isEmpty()) {
+            System.out.println("No users are currently in the waitlist.");
+            return;
+        }
+
+        int pos = 1;
+        for (WaitlistEntry e : waitlist) {
+            System.out.println(pos++ + ". " + e.getUser().getDetails() + " | " + e.getVehicleType() +
+                    (e.getPriority() == WaitlistPriority.PERMIT ? " | Permit" : "") +
+                    (e.getPriority() == WaitlistPriority.OVERBOOKED ? " | Overbooked" : ""));
+        }
+    }
+
+    private static void viewForecast(ParkingSystem ps, String vehicleType) {
+        CapacityForecast f = ps.forecast(vehicleType);
+        if (f == null) {
+            System.out.println("⚠️ No slots for vehicle type " + vehicleType + ".");
+            return;
+        }
+        System.out.println("\n📉 Capacity Forecast for " + f.getVehicleType() + " (as of " + f.getAt().format(FMT) + ")");
+        System.out.println("Free now: " + f.getFreeNow());
+        for (int minutes : FORECAST_MINUTES) {
+            System.out.printf("In %3d min: %.1f expected free, %d almost certainly%n",
+                    minutes, f.getExpectedFree(minutes), f.getSafeFree(minutes));
+        }
+    }
+
+    private static void leaveWaitlist(ParkingSystem ps, String vehicleNumber) {
+        WaitlistEntry e = ps.leaveWaitlist(vehicleNumber);
+        if (e == null) {
+            System.out.println("⚠️ Vehicle " + vehicleNumber + " is not on the waitlist.");
+        } else {
+            System.out.println("✅ " + e.getUser().getDetails() + " removed from the waitlist.");
+        }
+    }
+
+    // Shared with HistoryAnalyzer's command line
+    static void printReport(AnalyticsReport report) {
+        System.out.println("\n📊 Analytics (" + report.getStays() + " completed stays)");
+        if (report.getStays() == 0) {
+            System.out.println("No completed stays yet.");
+        } else {
+            System.out.printf("Average stay: %.1f minutes%n", report.getAverageDwellMinutes());
+            System.out.println("\nRevenue per day:");
+            report.getRevenuePaiseByDay().forEach((day, paise) ->
+                    System.out.printf("  %s  ₹%d.%02d%n", day, paise / 100, paise % 100));
+            System.out.println("\nOccupied slot-hours by hour of day:");
+            report.getOccupiedMinutesByHour().forEach((group, minutes) -> {
+                StringBuilder row = new StringBuilder("  " + group + ":");
+                for (int h = 0; h < 24; h++) {
+                    if (minutes[h] > 0) row.append(String.format(" %02d:00=%.1f", h, minutes[h] / 60.0));
+                }
+                System.out.println(row);
+            });
+        }
+        if (report.getWaits() > 0) {
+            System.out.printf("%nWaitlist: %d served, average wait %.1f minutes%n", report.getWaits(), report.getAverageWaitMinutes());
+        }
+    }
+
+    // Pages through archived stays by vehicle number or by the day they began
+    private static void viewHistory(ParkingSystem ps, Scanner sc) {
+        BookingArchive archive = ps.getArchive();
+        if (archive == null) {
+            System.out.println("⚠️ No archive: closed bookings are listed under View All Bookings.");
+            return;
+        }
+        System.out.print("Search by (1) vehicle number or (2) date range: ");
+        String mode = sc.nextLine().trim();
+        String vehicle = null;
+        LocalDate from = null, to = null;
+        if (mode.equals("1")) {
+            System.out.print("Enter vehicle number: ");
+            vehicle = sc.nextLine().trim();
+        } else {
+            System.out.print("From date (yyyy-MM-dd): ");
+            from = LocalDate.parse(sc.nextLine().trim());
+            System.out.print("To date (yyyy-MM-dd): ");
+            to = LocalDate.parse(sc.nextLine().trim());
+        }
+
+        String token = null;
+        int shown = 0;
+        try {
+            while (true) {
+                HistoryPage page = vehicle != null
+                        ? archive.findByVehicle(vehicle, token, HISTORY_PAGE)
+                        : archive.findByDate(from, to, token, HISTORY_PAGE);
+                for (ArchivedStay s : page.getStays()) {
+                    System.out.println("---------------------------");
+                    System.out.println("Booking ID: " + s.getBookingId() + (s.isCancelled() ? " (cancelled)" : ""));
+                    System.out.println("User: " + s.getUser().getDetails());
+                    System.out.println("Slot ID: " + s.getSlotId());
+                    System.out.println("Entry Time: " + s.getTimeIn().format(FMT));
+                    System.out.println("Exit Time: " + s.getTimeOut().format(FMT));
+                    System.out.println("Fee: ₹" + s.getFee());
+                }
+                shown += page.getStays().size();
+                if (!page.hasMore()) break;
+                System.out.print("More? (Y/N): ");
+                if (!sc.nextLine().trim().equalsIgnoreCase("Y")) return;
+                token = page.getNextPageToken();
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Error reading archive: " + e.getMessage());
+            return;
+        }
+        if (shown == 0) System.out.println("📭 No archived bookings found.");
+    }
+
+    private static void checkFareByVehicleNumber(ParkingSystem ps, String vehicleNumber) {
+        Booking b = ps.findBookingByVehicle(vehicleNumber);
+        if (b == null) {
+            printArchivedFare(ps, vehicleNumber);
+            return;
+        }
+
+        System.out.println("\n📋 Booking Details for Vehicle: " + vehicleNumber);
+        System.out.println("Entry Time: " + b.getTimeIn());
+        System.out.println("Exit Time : " + b.getTimeOut());
+        System.out.println("Total Fare: ₹" + b.getFee());
+    }
+
+    // The vehicle's last stay has closed, so its fare is in the archive
+    private static void printArchivedFare(ParkingSystem ps, String vehicleNumber) {
+        ArchivedStay s = null;
+        try {
+            if (ps.getArchive() != null) s = ps.getArchive().latestByVehicle(vehicleNumber);
+        } catch (IOException e) {
+            System.out.println("⚠️ Error reading archive: " + e.getMessage());
+        }
+        if (s == null) {
+            System.out.println("⚠️ No booking found for vehicle number: " + vehicleNumber);
+            return;
+        }
+
+        System.out.println("\n📋 Booking Details for Vehicle: " + vehicleNumber + (s.isCancelled() ? " (cancelled)" : " (closed)"));
+        System.out.println("Entry Time: " + s.getTimeIn());
+        System.out.println("Exit Time : " + s.getTimeOut());
+        System.out.println("Total Fare: ₹" + s.getFee());
+    }
 }
@@ -0,0 +1,78 @@
+package com.chitkara.parking;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms recorded on the engine's hot paths. Counters are LongAdders and
+// histograms are preallocated, so recording never allocates or contends on a single cache line.
+// Gauges (free slots, waitlist depth) are read from the live structures when asked for.
+public class Metrics {
+    final LongAdder bookingsCreated = new LongAdder();
+    final LongAdder bookingsRejected = new LongAdder();  // no slot available
+    final LongAdder cancellations = new LongAdder();
+    final LongAdder exits = new LongAdder();             // early exits
+    final LongAdder expirations = new LongAdder();
+    final LongAdder promotions = new LongAdder();        // waitlisted users handed a slot
+    final LongAdder waitlistJoins = new LongAdder();
+    final LongAdder archiveFailures = new LongAdder();   // closed bookings kept in memory as the archive refused them
+    final LongAdder overbookings = new LongAdder();      // users put first in line for a forecast slot
+    final LongAdder expiryFailures = new LongAdder();    // expiries that threw and were put back for a retry
+
+    final LatencyHistogram bookSlot = new LatencyHistogram();
+    final LatencyHistogram cancelBooking = new LatencyHistogram();
+    final LatencyHistogram promotion = new LatencyHistogram();
+    final LatencyHistogram saveBookings = new LatencyHistogram();
+
+    public long getBookingsCreated() { return bookingsCreated.sum(); }
+    public long getBookingsRejected() { return bookingsRejected.sum(); }
+    public long getCancellations() { return cancellations.sum(); }
+    public long getExits() { return exits.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+    public long getPromotions() { return promotions.sum(); }
+    public long getWaitlistJoins() { return waitlistJoins.sum(); }
+    public long getArchiveFailures() { return archiveFailures.sum(); }
+    public long getOverbookings() { return overbookings.sum(); }
+    public long getExpiryFailures() { return expiryFailures.sum(); }
+
+    public LatencyHistogram getBookSlotLatency() { return bookSlot; }
+    public LatencyHistogram getCancelBookingLatency() { return cancelBooking; }
+    public LatencyHistogram getPromotionLatency() { return promotion; }
+    public LatencyHistogram getSaveBookingsLatency() { return saveBookings; }
+
+    // Plain-text dump of every counter, gauge and latency, for the console or a log
+    public String dump(ParkingSystem ps) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Bookings created:   ").append(getBookingsCreated()).append('\n');
+        sb.append("Bookings rejected:  ").append(getBookingsRejected()).append('\n');
+        sb.append("Cancellations:      ").append(getCancellations()).append('\n');
+        sb.append("Early exits:        ").append(getExits()).append('\n');
+        sb.append("Expirations:        ").append(getExpirations()).append('\n');
+        sb.append("Waitlist joins:     ").append(getWaitlistJoins()).append('\n');
+        sb.append("Promotions:         ").append(getPromotions()).append('\n');
+        sb.append("Archive failures:   ").append(getArchiveFailures()).append('\n');
+        sb.append("Overbookings:       ").append(getOverbookings()).append('\n');
+        sb.append("Expiry failures:    ").append(getExpiryFailures()).append('\n');
+        sb.append("Waitlist depth:     ").append(ps.getWaitlistDepth()).append('\n');
+        EventBus events = ps.getEvents();
+        sb.append("Events published:   ").append(events.getPublished()).append('\n');
+        sb.append("Event backlog:      ").append(events.getBacklog()).append('\n');
+        sb.append("Event stalls:       ").append(events.getStalls()).append('\n');
+        sb.append("Subscriber errors:  ").append(events.getFailures()).append('\n');
+        for (Map.Entry<String, Integer> e : ps.getFreeSlotCounts().entrySet()) {
+            sb.append("Free ").append(e.getKey()).append(" slots: ").append(e.getValue()).append('\n');
+        }
+        sb.append("Latency (µs)        count      p50      p99    p99.9      max\n");
+        line(sb, "bookSlot", bookSlot);
+        line(sb, "cancelBooking", cancelBooking);
+        line(sb, "promotion", promotion);
+        line(sb, "saveBookings", saveBookings);
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String name, LatencyHistogram h) {
+        sb.append(String.format("  %-16s %8d %8d %8d %8d %8d%n", name, h.count(),
+                h.percentile(0.5, TimeUnit.MICROSECONDS), h.percentile(0.99, TimeUnit.MICROSECONDS),
+                h.percentile(0.999, TimeUnit.MICROSECONDS), h.max(TimeUnit.MICROSECONDS)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.chitkara.parking;
+
+// One site in a multi-lot deployment: an independent ParkingSystem (own slots, bookings, waitlist and files)
+// plus where the site is, for nearest-lot queries. Coordinates are planar, e.g. km on a city grid.
+public class ParkingLot {
+    private final String id;
+    private final double x;
+    private final double y;
+    private final ParkingSystem system;
+
+    public ParkingLot(String id, double x, double y, ParkingSystem system) {
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.system = system;
+    }
+
+    public double distanceTo(double px, double py) {
+        return Math.hypot(x - px, y - py);
+    }
+
+    public String getId() { return id; }
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public ParkingSystem getSystem() { return system; }
+}
@@ -0,0 +1,53 @@
+package com.chitkara.parking;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Publishes a ParkingSystem's metrics over JMX as com.chitkara.parking:type=ParkingMetrics,
+// so jconsole / VisualVM can watch p99 latency and free slots while the lot runs
+public class ParkingMetrics implements ParkingMetricsMXBean {
+    public static final String OBJECT_NAME = "com.chitkara.parking:type=ParkingMetrics";
+
+    private final ParkingSystem ps;
+    private final Metrics m;
+
+    public ParkingMetrics(ParkingSystem ps) {
+        this.ps = ps;
+        this.m = ps.getMetrics();
+    }
+
+    // Registers with the platform MBean server, replacing an earlier registration
+    public static ObjectName register(ParkingSystem ps) throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+        server.registerMBean(new ParkingMetrics(ps), name);
+        return name;
+    }
+
+    @Override public long getBookingsCreated() { return m.getBookingsCreated(); }
+    @Override public long getBookingsRejected() { return m.getBookingsRejected(); }
+    @Override public long getCancellations() { return m.getCancellations(); }
+    @Override public long getExits() { return m.getExits(); }
+    @Override public long getExpirations() { return m.getExpirations(); }
+    @Override public long getPromotions() { return m.getPromotions(); }
+    @Override public long getWaitlistJoins() { return m.getWaitlistJoins(); }
+    @Override public long getArchiveFailures() { return m.getArchiveFailures(); }
+    @Override public long getOverbookings() { return m.getOverbookings(); }
+    @Override public long getExpiryFailures() { return m.getExpiryFailures(); }
+
+    @Override public int getWaitlistDepth() { return ps.getWaitlistDepth(); }
+    @Override public Map<String, Integer> getFreeSlotsByType() { return ps.getFreeSlotCounts(); }
+
+    @Override public long getBookSlotP50Micros() { return m.bookSlot.percentile(0.5, TimeUnit.MICROSECONDS); }
+    @Override public long getBookSlotP99Micros() { return m.bookSlot.percentile(0.99, TimeUnit.MICROSECONDS); }
+    @Override public long getBookSlotMaxMicros() { return m.bookSlot.max(TimeUnit.MICROSECONDS); }
+    @Override public long getCancelBookingP99Micros() { return m.cancelBooking.percentile(0.99, TimeUnit.MICROSECONDS); }
+    @Override public long getPromotionP99Micros() { return m.promotion.percentile(0.99, TimeUnit.MICROSECONDS); }
+    @Override public long getSaveBookingsP99Micros() { return m.saveBookings.percentile(0.99, TimeUnit.MICROSECONDS); }
+
+    @Override public String dump() { return m.dump(ps); }
+}
@@ -0,0 +1,30 @@
+package com.chitkara.parking;
+
+import java.util.Map;
+
+// JMX view of the engine's Metrics (see ParkingMetrics); latencies are in microseconds
+public interface ParkingMetricsMXBean {
+    long getBookingsCreated();
+    long getBookingsRejected();
+    long getCancellations();
+    long getExits();
+    long getExpirations();
+    long getPromotions();
+    long getWaitlistJoins();
+    long getArchiveFailures();
+    long getOverbookings();
+    long getExpiryFailures();
+
+    int getWaitlistDepth();
+    Map<String, Integer> getFreeSlotsByType();
+
+    long getBookSlotP50Micros();
+    long getBookSlotP99Micros();
+    long getBookSlotMaxMicros();
+    long getCancelBookingP99Micros();
+    long getPromotionP99Micros();
+    long getSaveBookingsP99Micros();
+
+    // Same text as the console's metrics dump
+    String dump();
+}
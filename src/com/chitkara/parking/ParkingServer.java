@@ -0,0 +1,472 @@
+package com.chitkara.parking;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Embedded HTTP/JSON front end for gate terminals and mobile clients, on the JDK's built-in server:
+//   GET    /slots[?type=Car]                     one availability snapshot: free counts per type, and per floor
+//                                                and type the free slot ids; ETag is the snapshot version, so a
+//                                                board polling with If-None-Match gets 304 until something changes
+//   POST   /bookings                             name, vehicle, contact, type, hours (default 2) or in & out,
+//                                                entrance (name or index); 201 with the booking, 409 if the lot is full,
+//                                                202 {"status":"OVERBOOKED","vehicle":...,"position":n,"eta":...} if
+//                                                overbooked (see ParkingSystem): the stay is waitlisted, track it below
+//   GET    /bookings/{id}
+//   PATCH  /bookings/{id}                        vehicle and/or exit (yyyy-MM-ddTHH:mm), applied together or not at all
+//   DELETE /bookings/{id}                        cancel; the reply names the waitlisted user who got the slot
+//   GET    /vehicles/{number}                    the vehicle's latest booking
+//   GET    /waitlist/{number}                    the vehicle's place in line and expected wait
+//   DELETE /waitlist/{number}                    leave the waitlist
+//   GET    /fare?vehicle=...                     entry, exit and fee of the vehicle's latest booking, archived or not
+//   GET    /history?vehicle=... or ?from=&to=    archived stays (dates yyyy-MM-dd), size per page (default 20);
+//                                                pass the reply's next token back as page for the following page
+//   GET    /forecast?type=Car                    free slots now and expected / safe (95%) free per 15 minutes ahead
+// Parameters come from the query string or a form-encoded body of at most 16 KB (413 beyond that).
+// Failures reply {"error": "<ResultCode>"}.
+// Names and contacts may not hold control characters and vehicle numbers only letters, digits, spaces and
+// dashes; anything else is 400 BAD_REQUEST before it reaches the engine.
+//
+// There is no authentication, so by default the server listens on the loopback interface only;
+// pass another address (e.g. 0.0.0.0) to put it behind a proxy that authenticates.
+//
+// Each exchange is handled on its own virtual thread when the JVM has them (Java 21+); the engine only
+// blocks on journal writes, so thousands of concurrent clients cost little more than their sockets.
+// On older JVMs a cached pool of platform threads takes their place.
+public class ParkingServer {
+    static {
+        // Without TCP_NODELAY every small JSON reply waits ~40 ms for the client's delayed ACK.
+        // The JDK server reads this once, when its first instance is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ParkingSystem ps;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private static final int MAX_FIELD = 64;
+    private static final int MAX_BODY = 16 * 1024;
+
+    public ParkingServer(ParkingSystem ps, InetAddress address, int port) throws IOException {
+        this.ps = ps;
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 1024);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/slots", ex -> handle(ex, (method, path, params) ->
+                slots(method, ex.getRequestHeaders().getFirst("If-None-Match"), params)));
+        server.createContext("/bookings", ex -> handle(ex, this::bookings));
+        server.createContext("/vehicles/", ex -> handle(ex, this::vehicle));
+        server.createContext("/waitlist/", ex -> handle(ex, this::waitlist));
+        server.createContext("/fare", ex -> handle(ex, this::fare));
+        server.createContext("/history", ex -> handle(ex, this::history));
+        server.createContext("/forecast", ex -> handle(ex, this::forecast));
+    }
+
+    public ParkingServer(ParkingSystem ps, int port) throws IOException {
+        this(ps, InetAddress.getLoopbackAddress(), port);
+    }
+
+    // A virtual thread per task where available, else a cached pool of daemon threads
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "http-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting, gives exchanges in progress up to a second to finish
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The bound port, e.g. after asking for port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static class Reply {
+        final int status;
+        final String body;
+        final String etag;
+
+        Reply(int status, String body) {
+            this(status, body, null);
+        }
+
+        Reply(int status, String body, String etag) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    private interface Handler {
+        Reply handle(String method, String path, Map<String, String> params);
+    }
+
+    private void handle(HttpExchange ex, Handler handler) throws IOException {
+        Reply reply;
+        try {
+            Map<String, String> params = params(ex);
+            reply = params == null ? error(413, "PAYLOAD_TOO_LARGE")
+                    : handler.handle(ex.getRequestMethod(), ex.getRequestURI().getPath(), params);
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            // Unparseable numbers and times, and times out of range (e.g. a huge hours)
+            reply = error(400, "BAD_REQUEST");
+        } catch (UncheckedIOException e) {
+            reply = error(503, "JOURNAL_UNAVAILABLE");
+        } catch (RuntimeException e) {
+            reply = error(500, "INTERNAL_ERROR");
+        }
+        byte[] body = reply.body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (reply.etag != null) ex.getResponseHeaders().set("ETag", reply.etag);
+        ex.sendResponseHeaders(reply.status, body.length == 0 ? -1 : body.length);
+        if (body.length == 0) {
+            // The exchange is already complete (e.g. a 304); closing its body stream again would hand the
+            // connection back twice and can drop the client's next request on it
+            ex.close();
+            return;
+        }
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // --- Endpoints ---
+
+    private Reply slots(String method, String ifNoneMatch, Map<String, String> params) {
+        if (!method.equals("GET")) return error(405, "METHOD_NOT_ALLOWED");
+        AvailabilitySnapshot snapshot = ps.getAvailability();
+        String type = params.get("type");
+        String etag = "\"" + snapshot.getVersion() + "\"";
+        if (etag.equals(ifNoneMatch)) return new Reply(304, "", etag);
+
+        StringBuilder sb = new StringBuilder("{\"version\":").append(snapshot.getVersion()).append(",\"free\":{");
+        boolean first = true;
+        for (Map.Entry<String, Integer> e : snapshot.getFreeCountsByType().entrySet()) {
+            if (type != null && !e.getKey().equalsIgnoreCase(type)) continue;
+            if (!first) sb.append(',');
+            sb.append(quote(e.getKey())).append(':').append(e.getValue());
+            first = false;
+        }
+        sb.append("},\"groups\":[");
+        first = true;
+        for (AvailabilitySnapshot.Group g : snapshot.getGroups()) {
+            if (type != null && !g.getType().equalsIgnoreCase(type)) continue;
+            if (!first) sb.append(',');
+            sb.append("{\"floor\":").append(g.getFloor())
+                    .append(",\"type\":").append(quote(g.getType()))
+                    .append(",\"slots\":").append(g.getSlotCount())
+                    .append(",\"free\":").append(g.getFreeCount())
+                    .append(",\"freeSlotIds\":").append(Arrays.toString(g.getFreeSlotIds()).replace(" ", ""))
+                    .append('}');
+            first = false;
+        }
+        return new Reply(200, sb.append("]}").toString(), etag);
+    }
+
+    private Reply bookings(String method, String path, Map<String, String> params) {
+        String rest = path.substring("/bookings".length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            return method.equals("POST") ? book(params) : error(405, "METHOD_NOT_ALLOWED");
+        }
+        int id = Integer.parseInt(rest.substring(1));
+        switch (method) {
+            case "GET" -> {
+                Booking b = ps.getBooking(id);
+                return b == null ? error(404, ResultCode.BOOKING_NOT_FOUND.name()) : new Reply(200, json(b));
+            }
+            case "DELETE" -> {
+                return result(ps.cancelBooking(id), 200);
+            }
+            case "PATCH", "PUT" -> {
+                String vehicle = params.get("vehicle");
+                LocalDateTime exit = params.containsKey("exit") ? LocalDateTime.parse(params.get("exit")) : null;
+                if (vehicle == null && exit == null) return error(400, "BAD_REQUEST");
+                if (vehicle != null && !validVehicle(vehicle)) return error(400, "BAD_REQUEST");
+                return result(ps.updateBooking(id, vehicle, exit), 200);
+            }
+            default -> {
+                return error(405, "METHOD_NOT_ALLOWED");
+            }
+        }
+    }
+
+    private Reply book(Map<String, String> params) {
+        String name = params.get("name"), vehicle = params.get("vehicle"), type = params.get("type");
+        String contact = params.getOrDefault("contact", "");
+        if (!validText(name) || name.isBlank() || !validVehicle(vehicle) || !validText(contact) || type == null) {
+            return error(400, "BAD_REQUEST");
+        }
+        User u = new User(name, vehicle, contact);
+        LocalDateTime in = params.containsKey("in") ? LocalDateTime.parse(params.get("in")) : LocalDateTime.now();
+        LocalDateTime out = params.containsKey("out") ? LocalDateTime.parse(params.get("out"))
+                : in.plusHours(Long.parseLong(params.getOrDefault("hours", "2")));
+        int entrance = entrance(params.get("entrance"));
+        if (entrance < 0) return error(400, "BAD_REQUEST");
+        BookingResult r = ps.bookSlot(u, in, out, type, entrance);
+        if (r.getCode() == ResultCode.OVERBOOKED) {
+            return new Reply(202, waiting("OVERBOOKED", vehicle, r.getPosition(), r.getEta()));
+        }
+        return result(r, 201);
+    }
+
+    private static boolean validText(String value) {
+        if (value == null || value.length() > MAX_FIELD) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isISOControl(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean validVehicle(String value) {
+        if (value == null || value.isBlank() || value.length() > MAX_FIELD) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-') return false;
+        }
+        return true;
+    }
+
+    private int entrance(String value) {
+        if (value == null) return 0;
+        List<String> entrances = ps.getEntrances();
+        for (int i = 0; i < entrances.size(); i++) {
+            if (entrances.get(i).equalsIgnoreCase(value)) return i;
+        }
+        try {
+            int i = Integer.parseInt(value);
+            return i < entrances.size() ? i : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Reply vehicle(String method, String path, Map<String, String> params) {
+        if (!method.equals("GET")) return error(405, "METHOD_NOT_ALLOWED");
+        String number = URLDecoder.decode(path.substring("/vehicles/".length()), StandardCharsets.UTF_8);
+        Booking b = ps.findBookingByVehicle(number);
+        return b == null ? error(404, ResultCode.VEHICLE_NOT_FOUND.name()) : new Reply(200, json(b));
+    }
+
+    private Reply waitlist(String method, String path, Map<String, String> params) {
+        String number = URLDecoder.decode(path.substring("/waitlist/".length()), StandardCharsets.UTF_8);
+        switch (method) {
+            case "GET" -> {
+                WaitlistEntry e = ps.findWaitlistEntry(number);
+                int position = ps.waitlistPosition(number);
+                if (e == null || position == 0) return error(404, ResultCode.VEHICLE_NOT_FOUND.name());
+                CapacityForecast f = ps.forecast(e.getVehicleType().getName());
+                return new Reply(200, waiting(e.getPriority().name(), e.getUser().getVehicleNumber(), position,
+                        f == null ? null : f.getEta(position)));
+            }
+            case "DELETE" -> {
+                WaitlistEntry e = ps.leaveWaitlist(number);
+                if (e == null) return error(404, ResultCode.VEHICLE_NOT_FOUND.name());
+                return new Reply(200, "{\"vehicle\":" + quote(e.getUser().getVehicleNumber()) + ",\"status\":\"LEFT\"}");
+            }
+            default -> {
+                return error(405, "METHOD_NOT_ALLOWED");
+            }
+        }
+    }
+
+    private Reply fare(String method, String path, Map<String, String> params) {
+        if (!method.equals("GET")) return error(405, "METHOD_NOT_ALLOWED");
+        String number = params.get("vehicle");
+        if (number == null) return error(400, "BAD_REQUEST");
+        Booking b = ps.findBookingByVehicle(number);
+        if (b != null) {
+            return new Reply(200, "{\"vehicle\":" + quote(number) + ",\"timeIn\":\"" + b.getTimeIn() +
+                    "\",\"timeOut\":\"" + b.getTimeOut() + "\",\"fee\":" + b.getFee() + "}");
+        }
+        BookingArchive archive = ps.getArchive();
+        ArchivedStay s;
+        try {
+            s = archive == null ? null : archive.latestByVehicle(number);
+        } catch (IOException e) {
+            return error(503, "ARCHIVE_UNAVAILABLE");
+        }
+        if (s == null) return error(404, ResultCode.VEHICLE_NOT_FOUND.name());
+        return new Reply(200, "{\"vehicle\":" + quote(number) + ",\"timeIn\":\"" + s.getTimeIn() +
+                "\",\"timeOut\":\"" + s.getTimeOut() + "\",\"fee\":" + s.getFee() + "}");
+    }
+
+    private Reply history(String method, String path, Map<String, String> params) {
+        if (!method.equals("GET")) return error(405, "METHOD_NOT_ALLOWED");
+        BookingArchive archive = ps.getArchive();
+        if (archive == null) return error(404, "ARCHIVE_NOT_ENABLED");
+        String vehicle = params.get("vehicle");
+        int size = Math.min(Integer.parseInt(params.getOrDefault("size", "20")), 500);
+        if (size < 1) return error(400, "BAD_REQUEST");
+        HistoryPage page;
+        try {
+            if (vehicle != null) {
+                page = archive.findByVehicle(vehicle, params.get("page"), size);
+            } else if (params.containsKey("from") && params.containsKey("to")) {
+                page = archive.findByDate(LocalDate.parse(params.get("from")), LocalDate.parse(params.get("to")),
+                        params.get("page"), size);
+            } else {
+                return error(400, "BAD_REQUEST");
+            }
+        } catch (IOException e) {
+            return error(503, "ARCHIVE_UNAVAILABLE");
+        }
+        StringBuilder sb = new StringBuilder("{\"stays\":[");
+        for (ArchivedStay s : page.getStays()) {
+            if (sb.charAt(sb.length() - 1) != '[') sb.append(',');
+            User u = s.getUser();
+            sb.append("{\"bookingId\":").append(s.getBookingId())
+                    .append(",\"name\":").append(quote(u.getName()))
+                    .append(",\"vehicle\":").append(quote(u.getVehicleNumber()))
+                    .append(",\"slotId\":").append(s.getSlotId())
+                    .append(",\"timeIn\":\"").append(s.getTimeIn()).append('"')
+                    .append(",\"timeOut\":\"").append(s.getTimeOut()).append('"')
+                    .append(",\"fee\":").append(s.getFee())
+                    .append(",\"status\":\"").append(s.isCancelled() ? "CANCELLED" : "CLOSED").append("\"}");
+        }
+        sb.append("],\"next\":").append(page.hasMore() ? quote(page.getNextPageToken()) : "null").append('}');
+        return new Reply(200, sb.toString());
+    }
+
+    private Reply forecast(String method, String path, Map<String, String> params) {
+        if (!method.equals("GET")) return error(405, "METHOD_NOT_ALLOWED");
+        CapacityForecast f = ps.forecast(params.getOrDefault("type", "Car"));
+        if (f == null) return error(404, "NO_SLOT_AVAILABLE");
+        StringBuilder sb = new StringBuilder("{\"type\":").append(quote(f.getVehicleType()))
+                .append(",\"at\":\"").append(f.getAt()).append('"')
+                .append(",\"freeNow\":").append(f.getFreeNow())
+                .append(",\"steps\":[");
+        for (int minutes = 15; minutes <= CapacityForecast.HORIZON_MINUTES; minutes += 15) {
+            if (sb.charAt(sb.length() - 1) != '[') sb.append(',');
+            sb.append("{\"minutes\":").append(minutes)
+                    .append(",\"expected\":").append(Math.round(f.getExpectedFree(minutes) * 10) / 10.0)
+                    .append(",\"safe\":").append(f.getSafeFree(minutes)).append('}');
+        }
+        return new Reply(200, sb.append("]}").toString());
+    }
+
+    // --- Encoding ---
+
+    private Reply result(BookingResult r, int okStatus) {
+        if (!r.isSuccess()) {
+            int status = switch (r.getCode()) {
+                case BOOKING_NOT_FOUND, VEHICLE_NOT_FOUND, LOT_NOT_FOUND -> 404;
+                case INVALID_TIME -> 400;
+                default -> 409;
+            };
+            return error(status, r.getCode().name());
+        }
+        String body = json(r.getBooking());
+        if (r.getPromoted() != null) {
+            body = body.substring(0, body.length() - 1) + ",\"promoted\":" + json(r.getPromoted()) + "}";
+        }
+        return new Reply(okStatus, body);
+    }
+
+    private static String json(Booking b) {
+        User u = b.getUser();
+        return "{\"bookingId\":" + b.getBookingId() +
+                ",\"name\":" + quote(u.getName()) +
+                ",\"vehicle\":" + quote(u.getVehicleNumber()) +
+                ",\"contact\":" + quote(u.getContact()) +
+                ",\"slotId\":" + b.getSlot().getSlotId() +
+                ",\"floor\":" + b.getSlot().getFloor() +
+                ",\"type\":" + quote(b.getSlot().getType()) +
+                ",\"timeIn\":\"" + b.getTimeIn() + "\"" +
+                ",\"timeOut\":\"" + b.getTimeOut() + "\"" +
+                ",\"fee\":" + b.getFee() +
+                ",\"status\":\"" + b.getStatus() + "\"}";
+    }
+
+    // A waiting vehicle: its status (or priority), place in line and expected slot, null if beyond the forecast
+    private static String waiting(String status, String vehicle, int position, LocalDateTime eta) {
+        return "{\"status\":\"" + status + "\",\"vehicle\":" + quote(vehicle) +
+                ",\"position\":" + position +
+                ",\"eta\":" + (eta == null ? "null" : "\"" + eta + "\"") + "}";
+    }
+
+    private static Reply error(int status, String code) {
+        return new Reply(status, "{\"error\":\"" + code + "\"}");
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Query string plus a form-encoded body, body winning; null if the body is over MAX_BODY
+    private static Map<String, String> params(HttpExchange ex) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(ex.getRequestURI().getRawQuery(), params);
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) return null;
+            if (body.length > 0) parseForm(new String(body, StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+    }
+}
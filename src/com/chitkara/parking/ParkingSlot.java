@@ -1,26 +1,65 @@
 package com.chitkara.parking;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class ParkingSlot {
     private int slotId;
-    private boolean isAvailable;
+    private AtomicBoolean available = new AtomicBoolean(true);
     private int floor;
-    private String type;  // "Car", "Bike", etc.
+    private VehicleType type;  // Car, Bike, etc.
+    private final int[] distances;  // walking metres to each of the lot's entrances
+    private SlotPool pool;  // free-slot pool this slot reports to, if registered
+    private ReservationCalendar calendar = new ReservationCalendar();  // booked windows, guarded by the pool's type lock
+    private volatile TariffTable tariff = TariffTable.STANDARD;  // set by ParkingSystem from its PricingEngine
+    LocalDateTime reservedUntil;  // calendar horizon as last indexed by the pool (null = nothing booked)
+    int availabilityGroup, availabilityBit;  // position in the AvailabilityBoard's snapshots
 
     public ParkingSlot(int slotId, int floor, String type) {
+        this(slotId, floor, VehicleType.of(type), 0);
+    }
+
+    public ParkingSlot(int slotId, int floor, VehicleType type, int distance) {
+        this(slotId, floor, type, new int[] {distance});
+    }
+
+    public ParkingSlot(int slotId, int floor, VehicleType type, int[] distances) {
         this.slotId = slotId;
         this.floor = floor;
         this.type = type;
-        this.isAvailable = true;
+        this.distances = distances;
+    }
+
+    // Claims the slot if it is free; only one caller can win a given free slot
+    public boolean tryBook() {
+        if (!available.compareAndSet(true, false)) return false;
+        if (pool != null) pool.onBooked(this);
+        return true;
+    }
+
+    public void markBooked() {
+        tryBook();
+    }
+
+    public void markAvailable() {
+        if (!available.compareAndSet(false, true)) return;
+        if (pool != null) pool.onAvailable(this);
     }
 
-    public void markBooked()   { isAvailable = false; }
-    public void markAvailable(){ isAvailable = true;  }
+    void setPool(SlotPool pool) { this.pool = pool; }
+    ReservationCalendar getCalendar() { return calendar; }
+    void setTariff(TariffTable tariff) { this.tariff = tariff; }
+    public TariffTable getTariff() { return tariff; }
     // getters/setters omitted
 
     // ✅ IN ParkingSlot.java
-    public boolean isAvailable() { return isAvailable; }
+    public boolean isAvailable() { return available.get(); }
     public int getSlotId() { return slotId; }
     public int getFloor() { return floor; }
-    public String getType() { return type; }
+    public String getType() { return type.getName(); }
+    public VehicleType getVehicleType() { return type; }
+    public int getDistance() { return distances[0]; }
+    public int getDistance(int entrance) { return distances[entrance]; }
+    int entranceCount() { return distances.length; }
 
 }
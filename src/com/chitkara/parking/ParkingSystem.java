@@ -1,387 +1,1423 @@
 package com.chitkara.parking;
 import java.io.*;
-import java.nio.file.*;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+// Headless booking engine: every operation returns data or a BookingResult and does no console I/O,
+// so it can be driven by Main's menu or embedded behind gate controllers.
+// Safe to share between gate terminals: slots are claimed by CAS, free slots are locked
+// per vehicle type, and bookings, the vehicle index and the waitlist are concurrent structures.
 public class ParkingSystem {
-    private List<ParkingSlot> slots = new ArrayList<>();
-    private Map<Integer, Booking> bookings = new HashMap<>();
+    private static final int EVENT_CAPACITY = 4096;  // changes in flight before publishers wait for subscribers
+    private static final int FORECAST_TTL_SECONDS = 10;
+    private static final Duration HANDOVER_STAY = Duration.ofHours(2);  // a promoted user who asked for no length  // a forecast is reused while no slot changes, up to this long
+    private List<ParkingSlot> slots = new ArrayList<>();  // fixed once the constructor returns
+    // findSlotById index: an array offset by the lowest id when ids are reasonably dense, else a map
+    private ParkingSlot[] slotsById;
+    private int firstSlotId;
+    private Map<Integer, ParkingSlot> sparseSlotsById;
+    private final Path dataDir;  // where bookings.txt / waitlist.txt live
+    private final List<String> entrances;
+    private final SlotPool slotPool;
+    private final AvailabilityBoard availability;
+    private BookingTable bookings = new BookingTable();
+    private CustomerRegistry customers = new CustomerRegistry();
+    private VehicleIndex vehicleIndex = new VehicleIndex();
     private Waitlist waitlist = new Waitlist();
-    private int bookingCounter = 1;
+    private AtomicInteger bookingCounter = new AtomicInteger(1);
+    private volatile Journal journal;  // null unless journal persistence is enabled
+    private volatile BookingArchive archive;  // null keeps closed bookings in memory
+    // Every mutation holds the read side while it journals and applies a change; a checkpoint
+    // takes the write side so its image and the journal switch see each change entirely or not at all
+    private ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private Analytics analytics = new Analytics();
+    private Metrics metrics = new Metrics();
+    private volatile PricingEngine pricing = PricingEngine.standard();
+    private ExpiryScheduler expiry = new ExpiryScheduler(this);
+    private final EventBus events = new EventBus(EVENT_CAPACITY);  // queues nothing until startExpiry()
+    private final DepartureForecast departures = new DepartureForecast();
+    private final Map<VehicleType, CachedForecast> forecasts = new ConcurrentHashMap<>();
+    private volatile double overbookShare;     // 0 keeps overbooking off
+    private volatile int overbookMinutes = 30;
 
     public ParkingSystem() {
-        slots.add(new ParkingSlot(101, 1, "Car"));
-        slots.add(new ParkingSlot(102, 1, "Bike"));
-        slots.add(new ParkingSlot(103, 2, "Car"));
-        slots.add(new ParkingSlot(104, 2, "Bike"));
+        this(defaultLot());
+    }
 
-        loadBookingsFromFile();
-        loadWaitlistFromFile();
+    // The built-in four-slot lot
+    public static List<ParkingSlot> defaultLot() {
+        return List.of(
+                new ParkingSlot(101, 1, "Car"),
+                new ParkingSlot(102, 1, "Bike"),
+                new ParkingSlot(103, 2, "Car"),
+                new ParkingSlot(104, 2, "Bike"));
     }
 
-    private ParkingSlot findSlotById(int slotId) {
+    // A lot made of the given slots, e.g. a generated one for benchmarks
+    public ParkingSystem(List<ParkingSlot> lot) {
+        this(lot, Path.of("."));
+    }
+
+    // A lot that keeps its text files in dataDir, so several lots can run side by side
+    public ParkingSystem(List<ParkingSlot> lot, Path dataDir) {
+        this(LotTopology.of(lot), dataDir);
+    }
+
+    // A lot with the slots and entrances of a topology file
+    public ParkingSystem(LotTopology topology, Path dataDir) {
+        this.dataDir = dataDir;
+        this.entrances = List.copyOf(topology.getEntrances());
+        this.slotPool = new SlotPool(entrances.size());
+        slots.addAll(topology.getSlots());
         for (ParkingSlot slot : slots) {
-            if (slot.getSlotId() == slotId) {
-                return slot;
+            slotPool.register(slot);
+            slot.setTariff(pricing.tableFor(slot.getType(), slot.getFloor()));
+        }
+        indexSlots();
+        availability = new AvailabilityBoard(slots);
+        slotPool.setBoard(availability);
+    }
+
+    private void indexSlots() {
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (ParkingSlot slot : slots) {
+            min = Math.min(min, slot.getSlotId());
+            max = Math.max(max, slot.getSlotId());
+        }
+        long span = slots.isEmpty() ? 0 : (long) max - min + 1;
+        if (span <= 4L * slots.size() + 64) {
+            slotsById = new ParkingSlot[(int) span];
+            firstSlotId = min;
+            for (ParkingSlot slot : slots) {
+                slotsById[slot.getSlotId() - min] = slot;
+            }
+        } else {
+            // e.g. ids numbered 1001.., 2001.. per floor with big gaps
+            sparseSlotsById = new HashMap<>();
+            for (ParkingSlot slot : slots) {
+                sparseSlotsById.put(slot.getSlotId(), slot);
             }
         }
-        return null;  // If no matching slot found, return null
     }
 
-    public void viewAvailableSlots() {
-        System.out.println("\n--- Available Parking Slots ---");
-        boolean found = false;
+    // Switches every slot to the engine's tariffs; open bookings follow, closed ones keep the fee they were charged
+    public void setPricing(PricingEngine pricing) {
+        this.pricing = pricing;
         for (ParkingSlot slot : slots) {
-            if (slot.isAvailable()) {
-                found = true;
-                System.out.println("Slot ID: " + slot.getSlotId() +
-                        ", Floor: " + slot.getFloor() +
-                        ", Type: " + slot.getType());
+            slot.setTariff(pricing.tableFor(slot.getType(), slot.getFloor()));
+        }
+    }
+
+    // Fee in paise a stay would cost on a slot of the type and floor, e.g. to show before booking
+    public long quote(String vehicleType, int floor, LocalDateTime in, LocalDateTime out) {
+        return pricing.tableFor(vehicleType, floor).quote(in, out);
+    }
+
+    private ParkingSlot findSlotById(int slotId) {
+        if (slotsById == null) return sparseSlotsById.get(slotId);
+        long i = (long) slotId - firstSlotId;
+        return i >= 0 && i < slotsById.length ? slotsById[(int) i] : null;  // null if no such slot
+    }
+
+    // Entrance names, in the order bookSlot takes them
+    public List<String> getEntrances() {
+        return entrances;
+    }
+
+    public List<ParkingSlot> getSlots() {
+        return Collections.unmodifiableList(slots);
+    }
+
+    // Free slots as of the current availability snapshot, by floor, type and slot id
+    public List<ParkingSlot> getAvailableSlots() {
+        List<ParkingSlot> available = new ArrayList<>();
+        for (AvailabilitySnapshot.Group g : availability.current().getGroups()) {
+            for (int id : g.getFreeSlotIds()) {
+                available.add(findSlotById(id));
             }
         }
-        if (!found) {
-            System.out.println("No slots available at the moment.");
+        return available;
+    }
+
+    // Immutable, versioned view of free slots per floor and type; never blocks, safe to poll
+    public AvailabilitySnapshot getAvailability() {
+        return availability.current();
+    }
+
+    // Books the free slot of the type nearest to the first entrance (short stay) or farthest from it (long stay).
+    // NO_SLOT_AVAILABLE leaves the decision to join the waitlist to the caller; a type no slot has
+    // is NO_SLOT_AVAILABLE as well. With overbooking on (setOverbooking), a full type may instead answer
+    // OVERBOOKED: the user is waitlisted ahead of everyone else for a stay as long as the one asked for, and the
+    // result carries their place in line and the expected wait (see waitlistPosition, leaveWaitlist).
+    public BookingResult bookSlot(User u, LocalDateTime in, LocalDateTime out, String vehicleType) {
+        return bookSlot(u, in, out, VehicleType.find(vehicleType), 0);
+    }
+
+    // As above, measuring from the given entrance (an index into getEntrances())
+    public BookingResult bookSlot(User u, LocalDateTime in, LocalDateTime out, String vehicleType, int entrance) {
+        return bookSlot(u, in, out, VehicleType.find(vehicleType), entrance);
+    }
+
+    public BookingResult bookSlot(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType, int entrance) {
+        checkEntrance(entrance);
+        BookingResult r = bookSlotLocked(u, in, out, vehicleType, entrance);
+        if (r.getCode() == ResultCode.OVERBOOKED) events.publish(BookingEvent.Type.WAITLISTED, null, null, u, vehicleType.getName());
+        return announce(BookingEvent.Type.BOOKED, r);
+    }
+
+    // Each public mutator does its work in a *Locked method under the state lock, then announces the
+    // change on the event bus once the lock is released (see EventBus)
+    private BookingResult bookSlotLocked(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType, int entrance) {
+        long start = System.nanoTime();
+        stateLock.readLock().lock();  // shared: only a checkpoint takes the write side
+        try {
+            if (!out.isAfter(in)) {
+                return BookingResult.error(ResultCode.INVALID_TIME);
+            }
+
+            Booking booking = claim(u, in, out, vehicleType, entrance);
+            if (booking == null) {
+                BookingResult overbooked = overbook(u, in, out, vehicleType, entrance);
+                if (overbooked != null) return overbooked;
+                metrics.bookingsRejected.increment();
+                return BookingResult.error(ResultCode.NO_SLOT_AVAILABLE);
+            }
+            return publish(booking);
+        } finally {
+            stateLock.readLock().unlock();
+            metrics.bookSlot.record(System.nanoTime() - start);
+        }
+    }
+
+    private void checkEntrance(int entrance) {
+        if (entrance < 0 || entrance >= entrances.size()) {
+            throw new IllegalArgumentException("No entrance " + entrance + "; the lot has " + entrances.size());
         }
     }
 
-    public void bookSlot(User u, LocalDateTime in, LocalDateTime out, String vehicleType, Scanner sc) {
+    // Claims a slot for the stay and creates its booking, not yet journaled or visible; null if none is free
+    private Booking claim(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType, int entrance) {
         // Calculate duration
         long durationHours = java.time.Duration.between(in, out).toHours();
 
-        // Filter slots by vehicle type
-        List<ParkingSlot> available = slots.stream()
-                .filter(s -> s.isAvailable() && s.getType().equalsIgnoreCase(vehicleType))
-                .sorted(Comparator.comparingInt(ParkingSlot::getSlotId))
-                .toList();
-
-        if (available.isEmpty()) {
-            System.out.println("⚠️ No available slots for your vehicle type (" + vehicleType + ").");
-            System.out.print("Do you want to join the waitlist? (Y/N): ");
-            String input = sc.nextLine().trim();
-            if (input.equalsIgnoreCase("Y")) {
-                waitlist.addToWaitlist(u);
-                saveWaitlistToFile();
-                System.out.println("✅ You’ve been added to the waitlist.");
-            } else {
-                System.out.println("❌ Booking canceled. You are not added to waitlist.");
+        // The pool claims the slot atomically, so two gates can never get the same one,
+        // and skips slots with an advance reservation inside [in, out)
+        User customer = customers.intern(u);
+        Function<ParkingSlot, Booking> newBooking = slot -> new Booking(bookingCounter.getAndIncrement(), customer, slot, in, out);
+        if (durationHours > 3) {
+            // Long duration → pick farthest, leaving the near slots to short stays
+            return slotPool.claimFarthest(vehicleType, entrance, in, out, newBooking);
+        }
+        // Short duration → pick nearest
+        return slotPool.claimNearest(vehicleType, entrance, in, out, newBooking);
+    }
+
+    // Lot full: puts the user first in line for the type's next freed slot, if at most the overbooking share
+    // of the type's slots is already promised that way and the forecast says, with ~95% confidence, that
+    // enough slots free up within the window for all of them. Null leaves the request rejected.
+    // Runs under the type's lock, which releaseSlot takes too, so no slot is handed out meanwhile.
+    private BookingResult overbook(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType, int entrance) {
+        double share = overbookShare;
+        if (share <= 0 || vehicleType == null || in.isAfter(LocalDateTime.now())) return null;
+        ReentrantLock lock = slotPool.lockFor(vehicleType);
+        if (lock == null) return null;
+        lock.lock();
+        try {
+            Booking late = claim(u, in, out, vehicleType, entrance);  // a slot may have come free since
+            if (late != null) return publish(late);
+            int position = waitlist.count(vehicleType, WaitlistPriority.OVERBOOKED) + 1;
+            if (position > share * slotPool.slotCount(vehicleType)) return null;
+            CapacityForecast f = forecast(vehicleType, LocalDateTime.now());
+            if (f.getSafeFree(overbookMinutes) < position) return null;
+            WaitlistEntry entry = new WaitlistEntry(customers.intern(u), vehicleType, WaitlistPriority.OVERBOOKED,
+                    LocalDateTime.now(), Duration.between(in, out));
+            log(Journal.waitlisted(entry));  // replay rejects a duplicate the same way
+            if (!waitlist.addToWaitlist(entry)) return null;  // already waiting
+            metrics.waitlistJoins.increment();
+            metrics.overbookings.increment();
+            return BookingResult.overbooked(f.getEta(position), position);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Books a slot of the type for a future window without holding it until then.
+    // A window that has already started is booked immediately, as with bookSlot.
+    public BookingResult reserveSlot(User u, LocalDateTime in, LocalDateTime out, String vehicleType) {
+        return reserveSlot(u, in, out, VehicleType.find(vehicleType));
+    }
+
+    public BookingResult reserveSlot(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType) {
+        if (!in.isAfter(LocalDateTime.now())) {
+            return bookSlot(u, in, out, vehicleType, 0);
+        }
+        return announce(BookingEvent.Type.BOOKED, reserveSlotLocked(u, in, out, vehicleType));
+    }
+
+    private BookingResult reserveSlotLocked(User u, LocalDateTime in, LocalDateTime out, VehicleType vehicleType) {
+        stateLock.readLock().lock();
+        try {
+            if (!out.isAfter(in)) {
+                return BookingResult.error(ResultCode.INVALID_TIME);
             }
-            return;
+            User customer = customers.intern(u);
+            Booking booking = slotPool.reserve(vehicleType, in, out,
+                    slot -> new Booking(bookingCounter.getAndIncrement(), customer, slot, in, out, BookingStatus.RESERVED));
+            if (booking == null) {
+                metrics.bookingsRejected.increment();
+                return BookingResult.error(ResultCode.NO_SLOT_AVAILABLE);
+            }
+            return publish(booking);
+        } finally {
+            stateLock.readLock().unlock();
         }
+    }
 
-        ParkingSlot selectedSlot;
-        if (durationHours > 3) {
-            // Long duration → pick farthest (last slot)
-            selectedSlot = available.get(available.size() - 1);
-        } else {
-            // Short duration → pick nearest (first slot)
-            selectedSlot = available.get(0);
+    // Journals a booking the pool has just placed and makes it visible. It is journaled first so the
+    // log never holds a change to a booking ahead of the booking itself.
+    private BookingResult publish(Booking booking) {
+        try {
+            log(Journal.booked(booking));
+        } catch (UncheckedIOException e) {
+            unclaim(booking);
+            throw e;
         }
+        track(booking);
+        return BookingResult.ok(booking);
+    }
 
-        selectedSlot.markBooked();
-        // Create a new booking
-        Booking booking = new Booking(bookingCounter++, u, selectedSlot, in, out);
-        bookings.put(booking.getBookingId(), booking);  // Add the booking to the map
+    // Gives back a slot claimed for a booking that could not be journaled
+    private void unclaim(Booking booking) {
+        slotPool.release(booking);
+        if (booking.getStatus() == BookingStatus.ACTIVE) booking.getSlot().markAvailable();
+    }
 
-        // Convert the map to a sorted list by vehicle number
-        List<Booking> bookingList = new ArrayList<>(bookings.values());
-        bookingList.sort(Comparator.comparing(b -> b.getUser().getVehicleNumber()));  // Sort by vehicle number
+    private void track(Booking booking) {
+        bookings.put(booking);  // Add the booking to the table
+        vehicleIndex.add(booking);
+        expiry.schedule(booking);
+        metrics.bookingsCreated.increment();
+    }
 
-        // Update bookings list in sorted order (optional - if you need a sorted list for later use)
-        System.out.println("Booking ID: " + booking.getBookingId() + " successfully created!");
+    // A slot of the type with nothing booked between in and out, or null; reserves nothing
+    public ParkingSlot findFreeSlot(String vehicleType, LocalDateTime in, LocalDateTime out) {
+        return slotPool.findFree(VehicleType.find(vehicleType), in, out);
     }
 
-    public void findSlotByVehicle(String vehicleNumber) {
-        // Create a sorted list of bookings by vehicle number
-        List<Booking> bookingList = new ArrayList<>(bookings.values());
-        bookingList.sort(Comparator.comparing(b -> b.getUser().getVehicleNumber()));  // Sort bookings by vehicle number
+    // Vehicle with an advance reservation arrives: the reservation starts holding its slot
+    public BookingResult checkIn(int id) {
+        return announce(BookingEvent.Type.CHECKED_IN, checkInLocked(id));
+    }
 
-        // Iterate through the sorted list and find the booking with the matching vehicle number
-        boolean found = false;
-        for (Booking b : bookingList) {
-            if (b.getUser().getVehicleNumber().equalsIgnoreCase(vehicleNumber)) {
-                // If vehicle number matches, print the booking details
-                System.out.println("✅ Slot found!");
-                System.out.println("Booking ID: " + b.getBookingId());
-                System.out.println("Slot ID: " + b.getSlot().getSlotId());
-                System.out.println("Entry Time: " + b.getTimeIn());
-                System.out.println("Exit Time: " + b.getTimeOut());
-                found = true;
-                break;
+    private BookingResult checkInLocked(int id) {
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
             }
+            switch (b.getStatus()) {
+                case ACTIVE -> {
+                    return BookingResult.ok(b);
+                }
+                case CLOSED -> {
+                    return BookingResult.error(ResultCode.ALREADY_EXITED, b);
+                }
+                default -> { }
+            }
+            // Previous occupant has not left yet
+            if (!b.getSlot().tryBook()) {
+                return BookingResult.error(ResultCode.SLOT_OCCUPIED, b);
+            }
+            // Journaled before the booking changes; if it was cancelled meanwhile the record replays as a no-op
+            try {
+                log(Journal.activated(id));
+            } catch (UncheckedIOException e) {
+                b.getSlot().markAvailable();
+                throw e;
+            }
+            if (!b.activate()) {
+                // Cancelled meanwhile
+                b.getSlot().markAvailable();
+                return BookingResult.error(ResultCode.ALREADY_EXITED, b);
+            }
+            return BookingResult.ok(b);
+        } finally {
+            stateLock.readLock().unlock();
         }
+    }
 
-        if (!found) {
-            System.out.println("⚠️ Vehicle not found.");
+    // Queues the user for the next slot of the type; returns false if the vehicle is already waiting.
+    // Throws IllegalArgumentException for a type no slot has (see hasSlotsFor), which would wait forever.
+    public boolean joinWaitlist(User u, String vehicleType, WaitlistPriority priority) {
+        VehicleType type = VehicleType.find(vehicleType);
+        if (type == null || slotPool.slotCount(type) == 0) {
+            throw new IllegalArgumentException("No slots for vehicle type " + vehicleType);
         }
+        boolean added;
+        stateLock.readLock().lock();
+        try {
+            WaitlistEntry entry = new WaitlistEntry(customers.intern(u), type, priority);
+            log(Journal.waitlisted(entry));  // replay rejects a duplicate the same way
+            added = waitlist.addToWaitlist(entry);
+            if (added) metrics.waitlistJoins.increment();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (added) events.publish(BookingEvent.Type.WAITLISTED, null, null, u, vehicleType);
+        return added;
     }
 
-    public void cancelBooking(int id) {
-        Booking b = bookings.remove(id);
-        if (b == null) {
-            System.out.println("⚠️ Booking ID " + id + " not found.");
-            return;
+    public boolean joinWaitlist(User u, String vehicleType) {
+        return joinWaitlist(u, vehicleType, WaitlistPriority.REGULAR);
+    }
+
+    // True if the lot has slots of the type, i.e. booking or waiting for one can ever succeed
+    public boolean hasSlotsFor(String vehicleType) {
+        VehicleType type = VehicleType.find(vehicleType);
+        return type != null && slotPool.slotCount(type) > 0;
+    }
+
+    // The vehicle's waitlist entry, or null if it is not waiting
+    public WaitlistEntry findWaitlistEntry(String vehicleNumber) {
+        return waitlist.get(vehicleNumber);
+    }
+
+    // Place of the vehicle in the line for its type (1 = next to get a slot), or 0 if it is not waiting
+    public int waitlistPosition(String vehicleNumber) {
+        return waitlist.position(vehicleNumber);
+    }
+
+    // Takes the vehicle off the waitlist; returns its entry, or null if it was not waiting
+    public WaitlistEntry leaveWaitlist(String vehicleNumber) {
+        WaitlistEntry entry;
+        stateLock.readLock().lock();
+        try {
+            entry = waitlist.get(vehicleNumber);
+            if (entry == null) return null;
+            // Journaled before the entry goes, under its type's lock so no freed slot is handed to it meanwhile
+            ReentrantLock lock = slotPool.lockFor(entry.getVehicleType());
+            if (lock != null) lock.lock();
+            try {
+                entry = waitlist.get(vehicleNumber);  // may have just been given a slot
+                if (entry == null) return null;
+                log(Journal.unwaitlisted(entry.getUser().getVehicleNumber()));
+                waitlist.removeByVehicle(vehicleNumber);
+            } finally {
+                if (lock != null) lock.unlock();
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (entry != null) {
+            events.publish(BookingEvent.Type.LEFT_WAITLIST, null, null, entry.getUser(), entry.getVehicleType().getName());
         }
+        return entry;
+    }
+
+    public Booking getBooking(int id) {
+        return bookings.get(id);
+    }
+
+    public Collection<Booking> getAllBookings() {
+        return Collections.unmodifiableCollection(bookings.values());
+    }
+
+    // Single hash probe on the vehicle index; returns the vehicle's most recent booking or null
+    public Booking findBookingByVehicle(String vehicleNumber) {
+        return vehicleIndex.latest(vehicleNumber);
+    }
+
+    // All bookings held for a vehicle, oldest first
+    public List<Booking> getBookingsByVehicle(String vehicleNumber) {
+        return vehicleIndex.getBookings(vehicleNumber);
+    }
+
+    // Occupancy, revenue, dwell and waitlist figures for every stay closed since start-up or loaded as history
+    public AnalyticsReport getAnalytics() {
+        return analytics.snapshot();
+    }
+
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    public CustomerRegistry getCustomers() {
+        return customers;
+    }
+
+    // Every change made through this class is published here; replay and loading publish nothing
+    public EventBus getEvents() {
+        return events;
+    }
 
-        // 1. Free up the slot
-        ParkingSlot slot = b.getSlot();
-        slot.markAvailable();
-        System.out.println("✅ Booking " + id + " canceled. Slot " + slot.getSlotId() + " is now free.");
+    public Metrics getMetrics() {
+        return metrics;
+    }
 
-        // 2. If someone’s waiting, book them in automatically
-        if (!waitlist.isEmpty()) {
-            User nextUser = waitlist.removeFromWaitlist();
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime twoHoursLater = now.plusHours(2);
+    public int getWaitlistDepth() {
+        return waitlist.size();
+    }
 
-            // ❌ Remove this extra line:
-            // ParkingSlot slot = b.getSlot();
+    public int getFreeSlotCount(String vehicleType) {
+        return availability.current().getFreeCount(vehicleType);
+    }
 
-            Booking newBooking = new Booking(bookingCounter++, nextUser, slot, now, twoHoursLater);
-            bookings.put(newBooking.getBookingId(), newBooking);
-            slot.markBooked();
+    // Free slots right now per vehicle type (case-insensitive keys)
+    public Map<String, Integer> getFreeSlotCounts() {
+        return availability.current().getFreeCountsByType();
+    }
 
-            System.out.println("🔄 Waitlisted user " + nextUser.getDetails() +
-                    " has been booked into slot " + slot.getSlotId() +
-                    " with Booking ID " + newBooking.getBookingId());
+    // Everyone waiting, in the order they joined
+    public List<WaitlistEntry> getWaitlist() {
+        return waitlist.getWaitlist();
+    }
+
+    public BookingResult cancelBooking(int id) {
+        return announce(BookingEvent.Type.CANCELLED, cancelBookingLocked(id));
+    }
+
+    private BookingResult cancelBookingLocked(int id) {
+        long start = System.nanoTime();
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            // Journaled before anything changes, so a failed write leaves the booking as it was. Of two
+            // concurrent cancels only one removes it; the other's record replays as a no-op.
+            log(Journal.cancelled(id));
+            if (!bookings.remove(b)) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            vehicleIndex.remove(b);
+            metrics.cancellations.increment();
+            retire(b, true);
+
+            BookingStatus previous = b.close();
+            if (previous == null) {
+                // Early exit already gave the slot back
+                return BookingResult.ok(b);
+            }
+            slotPool.release(b);
+            if (previous == BookingStatus.RESERVED) {
+                // Window had not started, so no slot was held
+                return BookingResult.ok(b);
+            }
+
+            // 1. Free up the slot, or 2. hand it straight to the next waitlisted user
+            Booking newBooking = releaseSlot(b.getSlot(), LocalDateTime.now());
+            return BookingResult.ok(b, newBooking);
+        } finally {
+            stateLock.readLock().unlock();
+            metrics.cancelBooking.record(System.nanoTime() - start);
         }
     }
 
-    public void updateBooking(int id, Scanner sc) {
-        Booking b = bookings.get(id);
-        if (b == null) {
-            System.out.println("⚠️ Booking ID " + id + " not found.");
-            return;
+    public BookingResult changeVehicleNumber(int id, String newVehicle) {
+        return announce(BookingEvent.Type.UPDATED, changeVehicleNumberLocked(id, newVehicle));
+    }
+
+    private BookingResult changeVehicleNumberLocked(int id, String newVehicle) {
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            log(Journal.vehicleChanged(id, newVehicle));
+            changeUser(b, newVehicle);
+            return BookingResult.ok(b);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Changes the vehicle and/or the exit time (null leaves it as is) in one update: both parts are checked
+    // before either is applied, and they are journaled as one record, so they happen together or not at all.
+    public BookingResult updateBooking(int id, String newVehicle, LocalDateTime newOut) {
+        if (newVehicle == null && newOut == null) throw new IllegalArgumentException("Nothing to update");
+        return announce(BookingEvent.Type.UPDATED, newOut == null
+                ? changeVehicleNumberLocked(id, newVehicle)
+                : changeExitTimeLocked(id, newVehicle, newOut));
+    }
+
+    public BookingResult changeExitTime(int id, LocalDateTime newOut) {
+        return announce(BookingEvent.Type.UPDATED, changeExitTimeLocked(id, null, newOut));
+    }
+
+    // Moves the exit time and, unless newVehicle is null, changes the vehicle along with it
+    private BookingResult changeExitTimeLocked(int id, String newVehicle, LocalDateTime newOut) {
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            if (newOut.isBefore(b.getTimeIn())) {
+                return BookingResult.error(ResultCode.INVALID_TIME, b);
+            }
+            if (b.isClosed()) {
+                // No longer on the slot's calendar, so there is nothing to overlap; the stay is re-charged
+                // for its new length at today's tariff
+                long fee = b.quote(newOut);
+                log(newVehicle == null ? Journal.exitTimeChanged(id, newOut, fee) : Journal.updated(id, newVehicle, newOut, fee));
+                b.setTimeOut(newOut);
+                b.freezeFee(fee);
+                if (newVehicle != null) changeUser(b, newVehicle);
+                return BookingResult.ok(b);
+            }
+            // Validate against other bookings on the slot and move the window, atomically. The type's lock is
+            // held until the change is journaled, so a failed write can move the window back before anyone
+            // books the stretch it gave up.
+            LocalDateTime oldOut = b.getTimeOut();
+            ReentrantLock lock = slotPool.lockFor(b.getSlot().getVehicleType());
+            lock.lock();
+            try {
+                if (!slotPool.reschedule(b, newOut, true)) {
+                    return BookingResult.error(ResultCode.SLOT_CONFLICT, b);
+                }
+                try {
+                    log(newVehicle == null ? Journal.exitTimeChanged(id, newOut) : Journal.updated(id, newVehicle, newOut));
+                } catch (UncheckedIOException e) {
+                    slotPool.reschedule(b, oldOut, false);
+                    throw e;
+                }
+                if (newVehicle != null) changeUser(b, newVehicle);
+            } finally {
+                lock.unlock();
+            }
+            if (newOut.isBefore(oldOut)) expiry.schedule(b);  // a later time is picked up when the old one fires
+            return BookingResult.ok(b);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Vehicle leaves at the given time: the exit time is moved up and the slot is released
+    public BookingResult earlyExit(int id, LocalDateTime now) {
+        return announce(BookingEvent.Type.EXITED, earlyExitLocked(id, now));
+    }
+
+    private BookingResult earlyExitLocked(int id, LocalDateTime now) {
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            if (now.isBefore(b.getTimeIn())) {
+                return BookingResult.error(ResultCode.INVALID_TIME, b);
+            }
+            if (b.isClosed()) {
+                return BookingResult.error(ResultCode.ALREADY_EXITED, b);
+            }
+            // Journaled before the booking closes, as in cancelBooking; a second exit racing this one
+            // loses at close() below and its record replays as a no-op
+            long fee = b.quote(now);
+            log(Journal.exited(id, now, fee));
+            BookingStatus previous = b.close();
+            if (previous == null) {
+                return BookingResult.error(ResultCode.ALREADY_EXITED, b);
+            }
+            metrics.exits.increment();
+            slotPool.release(b);  // off the calendar before its window changes
+            b.setTimeOut(now); // Update exit time to now
+            b.freezeFee(fee);
+            retire(b, false);
+            if (previous == BookingStatus.RESERVED) {
+                // Never checked in, so no slot was held
+                return BookingResult.ok(b);
+            }
+            analytics.onStayClosed(b);
+            departures.record(b);
+
+            // 1. Free up slot immediately, or 2. assign it to the next waitlisted user
+            Booking newBooking = releaseSlot(b.getSlot(), now);
+            return BookingResult.ok(b, newBooking);
+        } finally {
+            stateLock.readLock().unlock();
         }
+    }
+
+    // Called by the ExpiryScheduler once a booking's exit time has passed. An active booking is closed at its
+    // exit time and its slot released (or handed to the waitlist); a reservation nobody checked in for lapses.
+    // Does nothing for a booking that is already closed, and reschedules one whose exit time moved later.
+    BookingResult expire(int id, LocalDateTime now) {
+        return announce(BookingEvent.Type.EXPIRED, expireLocked(id, now));
+    }
+
+    private BookingResult expireLocked(int id, LocalDateTime now) {
+        stateLock.readLock().lock();
+        try {
+            Booking b = bookings.get(id);
+            if (b == null || b.isClosed()) {
+                return BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+            }
+            LocalDateTime out = b.getTimeOut();
+            if (out.isAfter(now)) {
+                expiry.schedule(b);
+                return BookingResult.error(ResultCode.INVALID_TIME, b);
+            }
+            long fee = b.quote(out);
+            log(Journal.exited(id, out, fee));  // exit time stays as booked
+            BookingStatus previous = b.close();
+            if (previous == null) {
+                return BookingResult.error(ResultCode.ALREADY_EXITED, b);
+            }
+            b.freezeFee(fee);
+            metrics.expirations.increment();
+            slotPool.release(b);
+            retire(b, false);
+            if (previous == BookingStatus.RESERVED) {
+                return BookingResult.ok(b);
+            }
+            analytics.onStayClosed(b);
+            departures.record(b);
+            Booking newBooking = releaseSlot(b.getSlot(), now);
+            return BookingResult.ok(b, newBooking);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Starts releasing bookings as they expire; call once loading and replay are done
+    public void startExpiry() {
+        expiry.start();
+        // Nothing is queued while the scheduler is stopped, so queue everything still open
+        for (Booking b : bookings.values()) {
+            if (!b.isClosed()) expiry.schedule(b);
+        }
+    }
 
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-
-        // Show current times
-        System.out.println("\n--- Update Booking ID " + id + " ---");
-        System.out.println("Current entry time: " + b.getTimeIn().format(fmt));
-        System.out.println("Current exit  time: " + b.getTimeOut().format(fmt));
-        System.out.println("1. Change vehicle number");
-        System.out.println("2. Change booking end time manually");
-        System.out.println("3. Mark Early Exit (Leave now)");
-        System.out.print("Choose an option: ");
-        int choice = sc.nextInt();
-        sc.nextLine(); // consume newline
-
-        switch (choice) {
-            case 1 -> {
-                System.out.print("Enter new vehicle number: ");
-                String newVehicle = sc.nextLine();
-                b.getUser().setVehicleNumber(newVehicle);
-                System.out.println("✅ Vehicle number updated.");
-            }
-            case 2 -> {
-                System.out.print("Enter new exit time (yyyy-MM-dd HH:mm): ");
-                String input = sc.nextLine();
-                LocalDateTime newOut = LocalDateTime.parse(input, fmt);
-
-                if (newOut.isBefore(b.getTimeIn())) {
-                    System.out.println("⚠️ Error: Exit time cannot be before entry time.");
+    public void stopExpiry() {
+        expiry.stop();
+    }
+
+    private Booking releaseSlot(ParkingSlot slot, LocalDateTime now) {
+        return releaseSlots(List.of(slot), now)[0];
+    }
+
+    // Gives freed slots of one vehicle type back: each goes straight to the next user waiting for the type,
+    // or returns to the free pool. Runs under the type's lock so a concurrent booking cannot slip in between.
+    // The handovers are journaled in one write before anything changes, so a failed write leaves the users
+    // waiting and the slots free. Returns the booking each slot went to, null where nobody took it.
+    private Booking[] releaseSlots(List<ParkingSlot> freed, LocalDateTime now) {
+        Booking[] handed = new Booking[freed.size()];
+        WaitlistEntry[] served = new WaitlistEntry[handed.length];
+        VehicleType type = freed.get(0).getVehicleType();
+        ReentrantLock lock = slotPool.lockFor(type);
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            List<WaitlistEntry> waiting = waitlist.peek(type, handed.length);
+            List<String> records = new ArrayList<>();
+            for (int i = 0, w = 0; i < handed.length && w < waiting.size(); i++) {
+                ParkingSlot slot = freed.get(i);
+                WaitlistEntry next = waiting.get(w);
+                // The stay the user asked for (two hours if none), cut short if the slot is reserved sooner;
+                // a reservation already due keeps it free
+                LocalDateTime until = now.plus(next.getStay() == null ? HANDOVER_STAY : next.getStay());
+                LocalDateTime freeUntil = slotPool.freeUntil(slot, now);
+                if (freeUntil.isBefore(until)) {
+                    until = freeUntil;
+                }
+                if (!until.isAfter(now)) continue;
+
+                // Slot is never marked free, so the handover is atomic
+                served[i] = next;
+                w++;
+                User nextUser = customers.intern(served[i].getUser());
+                handed[i] = new Booking(bookingCounter.getAndIncrement(), nextUser, slot, now, until);
+                records.add(Journal.unwaitlisted(nextUser.getVehicleNumber()));
+                records.add(Journal.booked(handed[i]));
+            }
+            try {
+                logAll(records);
+            } catch (UncheckedIOException e) {
+                for (ParkingSlot slot : freed) {
+                    slot.markAvailable();
+                }
+                throw e;
+            }
+
+            for (int i = 0; i < handed.length; i++) {
+                Booking newBooking = handed[i];
+                if (newBooking == null) {
+                    freed.get(i).markAvailable();
+                    continue;
+                }
+                waitlist.removeByVehicle(newBooking.getUser().getVehicleNumber());
+                analytics.onWaitlistServed(served[i], now);
+                slotPool.restore(newBooking);
+                bookings.put(newBooking);
+                vehicleIndex.add(newBooking);
+                expiry.schedule(newBooking);
+                metrics.promotions.increment();
+                metrics.promotion.record(System.nanoTime() - start);
+            }
+            return handed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Batch operations ---
+    // For events and fleet operators: many bookings, check-ins or exits in one call, with one result per item
+    // in request order. Each vehicle type's lock is taken once for the whole batch and the journal gets a
+    // single write (bulk exits a second one, per type, for the slots they hand to the waitlist). As in the
+    // single-item calls, every write comes before the change it records, so a failed write changes nothing.
+
+    public List<BookingResult> bookSlots(List<BookingRequest> requests) {
+        List<BookingResult> results = bookSlotsLocked(requests);
+        for (BookingResult r : results) {
+            announce(BookingEvent.Type.BOOKED, r);
+        }
+        return results;
+    }
+
+    private List<BookingResult> bookSlotsLocked(List<BookingRequest> requests) {
+        for (BookingRequest r : requests) {
+            checkEntrance(r.getEntrance());
+        }
+        BookingResult[] results = new BookingResult[requests.size()];
+        List<Booking> claimed = new ArrayList<>();
+        stateLock.readLock().lock();
+        try {
+            // Items grouped by type, in request order within a type
+            Map<VehicleType, List<Integer>> byType = new LinkedHashMap<>();
+            for (int i = 0; i < results.length; i++) {
+                BookingRequest r = requests.get(i);
+                VehicleType type = VehicleType.find(r.getVehicleType());
+                ReentrantLock lock = type == null ? null : slotPool.lockFor(type);
+                if (!r.getTimeOut().isAfter(r.getTimeIn())) {
+                    results[i] = BookingResult.error(ResultCode.INVALID_TIME);
+                } else if (lock == null) {
+                    results[i] = BookingResult.error(ResultCode.NO_SLOT_AVAILABLE);
                 } else {
-                    b.setTimeOut(newOut);
-                    System.out.println("✅ Exit time updated. (Fee recalculated: ₹" + b.getFee() + ")");
+                    byType.computeIfAbsent(type, t -> new ArrayList<>()).add(i);
                 }
             }
-            case 3 -> {
-                LocalDateTime now = LocalDateTime.now();
-                if (now.isBefore(b.getTimeIn())) {
-                    System.out.println("⚠️ Error: Cannot leave before entry time.");
-                    return;
+            for (Map.Entry<VehicleType, List<Integer>> group : byType.entrySet()) {
+                ReentrantLock lock = slotPool.lockFor(group.getKey());
+                lock.lock();  // the pool's own locking below is then uncontended
+                try {
+                    for (int i : group.getValue()) {
+                        BookingRequest r = requests.get(i);
+                        Booking b = claim(r.getUser(), r.getTimeIn(), r.getTimeOut(), group.getKey(), r.getEntrance());
+                        if (b == null) {
+                            results[i] = BookingResult.error(ResultCode.NO_SLOT_AVAILABLE);
+                        } else {
+                            results[i] = BookingResult.ok(b);
+                            claimed.add(b);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
                 }
-                b.setTimeOut(now); // Update exit time to now
-                System.out.println("✅ Early exit marked. Exit time updated to now (Fee remains unchanged: ₹" + b.getFee() + ")");
+            }
 
-                // 1. Free up slot immediately
-                ParkingSlot slot = b.getSlot();
-                slot.markAvailable();
+            List<String> records = new ArrayList<>(claimed.size());
+            for (Booking b : claimed) {
+                records.add(Journal.booked(b));
+            }
+            try {
+                logAll(records);
+            } catch (UncheckedIOException e) {
+                for (Booking b : claimed) {
+                    unclaim(b);
+                }
+                throw e;
+            }
+            for (Booking b : claimed) {
+                track(b);
+            }
+            metrics.bookingsRejected.add(results.length - claimed.size());
+            return Arrays.asList(results);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Checks in many advance reservations; results as checkIn gives them
+    public List<BookingResult> checkIn(List<Integer> ids) {
+        List<BookingResult> results = checkInLocked(ids);
+        for (BookingResult r : results) {
+            announce(BookingEvent.Type.CHECKED_IN, r);
+        }
+        return results;
+    }
+
+    private List<BookingResult> checkInLocked(List<Integer> ids) {
+        BookingResult[] results = new BookingResult[ids.size()];
+        List<String> records = new ArrayList<>();
+        Map<Integer, Booking> claimed = new LinkedHashMap<>();  // result index -> reservation whose slot is held
+        Map<Integer, Integer> first = new HashMap<>();  // booking id -> its first index in the batch
+        stateLock.readLock().lock();
+        try {
+            for (int i = 0; i < results.length; i++) {
+                int id = ids.get(i);
+                Booking b = bookings.get(id);
+                if (b == null) {
+                    results[i] = BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+                } else if (first.putIfAbsent(id, i) != null) {
+                    continue;  // repeated id: same result as its first occurrence, filled in below
+                } else if (b.getStatus() == BookingStatus.ACTIVE) {
+                    results[i] = BookingResult.ok(b);
+                } else if (b.getStatus() == BookingStatus.CLOSED) {
+                    results[i] = BookingResult.error(ResultCode.ALREADY_EXITED, b);
+                } else if (!b.getSlot().tryBook()) {
+                    results[i] = BookingResult.error(ResultCode.SLOT_OCCUPIED, b);
+                } else {
+                    records.add(Journal.activated(id));
+                    claimed.put(i, b);
+                }
+            }
+            try {
+                logAll(records);
+            } catch (UncheckedIOException e) {
+                for (Booking b : claimed.values()) {
+                    b.getSlot().markAvailable();
+                }
+                throw e;
+            }
+            for (Map.Entry<Integer, Booking> c : claimed.entrySet()) {
+                Booking b = c.getValue();
+                if (b.activate()) {
+                    results[c.getKey()] = BookingResult.ok(b);
+                } else {
+                    // Cancelled meanwhile; its A record replays as a no-op
+                    b.getSlot().markAvailable();
+                    results[c.getKey()] = BookingResult.error(ResultCode.ALREADY_EXITED, b);
+                }
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) results[i] = results[first.get(ids.get(i))];
+            }
+            return Arrays.asList(results);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
 
-                // 2. Check and assign to waitlist user if any
-                if (!waitlist.isEmpty()) {
-                    User nextUser = waitlist.removeFromWaitlist();
-                    LocalDateTime twoHoursLater = now.plusHours(2);
+    // Many vehicles leave at the given time. Every slot of the batch is freed before any is handed to the
+    // waitlist, so promotions run once per type, and each result carries the booking its slot went to.
+    public List<BookingResult> earlyExit(List<Integer> ids, LocalDateTime now) {
+        List<BookingResult> results = earlyExitLocked(ids, now);
+        for (BookingResult r : results) {
+            announce(BookingEvent.Type.EXITED, r);
+        }
+        return results;
+    }
 
-                    Booking newBooking = new Booking(bookingCounter++, nextUser, slot, now, twoHoursLater);
-                    bookings.put(newBooking.getBookingId(), newBooking);
-                    slot.markBooked();
+    private List<BookingResult> earlyExitLocked(List<Integer> ids, LocalDateTime now) {
+        BookingResult[] results = new BookingResult[ids.size()];
+        List<String> records = new ArrayList<>();
+        Map<Integer, Booking> leaving = new LinkedHashMap<>();  // result index -> booking to close
+        long[] fees = new long[results.length];  // result index -> fee charged, as journaled
+        Set<Integer> seen = new HashSet<>();
+        Map<VehicleType, List<Integer>> freed = new LinkedHashMap<>();  // result indexes whose slot is to be released
+        stateLock.readLock().lock();
+        try {
+            for (int i = 0; i < results.length; i++) {
+                int id = ids.get(i);
+                Booking b = bookings.get(id);
+                if (b == null) {
+                    results[i] = BookingResult.error(ResultCode.BOOKING_NOT_FOUND);
+                } else if (now.isBefore(b.getTimeIn())) {
+                    results[i] = BookingResult.error(ResultCode.INVALID_TIME, b);
+                } else if (b.isClosed() || !seen.add(id)) {
+                    results[i] = BookingResult.error(ResultCode.ALREADY_EXITED, b);
+                } else {
+                    fees[i] = b.quote(now);
+                    records.add(Journal.exited(id, now, fees[i]));
+                    leaving.put(i, b);
+                }
+            }
+            logAll(records);  // before any booking closes, as in earlyExit
 
-                    System.out.println("🔄 Waitlisted user " + nextUser.getDetails() +
-                            " has been booked into slot " + slot.getSlotId() +
-                            " with Booking ID " + newBooking.getBookingId());
+            for (Map.Entry<Integer, Booking> e : leaving.entrySet()) {
+                int i = e.getKey();
+                Booking b = e.getValue();
+                BookingStatus previous = b.close();
+                if (previous == null) {
+                    // A concurrent exit won; this record replays as a no-op
+                    results[i] = BookingResult.error(ResultCode.ALREADY_EXITED, b);
+                    continue;
+                }
+                metrics.exits.increment();
+                slotPool.release(b);
+                b.setTimeOut(now);
+                b.freezeFee(fees[i]);
+                retire(b, false);
+                results[i] = BookingResult.ok(b);
+                if (previous == BookingStatus.ACTIVE) {
+                    analytics.onStayClosed(b);
+                    departures.record(b);
+                    freed.computeIfAbsent(b.getSlot().getVehicleType(), t -> new ArrayList<>()).add(i);
                 }
             }
-            default -> System.out.println("⚠️ Invalid choice.");
+            for (List<Integer> group : freed.values()) {
+                List<ParkingSlot> slots = new ArrayList<>(group.size());
+                for (int i : group) {
+                    slots.add(results[i].getBooking().getSlot());
+                }
+                Booking[] handed = releaseSlots(slots, now);
+                for (int k = 0; k < handed.length; k++) {
+                    int i = group.get(k);
+                    results[i] = BookingResult.ok(results[i].getBooking(), handed[k]);
+                }
+            }
+            return Arrays.asList(results);
+        } finally {
+            stateLock.readLock().unlock();
         }
     }
 
-    public void viewAllBookings() {
-        if (bookings.isEmpty()) {
-            System.out.println("📭 No bookings found.");
-            return;
+    // --- Forecasting ---
+
+    // Lets bookSlot overbook a full type by up to maxShare of its slots (0 turns it off), as long as the
+    // forecast expects the overbooked users to get a slot within the given minutes
+    public void setOverbooking(double maxShare, int withinMinutes) {
+        if (maxShare < 0 || withinMinutes <= 0) {
+            throw new IllegalArgumentException("Overbooking share must be >= 0 and window > 0 minutes");
         }
+        this.overbookShare = maxShare;
+        this.overbookMinutes = Math.min(withinMinutes, CapacityForecast.HORIZON_MINUTES);
+    }
 
-        System.out.println("\n📋 All Bookings:");
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Free capacity of the type over the next hours; null for a type no slot has
+    public CapacityForecast forecast(String vehicleType) {
+        VehicleType type = VehicleType.find(vehicleType);
+        if (type == null || slotPool.slotCount(type) == 0) return null;
+        return forecast(type, LocalDateTime.now());
+    }
 
-        for (Booking b : bookings.values()) {
-            System.out.println("---------------------------");
-            System.out.println("Booking ID: " + b.getBookingId());
-            System.out.println("User: " + b.getUser().getDetails());
-            System.out.println("Slot ID: " + b.getSlot().getSlotId() + " | Type: " + b.getSlot().getType());
-            System.out.println("Entry Time: " + b.getTimeIn().format(fmt));
-            System.out.println("Exit Time: " + b.getTimeOut().format(fmt));
-            System.out.println("Fee: ₹" + b.getFee());
+    // Reuses the last forecast while no slot has been booked or freed since and it is younger than
+    // FORECAST_TTL_SECONDS, so asking on every booking request costs two map lookups
+    private CapacityForecast forecast(VehicleType type, LocalDateTime now) {
+        long version = availability.current().getVersion();
+        CachedForecast cached = forecasts.get(type);
+        if (cached != null && cached.version == version
+                && !now.isBefore(cached.forecast.getAt()) && now.isBefore(cached.forecast.getAt().plusSeconds(FORECAST_TTL_SECONDS))) {
+            return cached.forecast;
+        }
+        CapacityForecast f = new CapacityForecast(type, now, slotPool.freeCount(type), slotPool.lastOccupants(type, now), departures);
+        forecasts.put(type, new CachedForecast(version, f));
+        return f;
+    }
+
+    // A forecast with the availability version it was made at, swapped in as one value so a reader never
+    // pairs one forecast with another's version
+    private static class CachedForecast {
+        final long version;
+        final CapacityForecast forecast;
+
+        CachedForecast(long version, CapacityForecast forecast) {
+            this.version = version;
+            this.forecast = forecast;
+        }
+    }
+
+    // When the last user waiting for the type can expect a slot, or null if not within the forecast horizon
+    public LocalDateTime waitlistEta(String vehicleType) {
+        VehicleType type = VehicleType.find(vehicleType);
+        if (type == null || slotPool.slotCount(type) == 0) return null;
+        return forecast(type, LocalDateTime.now()).getEta(waitlist.count(type));
+    }
+
+    // Teaches the departure model the stays archived over the last days; call after setArchive and before
+    // loading the text files, whose closed rows are learned as they load. Returns the stays learned.
+    public int learnFromArchive(int days) throws IOException {
+        BookingArchive a = archive;
+        if (a == null || days <= 0) return 0;
+        LocalDate to = LocalDate.now();
+        int learned = 0;
+        String token = null;
+        do {
+            HistoryPage page = a.findByDate(to.minusDays(days - 1), to, token, 1000);
+            for (ArchivedStay stay : page.getStays()) {
+                ParkingSlot slot = findSlotById(stay.getSlotId());
+                if (stay.isCancelled() || slot == null) continue;
+                departures.record(slot.getVehicleType(), stay.getTimeIn(), stay.getTimeOut());
+                learned++;
+            }
+            token = page.getNextPageToken();
+        } while (token != null);
+        forecasts.clear();
+        return learned;
+    }
+
+    // --- Events ---
+
+    // Publishes a successful change, then the promotion it caused, if any
+    private BookingResult announce(BookingEvent.Type type, BookingResult r) {
+        if (!r.isSuccess() || !events.hasSubscribers()) return r;
+        Booking b = r.getBooking();
+        Booking promoted = r.getPromoted();
+        events.publish(type, b, promoted, b.getUser(), b.getSlot().getType());
+        if (promoted != null) {
+            events.publish(BookingEvent.Type.PROMOTED, promoted, b, promoted.getUser(), promoted.getSlot().getType());
         }
+        return r;
     }
 
-    public void viewWaitlist() {
-        System.out.println("\n📋 Current Waitlist:");
-        if (waitlist.isEmpty()) {
-            System.out.println("No users are currently in the waitlist.");
+    // --- Archive ---
+
+    // From now on bookings leave memory for the archive once they close or are cancelled
+    public void setArchive(BookingArchive archive) {
+        this.archive = archive;
+    }
+
+    public BookingArchive getArchive() {
+        return archive;
+    }
+
+    // Archives a booking that has just closed and drops it from the maps. Called after the change is journaled,
+    // so a crash in between is repaired by replay (archiving is idempotent). A booking the archive cannot take
+    // stays in memory, as every closed booking did before archiving.
+    private void retire(Booking b, boolean cancelled) {
+        BookingArchive a = archive;
+        if (a == null) return;
+        try {
+            a.append(b, cancelled);
+        } catch (IOException e) {
+            metrics.archiveFailures.increment();
             return;
         }
+        if (bookings.remove(b)) vehicleIndex.remove(b);
+    }
 
-        int pos = 1;
-        for (User u : waitlist.getWaitlist()) {
-            System.out.println(pos++ + ". " + u.getDetails());
+    // --- Journal persistence ---
+
+    // From now on every mutation is appended to the journal before it takes effect
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    private void log(String record) {
+        Journal j = journal;
+        if (j == null) return;
+        try {
+            j.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing journal", e);
         }
     }
 
-    public void saveBookingsToFile() {
+    private void log(String record, List<String> batch) {
+        if (batch == null) {
+            log(record);
+        } else {
+            batch.add(record);
+        }
+    }
+
+    private void logAll(List<String> records) {
+        Journal j = journal;
+        if (j == null) return;
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("bookings.txt"));
+            j.appendAll(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing journal", e);
+        }
+    }
+
+    // Captures the whole state and switches to the next journal segment, atomically with respect
+    // to every mutation. The old journal is synced and closed.
+    StateImage rollJournal(Journal next) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            syncArchive();  // the image no longer holds what was archived, so it must be on disk first
+            StateImage image = captureImage();
+            Journal old = journal;
+            journal = next;
+            if (old != null) old.close();
+            return image;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void syncArchive() throws IOException {
+        BookingArchive a = archive;
+        if (a != null) a.sync();
+    }
+
+    private StateImage captureImage() {
+        List<Booking> sorted = new ArrayList<>(bookings.values());
+        sorted.sort(Comparator.comparingInt(Booking::getBookingId));
+        return new StateImage(bookingCounter.get(), sorted, waitlist.getWaitlist());
+    }
+
+    // Replay hooks used by Journal.replay: they apply a recorded change without journaling it again
+    // and without waitlist promotion, which the log records separately (P,vehicle followed by B).
+
+    // Only an ACTIVE booking holds its slot; CLOSED ones are kept for history and stay off the calendar, with
+    // the fee they were charged (Booking.OPEN if not stored: charged at today's tariff)
+    void restoreBooking(int id, User user, int slotId, LocalDateTime timeIn, LocalDateTime timeOut, BookingStatus status,
+                        long feePaise) {
+        ParkingSlot slot = findSlotById(slotId);
+        if (slot == null) return;
+        Booking booking = new Booking(id, customers.intern(user), slot, timeIn, timeOut, status);
+        if (status != BookingStatus.CLOSED) {
+            slotPool.restore(booking);  // throws on a clash, before anything else is touched
+            if (status == BookingStatus.ACTIVE) slot.markBooked();
+            expiry.schedule(booking);
+        } else {
+            booking.freezeFee(feePaise != Booking.OPEN ? feePaise : booking.quote(timeOut));
+            analytics.onStayClosed(booking);
+            departures.record(booking);
+        }
+        bookings.put(booking);
+        vehicleIndex.add(booking);
+        bookingCounter.accumulateAndGet(id + 1, Math::max);
+        if (status == BookingStatus.CLOSED) retire(booking, false);  // moves closed rows of older files to the archive
+    }
+
+    // The User is shared with the customer's other bookings, so the booking gets the new vehicle's User
+    private void changeUser(Booking b, String newVehicle) {
+        User old = b.getUser();
+        vehicleIndex.remove(b, old.getVehicleNumber());
+        b.setUser(customers.intern(old.getName(), newVehicle, old.getContact()));
+        vehicleIndex.add(b);
+    }
+
+    void applyBookingCounter(int next) {
+        bookingCounter.accumulateAndGet(next, Math::max);
+    }
+
+    void applyCancel(int id) {
+        Booking b = bookings.remove(id);
+        if (b == null) return;
+        vehicleIndex.remove(b);
+        retire(b, true);
+        BookingStatus previous = b.close();
+        if (previous == null) return;
+        slotPool.release(b);
+        if (previous == BookingStatus.ACTIVE) b.getSlot().markAvailable();
+    }
+
+    void applyActivate(int id) {
+        Booking b = bookings.get(id);
+        if (b != null && b.activate()) b.getSlot().markBooked();
+    }
+
+    void applyVehicleChange(int id, String newVehicle) {
+        Booking b = bookings.get(id);
+        if (b == null) return;
+        changeUser(b, newVehicle);
+    }
+
+    void applyExitTime(int id, LocalDateTime newOut, long feePaise) {
+        Booking b = bookings.get(id);
+        if (b == null) return;
+        if (b.isClosed()) {
+            b.setTimeOut(newOut);
+            b.freezeFee(feePaise != Booking.OPEN ? feePaise : b.quote(newOut));
+        } else {
+            slotPool.reschedule(b, newOut, false);
+            expiry.schedule(b);
+        }
+    }
+
+    void applyUpdate(int id, String newVehicle, LocalDateTime newOut, long feePaise) {
+        applyExitTime(id, newOut, feePaise);
+        applyVehicleChange(id, newVehicle);
+    }
+
+    void applyEarlyExit(int id, LocalDateTime out, long feePaise) {
+        Booking b = bookings.get(id);
+        if (b == null) return;
+        BookingStatus previous = b.close();
+        if (previous == null) return;
+        slotPool.release(b);
+        b.setTimeOut(out);
+        b.freezeFee(feePaise != Booking.OPEN ? feePaise : b.quote(out));
+        retire(b, false);
+        if (previous == BookingStatus.ACTIVE) {
+            analytics.onStayClosed(b);
+            departures.record(b);
+            b.getSlot().markAvailable();
+        }
+    }
+
+    void applyWaitlistAdd(WaitlistEntry entry) {
+        waitlist.addToWaitlist(entry);
+    }
+
+    // A null vehicle is a legacy record that always took the head of the single queue
+    void applyWaitlistRemove(String vehicleNumber) {
+        if (vehicleNumber == null) {
+            waitlist.removeOldest();
+        } else {
+            waitlist.removeByVehicle(vehicleNumber);
+        }
+    }
+
+    // --- Binary persistence ---
+
+    // Writes bookings, waitlist and the id counter to a single binary file (see BinaryStore)
+    public void saveToBinary(Path file) throws IOException {
+        StateImage image;
+        stateLock.writeLock().lock();
+        try {
+            syncArchive();
+            image = captureImage();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        BinaryStore.write(image, 0, file);
+    }
+
+    // Returns the number of bookings loaded
+    public int loadFromBinary(Path file) throws IOException {
+        return BinaryStore.load(file, this);
+    }
+
+    // --- CSV persistence ---
+    // Same comma-separated rows as ever; RecordCodec escapes commas and line breaks inside the fields
+
+    public synchronized void saveBookingsToFile() throws IOException {
+        long start = System.nanoTime();
+        syncArchive();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(dataDir.resolve("bookings.txt").toFile()))) {
             for (Booking b : bookings.values()) {
-                writer.write(
-                        b.getBookingId() + "," +
-                                b.getUser().getName() + "," +
-                                b.getUser().getVehicleNumber() + "," +
-                                b.getUser().getContact() + "," +
-                                b.getSlot().getSlotId() + "," +
-                                b.getTimeIn() + "," +
-                                b.getTimeOut() + "," +
-                                b.getFee()
-                );
+                User u = b.getUser();
+                writer.write(RecordCodec.join(b.getBookingId(), u.getName(), u.getVehicleNumber(), u.getContact(),
+                        b.getSlot().getSlotId(), b.getTimeIn(), b.getTimeOut(), b.getFee(), b.getStatus()));
                 writer.newLine();
             }
-            writer.close();
-        } catch (Exception e) {
-            System.out.println("⚠️ Error saving bookings: " + e.getMessage());
+        } finally {
+            metrics.saveBookings.record(System.nanoTime() - start);
         }
     }
 
-    public void saveWaitlistToFile() {
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter("waitlist.txt"));
-            for (User u : waitlist.getWaitlist()) {
-                writer.write(
-                        u.getName() + "," +
-                                u.getVehicleNumber() + "," +
-                                u.getContact()
-                );
+    public synchronized void saveWaitlistToFile() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(dataDir.resolve("waitlist.txt").toFile()))) {
+            for (WaitlistEntry e : waitlist.getWaitlist()) {
+                User u = e.getUser();
+                writer.write(RecordCodec.join(u.getName(), u.getVehicleNumber(), u.getContact(),
+                        e.getVehicleType(), e.getPriority(), e.getJoinedAt(), e.getStay() == null ? "" : e.getStay()));
                 writer.newLine();
             }
-            writer.close();
-        } catch (Exception e) {
-            System.out.println("⚠️ Error saving waitlist: " + e.getMessage());
         }
     }
 
-    public void loadBookingsFromFile() {
-        File file = new File("bookings.txt");
-        try {
-            if (!file.exists()) {
-                file.createNewFile();
-                return;
-            }
-            int count = 0;
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.isBlank()) continue;
-                    String[] parts = line.split(",");
-                    if (parts.length < 8) {
-                        continue; // Skip malformed lines
-                    }
+    // Returns the number of bookings loaded
+    public int loadBookingsFromFile() throws IOException {
+        return loadBookingsFromFile(dataDir.resolve("bookings.txt"));
+    }
 
-                    int id = Integer.parseInt(parts[0].trim());
-                    String name = parts[1].trim();
-                    String vehicleNumber = parts[2].trim();
-                    String contact = parts[3].trim();
-                    int slotId = Integer.parseInt(parts[4].trim());
-                    LocalDateTime timeIn  = LocalDateTime.parse(parts[5].trim());
-                    LocalDateTime timeOut = LocalDateTime.parse(parts[6].trim());
-                    double fee = Double.parseDouble(parts[7].trim());
-
-                    User user = new User(name, vehicleNumber, contact);
-                    ParkingSlot slot = findSlotById(slotId);
-                    if (slot != null) {
-                        slot.markBooked();
-                        Booking booking = new Booking(id, user, slot, timeIn, timeOut);
-                        bookings.put(id, booking);
-                        count++;
-                        bookingCounter = Math.max(bookingCounter, id + 1);
-                    }
-                }
-            }
-            System.out.println("✅ Loaded " + count + " bookings.");
-        } catch (IOException e) {
-            System.out.println("⚠️ Error loading bookings: " + e.getMessage());
-        }
+    public int loadBookingsFromFile(Path path) throws IOException {
+        return loadBookingsFromFile(path, new ArrayList<>());
     }
 
-    public void loadWaitlistFromFile() {
-        File file = new File("waitlist.txt");
-        try {
-            if (!file.exists()) {
-                file.createNewFile();
-                return;
-            }
-            int count = 0;
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.isBlank()) continue;
-                    String[] parts = line.split(",");
-                    if (parts.length < 3) {
-                        continue; // Skip malformed lines
-                    }
-                    String name = parts[0].trim();
-                    String vehicleNumber = parts[1].trim();
-                    String contact = parts[2].trim();
+    // Lines that do not parse are left out and added to skipped, as in BinaryStore.convert; bookings that
+    // clash with ones already loaded still fail the whole load
+    public int loadBookingsFromFile(Path path, List<String> skipped) throws IOException {
+        File file = path.toFile();
+        if (!file.exists()) {
+            file.createNewFile();
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] parts;
+                int id, slotId;
+                LocalDateTime timeIn, timeOut;
+                BookingStatus status;
+                long fee;
+                try {
+                    parts = RecordCodec.split(line);
+                    if (parts.length < 8) throw new IllegalArgumentException("Too few fields");
+                    id = Integer.parseInt(parts[0].trim());
+                    slotId = Integer.parseInt(parts[4].trim());
+                    timeIn = LocalDateTime.parse(parts[5].trim());
+                    timeOut = LocalDateTime.parse(parts[6].trim());
+                    // Files written before advance reservations have no status column
+                    status = parts.length > 8 ? BookingStatus.valueOf(parts[8].trim()) : BookingStatus.ACTIVE;
+                    fee = Math.round(Double.parseDouble(parts[7].trim()) * 100);  // kept for closed stays only
+                } catch (RuntimeException e) {
+                    skipped.add(line);
+                    continue;
+                }
+                String name = parts[1].trim();
+                String vehicleNumber = parts[2].trim();
+                String contact = parts[3].trim();
 
-                    User user = new User(name, vehicleNumber, contact);
-                    waitlist.addToWaitlist(user);
+                User user = customers.intern(name, vehicleNumber, contact);  // one User per repeat customer
+                if (findSlotById(slotId) != null) {
+                    try {
+                        restoreBooking(id, user, slotId, timeIn, timeOut, status, fee);
+                    } catch (IllegalStateException e) {
+                        throw new IOException(path + ": " + e.getMessage());
+                    }
                     count++;
                 }
             }
-            System.out.println("✅ Loaded " + count + " waitlist users.");
-        } catch (IOException e) {
-            System.out.println("⚠️ Error loading waitlist: " + e.getMessage());
         }
+        return count;
     }
 
-    public void checkFareByVehicleNumber(String vehicleNumber) {
-        List<Booking> bookingList = new ArrayList<>(bookings.values());
-        bookingList.sort(Comparator.comparing(b -> b.getUser().getVehicleNumber()));  // sort (optional)
+    // Returns the number of waitlisted users loaded
+    public int loadWaitlistFromFile() throws IOException {
+        return loadWaitlistFromFile(new ArrayList<>());
+    }
 
-        boolean found = false;
-        for (Booking b : bookingList) {
-            if (b.getUser().getVehicleNumber().equalsIgnoreCase(vehicleNumber)) {
-                System.out.println("\n📋 Booking Details for Vehicle: " + vehicleNumber);
-                System.out.println("Entry Time: " + b.getTimeIn());
-                System.out.println("Exit Time : " + b.getTimeOut());
-                System.out.println("Total Fare: ₹" + b.getFee());
-                found = true;
-                break;
-            }
+    // Lines that do not parse are left out and added to skipped
+    public int loadWaitlistFromFile(List<String> skipped) throws IOException {
+        File file = dataDir.resolve("waitlist.txt").toFile();
+        if (!file.exists()) {
+            file.createNewFile();
+            return 0;
         }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] parts;
+                WaitlistPriority priority;
+                LocalDateTime joinedAt;
+                Duration stay;
+                try {
+                    parts = RecordCodec.split(line);
+                    if (parts.length < 3) throw new IllegalArgumentException("Too few fields");
+                    // Rows written before typed queues have no type or priority
+                    priority = parts.length > 4 ? WaitlistPriority.valueOf(parts[4].trim()) : WaitlistPriority.REGULAR;
+                    joinedAt = parts.length > 5 ? LocalDateTime.parse(parts[5].trim()) : LocalDateTime.now();
+                    stay = parts.length > 6 && !parts[6].isBlank() ? Duration.parse(parts[6].trim()) : null;
+                } catch (RuntimeException e) {
+                    skipped.add(line);
+                    continue;
+                }
+                String name = parts[0].trim();
+                String vehicleNumber = parts[1].trim();
+                String contact = parts[2].trim();
+                VehicleType type = VehicleType.find(parts.length > 3 ? parts[3].trim() : "Car");
+                if (type == null) continue;  // a type the lot does not have
 
-        if (!found) {
-            System.out.println("⚠️ No booking found for vehicle number: " + vehicleNumber);
+                User user = customers.intern(name, vehicleNumber, contact);
+                if (waitlist.addToWaitlist(new WaitlistEntry(user, type, priority, joinedAt, stay))) count++;
+            }
         }
+        return count;
     }
 }
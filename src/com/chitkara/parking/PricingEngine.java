@@ -0,0 +1,91 @@
+package com.chitkara.parking;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Tariffs per vehicle type, optionally overridden per floor. Rules are compiled into TariffTables once,
+// when the engine is built; ParkingSystem hands each slot its table so a quote never looks anything up.
+//
+// tariffs.txt, one rule per line (amounts in rupees, times HH:mm, '#' starts a comment):
+//   type,floor,rate,peakRate,peakStart,peakEnd,dailyCap,graceMinutes[,unitMinutes[,up|down]]
+//   Car,*,20,30,08:00,20:00,200,10          every Car floor: ₹20/h, ₹30/h 08:00-20:00, ₹200 a day, 10 min free
+//   Car,2,15,15,00:00,00:00,0,0             floor 2 overrides it: flat ₹15/h, no cap
+// floor is a number or * for every floor; rates are per unit (default 60 minutes); a dailyCap of 0 means none.
+// "up" charges every started unit; "down" (default) whole units with a one-unit minimum.
+// Types without a rule use the default tariff (₹20/hour, whole hours, one-hour minimum).
+public class PricingEngine {
+    private static final int ANY_FLOOR = Integer.MIN_VALUE;
+
+    private final TariffTable defaultTable;
+    // type (case-insensitive) -> floor (or ANY_FLOOR) -> table
+    private final Map<String, Map<Integer, TariffTable>> tables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    public PricingEngine(Tariff defaultTariff) {
+        this(new TariffTable(defaultTariff));
+    }
+
+    private PricingEngine(TariffTable defaultTable) {
+        this.defaultTable = defaultTable;
+    }
+
+    // The original flat ₹20/hour for every type and floor
+    public static PricingEngine standard() {
+        return new PricingEngine(TariffTable.STANDARD);
+    }
+
+    // Adds a rule; floor null applies to every floor of the type without its own rule
+    public PricingEngine with(String vehicleType, Integer floor, Tariff tariff) {
+        tables.computeIfAbsent(vehicleType, t -> new HashMap<>())
+                .put(floor == null ? ANY_FLOOR : floor, new TariffTable(tariff));
+        return this;
+    }
+
+    public TariffTable tableFor(String vehicleType, int floor) {
+        Map<Integer, TariffTable> byFloor = tables.get(vehicleType);
+        if (byFloor == null) return defaultTable;
+        TariffTable t = byFloor.get(floor);
+        if (t == null) t = byFloor.get(ANY_FLOOR);
+        return t == null ? defaultTable : t;
+    }
+
+    public static PricingEngine load(Path file) throws IOException {
+        PricingEngine engine = standard();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                if (line.isBlank()) continue;
+                String[] p = line.split(",");
+                if (p.length < 8) throw new IOException(file + ":" + lineNo + ": expected at least 8 fields");
+                try {
+                    Tariff t = new Tariff(paise(p[2]), paise(p[3]),
+                            LocalTime.parse(p[4].trim()), LocalTime.parse(p[5].trim()),
+                            paise(p[6]), Integer.parseInt(p[7].trim()),
+                            p.length > 8 ? Integer.parseInt(p[8].trim()) : 60,
+                            p.length > 9 && p[9].trim().equalsIgnoreCase("up"));
+                    String floor = p[1].trim();
+                    engine.with(p[0].trim(), floor.equals("*") ? null : Integer.valueOf(floor), t);
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return engine;
+    }
+
+    // Exact rupees-to-paise conversion, e.g. "12.50" -> 1250
+    private static long paise(String rupees) {
+        return new BigDecimal(rupees.trim()).movePointRight(2).longValueExact();
+    }
+}
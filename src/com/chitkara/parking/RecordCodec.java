@@ -0,0 +1,60 @@
+package com.chitkara.parking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Comma-separated records whose fields may hold anything a user typed. A backslash, comma, CR or LF inside
+// a field is written as \\, \c, \r or \n, so a record is always one line with one comma per field boundary.
+// Files written before escaping read back the same, as long as no field held a backslash.
+final class RecordCodec {
+    private RecordCodec() {
+    }
+
+    static String join(Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(',');
+            escape(sb, String.valueOf(fields[i]));
+        }
+        return sb.toString();
+    }
+
+    private static void escape(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ',' -> sb.append("\\c");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    // Inverse of join; throws IllegalArgumentException on a dangling or unknown escape
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c != '\\') {
+                sb.append(c);
+            } else {
+                if (++i == line.length()) throw new IllegalArgumentException("Dangling escape: " + line);
+                switch (line.charAt(i)) {
+                    case '\\' -> sb.append('\\');
+                    case 'c' -> sb.append(',');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    default -> throw new IllegalArgumentException("Unknown escape \\" + line.charAt(i) + ": " + line);
+                }
+            }
+        }
+        fields.add(sb.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Non-overlapping [timeIn, timeOut) windows booked on one slot, keyed by start time.
+// Not thread-safe on its own: SlotPool only touches it under the slot type's lock.
+class ReservationCalendar {
+    private final TreeMap<LocalDateTime, Booking> byStart = new TreeMap<>();
+
+    // True if [in, out) overlaps no booking other than ignore (pass null to check against all)
+    boolean isFree(LocalDateTime in, LocalDateTime out, Booking ignore) {
+        // A window starting at in holds the key even if it has since been cut down to nothing
+        Booking same = byStart.get(in);
+        if (same != null && same != ignore) return false;
+        // Windows are disjoint, so walking back from the last start before out, ends are decreasing too:
+        // stop at the first window that ends by in
+        Map.Entry<LocalDateTime, Booking> e = byStart.lowerEntry(out);
+        while (e != null && e.getValue().getTimeOut().isAfter(in)) {
+            if (e.getValue() != ignore) return false;
+            e = byStart.lowerEntry(e.getKey());
+        }
+        return true;
+    }
+
+    // Throws IllegalStateException if another booking already starts at the same time
+    void add(Booking b) {
+        Booking other = byStart.putIfAbsent(b.getTimeIn(), b);
+        if (other != null && other != b) {
+            throw new IllegalStateException("Booking " + b.getBookingId() + " collides with booking " + other.getBookingId()
+                    + " on slot " + b.getSlot().getSlotId() + " at " + b.getTimeIn());
+        }
+    }
+
+    void remove(Booking b) {
+        byStart.remove(b.getTimeIn(), b);
+    }
+
+    // End of the free stretch starting at t: t itself if a window covers or starts at t,
+    // LocalDateTime.MAX if nothing is booked after it
+    LocalDateTime freeUntil(LocalDateTime t) {
+        Map.Entry<LocalDateTime, Booking> covering = byStart.floorEntry(t);
+        if (covering != null && (covering.getKey().equals(t) || covering.getValue().getTimeOut().isAfter(t))) return t;
+        LocalDateTime next = byStart.higherKey(t);
+        return next == null ? LocalDateTime.MAX : next;
+    }
+
+    // The window started last at or before t (it may have ended already, if its vehicle overstays), or null
+    Booking at(LocalDateTime t) {
+        Map.Entry<LocalDateTime, Booking> e = byStart.floorEntry(t);
+        return e == null ? null : e.getValue();
+    }
+
+    // End of the last window, or null when nothing is booked
+    LocalDateTime horizon() {
+        Map.Entry<LocalDateTime, Booking> last = byStart.lastEntry();
+        return last == null ? null : last.getValue().getTimeOut();
+    }
+}
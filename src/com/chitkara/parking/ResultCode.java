@@ -0,0 +1,15 @@
+package com.chitkara.parking;
+
+// Outcome of a ParkingSystem operation
+public enum ResultCode {
+    OK,
+    NO_SLOT_AVAILABLE,   // no free slot of the requested type; caller may offer the waitlist
+    OVERBOOKED,          // no free slot, but the user is first in line for the next one, expected by getEta()
+    BOOKING_NOT_FOUND,
+    VEHICLE_NOT_FOUND,
+    INVALID_TIME,        // e.g. exit before entry
+    ALREADY_EXITED,      // booking has already given its slot back
+    SLOT_OCCUPIED,       // reservation check-in while the previous vehicle is still parked
+    SLOT_CONFLICT,       // new times overlap another booking on the same slot
+    LOT_NOT_FOUND        // LotRouter has no lot with the given id
+}
@@ -0,0 +1,317 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Free slots grouped by vehicle type. Within a type the free slots are kept once per entrance, ordered
+// by walking distance from that entrance (then floor, so equally distant slots fill one floor before
+// the next, then slot id); the nearest or farthest free slot for a gate is the first or last element.
+// ParkingSlot notifies the pool from markBooked()/markAvailable(), so the pool never goes stale.
+// Every type has its own lock, so gates booking different vehicle types never contend.
+//
+// The pool also owns each slot's ReservationCalendar. Per type it keeps every slot ordered by its
+// calendar horizon (end of its last booked window), so "a slot free from T1 to T2" is usually one
+// floor lookup: the slot whose bookings all end latest but still by T1. Only when no slot is free
+// after T1 does it fall back to looking for a gap inside the calendars.
+public class SlotPool {
+    private static final Comparator<ParkingSlot> BY_SLOT_ID = Comparator.comparingInt(ParkingSlot::getSlotId);
+    private static final Comparator<ParkingSlot> BY_HORIZON = Comparator
+            .comparing((ParkingSlot s) -> s.reservedUntil, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(ParkingSlot::getSlotId);
+
+    private static class TypePool {
+        final ReentrantLock lock = new ReentrantLock();
+        final List<TreeSet<ParkingSlot>> free = new ArrayList<>();           // not occupied right now, per entrance
+        final TreeSet<ParkingSlot> byHorizon = new TreeSet<>(BY_HORIZON);   // every slot of the type
+
+        TypePool(int entrances) {
+            for (int e = 0; e < entrances; e++) {
+                int entrance = e;
+                free.add(new TreeSet<>(Comparator.comparingInt((ParkingSlot s) -> s.getDistance(entrance))
+                        .thenComparingInt(ParkingSlot::getFloor)
+                        .thenComparing(BY_SLOT_ID)));
+            }
+        }
+
+        void addFree(ParkingSlot slot) {
+            for (TreeSet<ParkingSlot> set : free) {
+                set.add(slot);
+            }
+        }
+
+        void removeFree(ParkingSlot slot) {
+            for (TreeSet<ParkingSlot> set : free) {
+                set.remove(slot);
+            }
+        }
+    }
+
+    private final int entrances;
+
+    // Indexed by VehicleType code, so finding a type's pool is an array load.
+    // Only written by register(), which runs while the lot is being set up.
+    private TypePool[] pools = new TypePool[0];
+    private AvailabilityBoard board;  // told about every slot booked or freed, once set
+
+    public SlotPool() {
+        this(1);
+    }
+
+    public SlotPool(int entrances) {
+        this.entrances = entrances;
+    }
+
+    public void register(ParkingSlot slot) {
+        if (slot.entranceCount() != entrances) {
+            throw new IllegalArgumentException("Slot " + slot.getSlotId() + " has distances to " + slot.entranceCount() +
+                    " entrances, the lot has " + entrances);
+        }
+        int code = slot.getVehicleType().code();
+        if (code >= pools.length) pools = Arrays.copyOf(pools, code + 1);
+        if (pools[code] == null) pools[code] = new TypePool(entrances);
+        TypePool pool = pools[code];
+        slot.setPool(this);
+        if (slot.isAvailable()) {
+            pool.addFree(slot);
+        }
+        pool.byHorizon.add(slot);
+    }
+
+    void setBoard(AvailabilityBoard board) {
+        this.board = board;
+    }
+
+    void onBooked(ParkingSlot slot) {
+        TypePool pool = poolFor(slot.getVehicleType());
+        if (pool == null) return;
+        pool.lock.lock();
+        try {
+            pool.removeFree(slot);
+        } finally {
+            pool.lock.unlock();
+        }
+        if (board != null) board.slotChanged(slot);
+    }
+
+    void onAvailable(ParkingSlot slot) {
+        TypePool pool = poolFor(slot.getVehicleType());
+        if (pool == null) return;
+        pool.lock.lock();
+        try {
+            // Re-check under the lock: the slot may have been claimed again already
+            if (slot.isAvailable()) pool.addFree(slot);
+        } finally {
+            pool.lock.unlock();
+        }
+        if (board != null) board.slotChanged(slot);
+    }
+
+    // Claims the free slot nearest to the entrance whose calendar is clear for [in, out) and books it with
+    // the factory; returns the booking, or null if no slot fits
+    public Booking claimNearest(VehicleType vehicleType, int entrance, LocalDateTime in, LocalDateTime out,
+                                Function<ParkingSlot, Booking> factory) {
+        return claim(vehicleType, entrance, false, in, out, factory);
+    }
+
+    // As claimNearest, but takes the free slot farthest from the entrance
+    public Booking claimFarthest(VehicleType vehicleType, int entrance, LocalDateTime in, LocalDateTime out,
+                                 Function<ParkingSlot, Booking> factory) {
+        return claim(vehicleType, entrance, true, in, out, factory);
+    }
+
+    private Booking claim(VehicleType vehicleType, int entrance, boolean farthest, LocalDateTime in, LocalDateTime out,
+                          Function<ParkingSlot, Booking> factory) {
+        TypePool pool = poolFor(vehicleType);
+        if (pool == null) return null;
+        pool.lock.lock();
+        try {
+            TreeSet<ParkingSlot> free = pool.free.get(entrance);
+            ParkingSlot slot = farthest ? last(free) : first(free);
+            while (slot != null) {
+                // A slot claimed directly via tryBook() may still sit in the set until its
+                // owner gets the lock, so step past it instead of failing
+                ParkingSlot next = farthest ? free.lower(slot) : free.higher(slot);
+                if (slot.getCalendar().isFree(in, out, null) && slot.tryBook()) {
+                    Booking booking = factory.apply(slot);
+                    addToCalendar(pool, booking);
+                    return booking;
+                }
+                slot = next;
+            }
+            return null;
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    // A slot of the type with nothing booked in [in, out), or null. Does not reserve anything.
+    public ParkingSlot findFree(VehicleType vehicleType, LocalDateTime in, LocalDateTime out) {
+        TypePool pool = poolFor(vehicleType);
+        if (pool == null) return null;
+        pool.lock.lock();
+        try {
+            return findFree(pool, vehicleType, in, out);
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    // Books [in, out) on a slot of the type without occupying it yet; returns the booking, or null if none fits
+    public Booking reserve(VehicleType vehicleType, LocalDateTime in, LocalDateTime out, Function<ParkingSlot, Booking> factory) {
+        TypePool pool = poolFor(vehicleType);
+        if (pool == null) return null;
+        pool.lock.lock();
+        try {
+            ParkingSlot slot = findFree(pool, vehicleType, in, out);
+            if (slot == null) return null;
+            Booking booking = factory.apply(slot);
+            addToCalendar(pool, booking);
+            return booking;
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    private ParkingSlot findFree(TypePool pool, VehicleType vehicleType, LocalDateTime in, LocalDateTime out) {
+        // Best fit: the slot whose last window ends latest but no later than in
+        ParkingSlot probe = new ParkingSlot(Integer.MAX_VALUE, 0, vehicleType, 0);
+        probe.reservedUntil = in;
+        ParkingSlot slot = pool.byHorizon.floor(probe);
+        if (slot != null) return slot;
+
+        // Every slot has something booked after in: look for a gap
+        for (ParkingSlot s : pool.byHorizon) {
+            if (s.getCalendar().isFree(in, out, null)) return s;
+        }
+        return null;
+    }
+
+    // Puts an existing booking back on its slot's calendar (load, replay, waitlist handover).
+    // Throws IllegalStateException if its window overlaps another booking's, e.g. in a hand-edited file.
+    void restore(Booking booking) {
+        TypePool pool = poolFor(booking.getSlot().getVehicleType());
+        if (pool == null) return;
+        pool.lock.lock();
+        try {
+            ParkingSlot slot = booking.getSlot();
+            if (!slot.getCalendar().isFree(booking.getTimeIn(), booking.getTimeOut(), booking)) {
+                throw new IllegalStateException("Booking " + booking.getBookingId() + " overlaps another booking on slot "
+                        + slot.getSlotId() + " (" + booking.getTimeIn() + " to " + booking.getTimeOut() + ")");
+            }
+            addToCalendar(pool, booking);
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    // Takes a booking off its slot's calendar; call before changing its times
+    void release(Booking booking) {
+        ParkingSlot slot = booking.getSlot();
+        TypePool pool = poolFor(slot.getVehicleType());
+        if (pool == null) return;
+        pool.lock.lock();
+        try {
+            slot.getCalendar().remove(booking);
+            reindex(pool, slot);
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    // Moves a booked window's end. With check set, refuses (returns false) if the new window
+    // would overlap another booking on the slot.
+    boolean reschedule(Booking booking, LocalDateTime newOut, boolean check) {
+        ParkingSlot slot = booking.getSlot();
+        TypePool pool = poolFor(slot.getVehicleType());
+        if (pool == null) return false;
+        pool.lock.lock();
+        try {
+            if (check && !slot.getCalendar().isFree(booking.getTimeIn(), newOut, booking)) return false;
+            booking.setTimeOut(newOut);
+            reindex(pool, slot);  // the horizon is cached on the slot, so removal still finds it
+            return true;
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    // How long the slot stays unbooked from t: t itself if a window covers t, LocalDateTime.MAX if nothing follows
+    LocalDateTime freeUntil(ParkingSlot slot, LocalDateTime t) {
+        ReentrantLock lock = lockFor(slot.getVehicleType());
+        lock.lock();
+        try {
+            return slot.getCalendar().freeUntil(t);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addToCalendar(TypePool pool, Booking booking) {
+        ParkingSlot slot = booking.getSlot();
+        slot.getCalendar().add(booking);
+        reindex(pool, slot);
+    }
+
+    private void reindex(TypePool pool, ParkingSlot slot) {
+        pool.byHorizon.remove(slot);
+        slot.reservedUntil = slot.getCalendar().horizon();
+        pool.byHorizon.add(slot);
+    }
+
+    // Lock guarding the given type's free slots, for callers that must act atomically with them
+    public ReentrantLock lockFor(VehicleType vehicleType) {
+        TypePool pool = poolFor(vehicleType);
+        return pool == null ? null : pool.lock;
+    }
+
+    public int freeCount(VehicleType vehicleType) {
+        TypePool pool = poolFor(vehicleType);
+        if (pool == null) return 0;
+        pool.lock.lock();
+        try {
+            return pool.free.get(0).size();
+        } finally {
+            pool.lock.unlock();
+        }
+    }
+
+    public int slotCount(VehicleType vehicleType) {
+        TypePool pool = poolFor(vehicleType);
+        return pool == null ? 0 : pool.byHorizon.size();  // fixed once registration is done
+    }
+
+    // Bookings holding a slot of the type at t after which the slot has nothing else booked,
+    // i.e. the slot is free for good once they leave; for forecasting departures
+    List<Booking> lastOccupants(VehicleType vehicleType, LocalDateTime t) {
+        TypePool pool = poolFor(vehicleType);
+        if (pool == null) return List.of();
+        List<Booking> occupants = new ArrayList<>();
+        pool.lock.lock();
+        try {
+            for (ParkingSlot slot : pool.byHorizon) {
+                if (slot.isAvailable()) continue;
+                Booking b = slot.getCalendar().at(t);
+                if (b != null && b.getTimeOut().equals(slot.getCalendar().horizon())) occupants.add(b);
+            }
+        } finally {
+            pool.lock.unlock();
+        }
+        return occupants;
+    }
+
+    private TypePool poolFor(VehicleType vehicleType) {
+        if (vehicleType == null) return null;
+        int code = vehicleType.code();
+        return code < pools.length ? pools[code] : null;
+    }
+
+    private static ParkingSlot first(TreeSet<ParkingSlot> set) {
+        return set.isEmpty() ? null : set.first();
+    }
+
+    private static ParkingSlot last(TreeSet<ParkingSlot> set) {
+        return set.isEmpty() ? null : set.last();
+    }
+}
@@ -0,0 +1,161 @@
+package com.chitkara.parking;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Journal persistence with periodic checkpoints, so a restart loads one compact image plus a short tail.
+//
+// The journal is split into numbered segments (journal.<gen>.log). A checkpoint switches to segment gen+1
+// and captures the full state at that instant, writes it to snapshot.dat tagged with gen+1, and then deletes
+// the older segments. Recovery loads snapshot.dat and replays only the segments numbered from its tag on,
+// which stays correct if the process dies at any point of a checkpoint.
+// Snapshots are text journal records (snapshot.dat) or, when binary is set, a BinaryStore image (snapshot.bin).
+public class SnapshotManager implements Closeable {
+    private static final Pattern SEGMENT = Pattern.compile("journal\\.(\\d+)\\.log");
+
+    private final ParkingSystem ps;
+    private final Path dir;
+    private final int syncEvery;
+    private final boolean binary;
+    private final String snapshotFile;
+    private long generation = 0;  // segment currently being appended to
+    private ScheduledExecutorService scheduler;
+
+    public SnapshotManager(ParkingSystem ps, Path dir, int syncEvery, boolean binary) {
+        this.ps = ps;
+        this.dir = dir;
+        this.syncEvery = syncEvery;
+        this.binary = binary;
+        this.snapshotFile = binary ? "snapshot.bin" : "snapshot.dat";
+    }
+
+    // Loads the snapshot if there is one; returns false when the caller should load the text files instead
+    public boolean loadSnapshot() throws IOException {
+        Path file = dir.resolve(snapshotFile);
+        if (!Files.exists(file)) return false;
+        if (binary) {
+            generation = BinaryStore.readGeneration(file);
+            BinaryStore.load(file, ps);
+            return true;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();  // S,<generation>
+            if (header == null || !header.startsWith("S,")) {
+                throw new IOException("Bad snapshot header in " + file);
+            }
+            generation = Long.parseLong(header.substring(2).trim());
+        }
+        Journal.replay(file, ps);  // header line is ignored by replay
+        return true;
+    }
+
+    // Replays every journal segment written since the loaded snapshot; returns the number of records applied
+    public int replayJournal() throws IOException {
+        int count = 0;
+        for (long gen : segments()) {
+            if (gen < generation) continue;  // already folded into the snapshot
+            count += Journal.replay(segment(gen), ps);
+            generation = gen;
+        }
+        return count;
+    }
+
+    // Starts appending to the newest segment
+    public void openJournal() throws IOException {
+        ps.setJournal(new Journal(segment(generation), syncEvery));
+    }
+
+    // Writes a snapshot and drops the journal segments it covers
+    public synchronized void checkpoint() throws IOException {
+        long next = generation + 1;
+        StateImage image = ps.rollJournal(new Journal(segment(next), syncEvery));
+        generation = next;
+
+        if (binary) {
+            BinaryStore.write(image, next, dir.resolve(snapshotFile));
+        } else {
+            writeText(image, next);
+        }
+
+        for (long gen : segments()) {
+            if (gen < next) Files.deleteIfExists(segment(gen));
+        }
+    }
+
+    private void writeText(StateImage image, long gen) throws IOException {
+        Path tmp = dir.resolve(snapshotFile + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder sb = new StringBuilder(64 * image.bookings.size() + 64);
+            sb.append("S,").append(gen).append('\n');
+            sb.append(Journal.counter(image.nextBookingId)).append('\n');
+            for (Booking b : image.bookings) {
+                sb.append(Journal.booked(b)).append('\n');  // carries the status, closed ones included
+            }
+            for (WaitlistEntry e : image.waitlist) {
+                sb.append(Journal.waitlisted(e)).append('\n');
+            }
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(snapshotFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Checkpoints every intervalSeconds on a background daemon thread
+    public synchronized void startPeriodic(long intervalSeconds) {
+        if (scheduler != null || intervalSeconds <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                // Keep the schedule alive; the journal still holds every change
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stops the periodic checkpoints, takes a final one and closes the journal
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        checkpoint();
+        Journal journal = ps.getJournal();
+        if (journal != null) journal.close();
+    }
+
+    private Path segment(long gen) {
+        return dir.resolve("journal." + gen + ".log");
+    }
+
+    // Existing segment numbers, oldest first
+    private List<Long> segments() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "journal.*.log")) {
+            for (Path p : stream) {
+                Matcher m = SEGMENT.matcher(p.getFileName().toString());
+                if (m.matches()) gens.add(Long.parseLong(m.group(1)));
+            }
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+}
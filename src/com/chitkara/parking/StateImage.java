@@ -0,0 +1,18 @@
+package com.chitkara.parking;
+
+import java.util.List;
+
+// Point-in-time copy of a ParkingSystem's contents, written out by snapshots and binary saves.
+// Bookings are shared references, so a field changed after capture may already show its new value;
+// every journal record that can follow the image re-applies such a change idempotently.
+class StateImage {
+    final int nextBookingId;
+    final List<Booking> bookings;   // ordered by booking id
+    final List<WaitlistEntry> waitlist;  // join order
+
+    StateImage(int nextBookingId, List<Booking> bookings, List<WaitlistEntry> waitlist) {
+        this.nextBookingId = nextBookingId;
+        this.bookings = bookings;
+        this.waitlist = waitlist;
+    }
+}
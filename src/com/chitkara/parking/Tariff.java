@@ -0,0 +1,55 @@
+package com.chitkara.parking;
+
+import java.time.LocalTime;
+
+// One pricing rule as configured; PricingEngine compiles it into a TariffTable for fast quotes.
+// Amounts are in paise. A stay is charged per billing unit, at the rate of the band the unit starts in.
+public class Tariff {
+    private final long ratePaise;        // per unit, off-peak
+    private final long peakRatePaise;    // per unit, inside [peakStart, peakEnd); may wrap past midnight
+    private final LocalTime peakStart;
+    private final LocalTime peakEnd;
+    private final long dailyCapPaise;    // most charged per 24 hours from entry; 0 = no cap
+    private final int graceMinutes;      // stays shorter than this are free
+    private final int unitMinutes;       // billing unit; must divide a day
+    private final boolean roundUp;       // charge a started unit (true) or whole units only, at least one (false)
+
+    public Tariff(long ratePaise, long peakRatePaise, LocalTime peakStart, LocalTime peakEnd,
+                  long dailyCapPaise, int graceMinutes, int unitMinutes, boolean roundUp) {
+        if (unitMinutes <= 0 || TariffTable.MINUTES_PER_DAY % unitMinutes != 0) {
+            throw new IllegalArgumentException("Billing unit must divide a day: " + unitMinutes + " minutes");
+        }
+        this.ratePaise = ratePaise;
+        this.peakRatePaise = peakRatePaise;
+        this.peakStart = peakStart;
+        this.peakEnd = peakEnd;
+        this.dailyCapPaise = dailyCapPaise;
+        this.graceMinutes = graceMinutes;
+        this.unitMinutes = unitMinutes;
+        this.roundUp = roundUp;
+    }
+
+    // Flat hourly rate, whole hours with a one-hour minimum: the original ₹20/hour pricing when ratePaise is 2000
+    public static Tariff flatHourly(long ratePaise) {
+        return new Tariff(ratePaise, ratePaise, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, 0, 0, 60, false);
+    }
+
+    // Rate of a unit starting at the given minute of the day
+    long rateAt(int minuteOfDay) {
+        int start = peakStart.getHour() * 60 + peakStart.getMinute();
+        int end = peakEnd.getHour() * 60 + peakEnd.getMinute();
+        boolean peak = start <= end
+                ? minuteOfDay >= start && minuteOfDay < end
+                : minuteOfDay >= start || minuteOfDay < end;
+        return peak ? peakRatePaise : ratePaise;
+    }
+
+    public long getRatePaise() { return ratePaise; }
+    public long getPeakRatePaise() { return peakRatePaise; }
+    public LocalTime getPeakStart() { return peakStart; }
+    public LocalTime getPeakEnd() { return peakEnd; }
+    public long getDailyCapPaise() { return dailyCapPaise; }
+    public int getGraceMinutes() { return graceMinutes; }
+    public int getUnitMinutes() { return unitMinutes; }
+    public boolean isRoundUp() { return roundUp; }
+}
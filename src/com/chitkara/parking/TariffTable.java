@@ -0,0 +1,58 @@
+package com.chitkara.parking;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// A Tariff compiled for constant-time quotes.
+//
+// Units of a stay start at entry, entry + unit, entry + 2 units, ... so their minutes of the day all share
+// the residue r = entry minute mod unit. For every residue the table holds prefix sums of unit rates over two
+// days of consecutive unit starts; the cost of any k < unitsPerDay units is then one subtraction, and whole
+// days repeat the same (capped) day cost. A quote does a few array reads and no allocation.
+public final class TariffTable {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final TariffTable STANDARD = new TariffTable(Tariff.flatHourly(2000));  // ₹20/hour
+
+    private final int unit;
+    private final int unitsPerDay;
+    private final int stride;            // prefix entries per residue
+    private final long[] prefix;         // [residue * stride + i] = cost of the first i units from residue r, day start
+    private final long dailyCap;
+    private final int grace;
+    private final boolean roundUp;
+
+    TariffTable(Tariff t) {
+        unit = t.getUnitMinutes();
+        unitsPerDay = MINUTES_PER_DAY / unit;
+        stride = 2 * unitsPerDay + 1;
+        prefix = new long[unit * stride];
+        for (int r = 0; r < unit; r++) {
+            int base = r * stride;
+            for (int i = 0; i < 2 * unitsPerDay; i++) {
+                prefix[base + i + 1] = prefix[base + i] + t.rateAt((r + i * unit) % MINUTES_PER_DAY);
+            }
+        }
+        dailyCap = t.getDailyCapPaise();
+        grace = t.getGraceMinutes();
+        roundUp = t.isRoundUp();
+    }
+
+    // Fee in paise for a stay from in to out (0 if out is before in)
+    public long quote(LocalDateTime in, LocalDateTime out) {
+        long minutes = (out.toEpochSecond(ZoneOffset.UTC) - in.toEpochSecond(ZoneOffset.UTC)) / 60;
+        if (minutes < 0 || minutes < grace) return 0;
+
+        long units = roundUp ? (minutes + unit - 1) / unit : minutes / unit;
+        if (units < 1) units = 1;
+
+        int minuteOfDay = in.getHour() * 60 + in.getMinute();
+        int base = (minuteOfDay % unit) * stride + minuteOfDay / unit;
+        long day = capped(prefix[base + unitsPerDay] - prefix[base]);
+        int rest = (int) (units % unitsPerDay);
+        return (units / unitsPerDay) * day + capped(prefix[base + rest] - prefix[base]);
+    }
+
+    private long capped(long cost) {
+        return dailyCap > 0 && cost > dailyCap ? dailyCap : cost;
+    }
+}
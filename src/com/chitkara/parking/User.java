@@ -2,7 +2,7 @@ package com.chitkara.parking;
 
 public class User {
     private String name;
-    private String vehicleNumber;
+    private volatile String vehicleNumber;
     private String contact;
 
     public User(String name, String vehicleNumber, String contact) {
@@ -17,6 +17,7 @@ public class User {
     }
 
     // add inside User class
+    // Changes every booking sharing this User (see CustomerRegistry); ParkingSystem.changeVehicleNumber moves just one
     public void setVehicleNumber(String vehicleNumber) {
         this.vehicleNumber = vehicleNumber;
     }
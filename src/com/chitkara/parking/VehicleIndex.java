@@ -0,0 +1,71 @@
+package com.chitkara.parking;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Secondary index: normalized vehicle number -> bookings for that vehicle (oldest first).
+// Each entry is an immutable array replaced atomically per key, so readers never lock or copy.
+public class VehicleIndex {
+    private static final Booking[] NONE = new Booking[0];
+
+    private Map<String, Booking[]> index = new ConcurrentHashMap<>();
+
+    // Vehicle numbers are matched case-insensitively and ignoring surrounding spaces. Most lookups pass a
+    // number already in that form (as typed at the gate, or as stored), which is returned as is.
+    public static String normalize(String vehicleNumber) {
+        return isNormal(vehicleNumber) ? vehicleNumber : vehicleNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // No surrounding whitespace, no lower-case letters; non-ASCII takes the slow path to be safe
+    private static boolean isNormal(String s) {
+        int n = s.length();
+        if (n > 0 && (s.charAt(0) <= ' ' || s.charAt(n - 1) <= ' ')) return false;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if ((c >= 'a' && c <= 'z') || c >= 0x80) return false;
+        }
+        return true;
+    }
+
+    public void add(Booking b) {
+        String key = normalize(b.getUser().getVehicleNumber());
+        index.compute(key, (k, list) -> {
+            if (list == null) return new Booking[] { b };
+            Booking[] grown = Arrays.copyOf(list, list.length + 1);
+            grown[list.length] = b;
+            return grown;
+        });
+    }
+
+    public void remove(Booking b) {
+        remove(b, b.getUser().getVehicleNumber());
+    }
+
+    // Used when the vehicle number is about to change, so the old key is passed explicitly
+    public void remove(Booking b, String vehicleNumber) {
+        index.computeIfPresent(normalize(vehicleNumber), (k, list) -> {
+            for (int i = 0; i < list.length; i++) {
+                if (list[i] == b) {
+                    if (list.length == 1) return null;  // drop the key entirely
+                    Booking[] shrunk = new Booking[list.length - 1];
+                    System.arraycopy(list, 0, shrunk, 0, i);
+                    System.arraycopy(list, i + 1, shrunk, i, list.length - i - 1);
+                    return shrunk;
+                }
+            }
+            return list;
+        });
+    }
+
+    // Most recent booking for the vehicle, or null if the vehicle has none
+    public Booking latest(String vehicleNumber) {
+        Booking[] list = index.get(normalize(vehicleNumber));
+        return list == null ? null : list[list.length - 1];
+    }
+
+    // All bookings for the vehicle, oldest first
+    public List<Booking> getBookings(String vehicleNumber) {
+        Booking[] list = index.getOrDefault(normalize(vehicleNumber), NONE);
+        return Collections.unmodifiableList(Arrays.asList(list));
+    }
+}
@@ -0,0 +1,65 @@
+package com.chitkara.parking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interned vehicle type. Every name maps to one instance with a small dense code, so the booking path
+// indexes arrays by code and compares types by identity instead of comparing strings case-insensitively.
+// Types are open-ended (the lot topology may introduce "EV" or "Truck"), so this is an interning registry
+// rather than a Java enum; names are matched case-insensitively and keep the spelling first seen.
+public final class VehicleType {
+    private static final ConcurrentHashMap<String, VehicleType> BY_NAME = new ConcurrentHashMap<>();
+    private static final List<VehicleType> BY_CODE = new ArrayList<>();
+
+    public static final VehicleType CAR = of("Car");
+    public static final VehicleType BIKE = of("Bike");
+
+    private final int code;
+    private final String name;
+
+    private VehicleType(int code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    // The type with this name, created on first use
+    public static VehicleType of(String name) {
+        VehicleType t = find(name);
+        if (t != null) return t;
+        synchronized (BY_CODE) {
+            String key = name.trim().toLowerCase(Locale.ROOT);
+            t = BY_NAME.get(key);
+            if (t == null) {
+                t = new VehicleType(BY_CODE.size(), name.trim());
+                BY_CODE.add(t);
+                BY_NAME.put(key, t);
+                BY_NAME.put(t.name, t);
+            }
+            return t;
+        }
+    }
+
+    // The type with this name, or null if no slot or request has used it. An exact-case hit costs one
+    // hash lookup with no allocation; other spellings are lower-cased first.
+    public static VehicleType find(String name) {
+        if (name == null) return null;
+        VehicleType t = BY_NAME.get(name);
+        return t != null ? t : BY_NAME.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    // Dense code: 0, 1, 2, ... in order of first use
+    public int code() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -2,15 +2,149 @@ package com.chitkara.parking;
 
 import java.util.*;
 
+// Users waiting for a slot, kept in one FIFO queue per vehicle type and priority class.
+// Each queue is a LinkedHashMap keyed by normalized vehicle number, so taking the head and removing
+// a given vehicle are both O(1); a freed slot only ever looks at queues of its own type.
+// Waitlist changes are rare next to bookings, so one monitor guards everything.
 public class Waitlist {
-    private Queue<User> queue = new LinkedList<>();
+    private static final int PRIORITY_CLASSES = WaitlistPriority.values().length;
 
-    public void addToWaitlist(User u) { queue.add(u); }
-    public User removeFromWaitlist()  { return queue.poll(); }
-    public User viewNextInWaitlist()  { return queue.peek(); }
-    public boolean isEmpty()          { return queue.isEmpty(); }
-    public Queue<User> getWaitlist() {
-        return queue;
+    // Indexed by VehicleType code, as in SlotPool; grows when an entry brings a new type
+    private List<List<LinkedHashMap<String, WaitlistEntry>>> queues = new ArrayList<>();
+    private final LinkedHashMap<String, WaitlistEntry> all = new LinkedHashMap<>();  // every entry, join order
+
+    // Returns false if the vehicle is already waiting
+    public synchronized boolean addToWaitlist(WaitlistEntry e) {
+        String key = VehicleIndex.normalize(e.getUser().getVehicleNumber());
+        if (all.containsKey(key)) return false;
+        all.put(key, e);
+        queuesFor(e.getVehicleType()).get(e.getPriority().ordinal()).put(key, e);
+        return true;
+    }
+
+    // Next user for a slot of the type: classes in SERVICE_ORDER, then longest waiting; null if none
+    public synchronized WaitlistEntry removeFromWaitlist(VehicleType vehicleType) {
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = existingQueues(vehicleType);
+        if (byPriority == null) return null;
+        for (WaitlistPriority priority : WaitlistPriority.SERVICE_ORDER) {
+            LinkedHashMap<String, WaitlistEntry> queue = byPriority.get(priority.ordinal());
+            if (queue.isEmpty()) continue;
+            Iterator<Map.Entry<String, WaitlistEntry>> head = queue.entrySet().iterator();
+            Map.Entry<String, WaitlistEntry> first = head.next();
+            head.remove();
+            all.remove(first.getKey());
+            return first.getValue();
+        }
+        return null;
+    }
+
+    // Removes the given vehicle wherever it waits; returns its entry, or null if it was not waiting
+    public synchronized WaitlistEntry removeByVehicle(String vehicleNumber) {
+        String key = VehicleIndex.normalize(vehicleNumber);
+        WaitlistEntry e = all.remove(key);
+        if (e != null) {
+            queuesFor(e.getVehicleType()).get(e.getPriority().ordinal()).remove(key);
+        }
+        return e;
+    }
+
+    // The vehicle's entry, or null if it is not waiting
+    public synchronized WaitlistEntry get(String vehicleNumber) {
+        return all.get(VehicleIndex.normalize(vehicleNumber));
+    }
+
+    // Place of the vehicle in the line for its type (1 = next to get a slot), or 0 if it is not waiting
+    public synchronized int position(String vehicleNumber) {
+        String key = VehicleIndex.normalize(vehicleNumber);
+        WaitlistEntry e = all.get(key);
+        if (e == null) return 0;
+        int position = 1;
+        for (WaitlistPriority priority : WaitlistPriority.SERVICE_ORDER) {
+            for (String k : queuesFor(e.getVehicleType()).get(priority.ordinal()).keySet()) {
+                if (k.equals(key)) return position;
+                position++;
+            }
+        }
+        return 0;
+    }
+
+    // Longest waiting user of any type; only used to replay journals written before typed queues
+    synchronized WaitlistEntry removeOldest() {
+        if (all.isEmpty()) return null;
+        return removeByVehicle(all.values().iterator().next().getUser().getVehicleNumber());
+    }
+
+    public synchronized WaitlistEntry viewNextInWaitlist(VehicleType vehicleType) {
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = existingQueues(vehicleType);
+        if (byPriority == null) return null;
+        for (WaitlistPriority priority : WaitlistPriority.SERVICE_ORDER) {
+            LinkedHashMap<String, WaitlistEntry> queue = byPriority.get(priority.ordinal());
+            if (!queue.isEmpty()) return queue.values().iterator().next();
+        }
+        return null;
+    }
+
+    // The next n users for slots of the type (fewer if fewer wait), in the order removeFromWaitlist takes them
+    public synchronized List<WaitlistEntry> peek(VehicleType vehicleType, int n) {
+        List<WaitlistEntry> next = new ArrayList<>();
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = existingQueues(vehicleType);
+        if (byPriority == null) return next;
+        for (WaitlistPriority priority : WaitlistPriority.SERVICE_ORDER) {
+            for (WaitlistEntry e : byPriority.get(priority.ordinal()).values()) {
+                if (next.size() == n) return next;
+                next.add(e);
+            }
+        }
+        return next;
+    }
+
+    // Users of the type waiting in the given class
+    public synchronized int count(VehicleType vehicleType, WaitlistPriority priority) {
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = existingQueues(vehicleType);
+        return byPriority == null ? 0 : byPriority.get(priority.ordinal()).size();
+    }
+
+    // Users of the type waiting in any class
+    public synchronized int count(VehicleType vehicleType) {
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = existingQueues(vehicleType);
+        if (byPriority == null) return 0;
+        int n = 0;
+        for (LinkedHashMap<String, WaitlistEntry> queue : byPriority) {
+            n += queue.size();
+        }
+        return n;
+    }
+
+    public synchronized boolean isEmpty() {
+        return all.isEmpty();
     }
 
+    public synchronized int size() {
+        return all.size();
+    }
+
+    // Copy of every entry in the order users joined
+    public synchronized List<WaitlistEntry> getWaitlist() {
+        return new ArrayList<>(all.values());
+    }
+
+    private List<LinkedHashMap<String, WaitlistEntry>> existingQueues(VehicleType vehicleType) {
+        if (vehicleType == null || vehicleType.code() >= queues.size()) return null;
+        return queues.get(vehicleType.code());
+    }
+
+    private List<LinkedHashMap<String, WaitlistEntry>> queuesFor(VehicleType vehicleType) {
+        while (queues.size() <= vehicleType.code()) {
+            queues.add(null);
+        }
+        List<LinkedHashMap<String, WaitlistEntry>> byPriority = queues.get(vehicleType.code());
+        if (byPriority == null) {
+            byPriority = new ArrayList<>(PRIORITY_CLASSES);
+            for (int i = 0; i < PRIORITY_CLASSES; i++) {
+                byPriority.add(new LinkedHashMap<>());
+            }
+            queues.set(vehicleType.code(), byPriority);
+        }
+        return byPriority;
+    }
 }
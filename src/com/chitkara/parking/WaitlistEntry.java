@@ -0,0 +1,65 @@
+package com.chitkara.parking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// A user waiting for a slot of one vehicle type
+public class WaitlistEntry {
+    private final User user;
+    private final VehicleType vehicleType;
+    private final WaitlistPriority priority;
+    private final LocalDateTime joinedAt;
+    private final Duration stay;  // how long the user asked to park for; null takes the default handover
+
+    public WaitlistEntry(User user, VehicleType vehicleType, WaitlistPriority priority) {
+        this(user, vehicleType, priority, LocalDateTime.now());
+    }
+
+    // The String forms take only a type some slot or earlier request registered; see known()
+    public WaitlistEntry(User user, String vehicleType, WaitlistPriority priority) {
+        this(user, known(vehicleType), priority, LocalDateTime.now());
+    }
+
+    public WaitlistEntry(User user, String vehicleType, WaitlistPriority priority, LocalDateTime joinedAt) {
+        this(user, known(vehicleType), priority, joinedAt);
+    }
+
+    // Looks the type up rather than registering it, so a typo cannot add a type nobody can serve
+    private static VehicleType known(String vehicleType) {
+        VehicleType type = VehicleType.find(vehicleType);
+        if (type == null) throw new IllegalArgumentException("Unknown vehicle type: " + vehicleType);
+        return type;
+    }
+
+    public WaitlistEntry(User user, VehicleType vehicleType, WaitlistPriority priority, LocalDateTime joinedAt) {
+        this(user, vehicleType, priority, joinedAt, null);
+    }
+
+    public WaitlistEntry(User user, VehicleType vehicleType, WaitlistPriority priority, LocalDateTime joinedAt, Duration stay) {
+        this.user = user;
+        this.vehicleType = vehicleType;
+        this.priority = priority;
+        this.joinedAt = joinedAt;
+        this.stay = stay;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public WaitlistPriority getPriority() {
+        return priority;
+    }
+
+    public LocalDateTime getJoinedAt() {
+        return joinedAt;
+    }
+
+    public Duration getStay() {
+        return stay;
+    }
+}
@@ -0,0 +1,11 @@
+package com.chitkara.parking;
+
+// Waitlist classes; SERVICE_ORDER is the order they are served in, and within a class users are served
+// first come, first served. New classes go at the end, since binary files store the ordinal.
+public enum WaitlistPriority {
+    PERMIT,     // reserved / permit holders
+    REGULAR,
+    OVERBOOKED; // booked while the lot was full, on the forecast that a slot frees up soon
+
+    static final WaitlistPriority[] SERVICE_ORDER = {OVERBOOKED, PERMIT, REGULAR};
+}
@@ -0,0 +1,94 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsTest {
+    private static final LocalDateTime T = LocalDateTime.parse("2024-03-01T09:30");
+    private static final List<ParkingSlot> LOT = List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 2, "Bike"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void stayIsSpreadOverTheHoursItCovers() {
+        AnalyticsReport r = new AnalyticsReport();
+        r.addStay(1, "Car", T, T.plusMinutes(90), 4000);
+        long[] hours = r.getOccupiedMinutesByHour().get("Floor 1 Car");
+        assertEquals(30, hours[9]);
+        assertEquals(60, hours[10]);
+        assertEquals(0, hours[11]);
+
+        r.addStay(1, "Car", T, T.plusDays(1), 20000);  // a whole day adds an hour to every bucket
+        hours = r.getOccupiedMinutesByHour().get("Floor 1 Car");
+        assertEquals(90, hours[9]);
+        assertEquals(60, hours[3]);
+        assertEquals(2, r.getStays());
+        assertEquals((90 + 24 * 60) / 2.0, r.getAverageDwellMinutes());
+        assertEquals(Map.of(LocalDate.of(2024, 3, 1), 4000L, LocalDate.of(2024, 3, 2), 20000L), r.getRevenuePaiseByDay());
+    }
+
+    @Test
+    void mergedChunksMatchOneReport() {
+        AnalyticsReport whole = new AnalyticsReport(), a = new AnalyticsReport(), b = new AnalyticsReport();
+        for (int i = 0; i < 10; i++) {
+            AnalyticsReport part = i % 2 == 0 ? a : b;
+            LocalDateTime in = T.plusHours(5L * i);
+            whole.addStay(1 + i % 2, "Car", in, in.plusMinutes(40 + i), 100 * i);
+            part.addStay(1 + i % 2, "Car", in, in.plusMinutes(40 + i), 100 * i);
+        }
+        whole.addWait(T, T.plusMinutes(12));
+        b.addWait(T, T.plusMinutes(12));
+        AnalyticsReport merged = a.copy().merge(b);
+        assertEquals(whole.getStays(), merged.getStays());
+        assertEquals(whole.getAverageDwellMinutes(), merged.getAverageDwellMinutes());
+        assertEquals(whole.getRevenuePaiseByDay(), merged.getRevenuePaiseByDay());
+        assertEquals(12.0, merged.getAverageWaitMinutes());
+        for (Map.Entry<String, long[]> e : whole.getOccupiedMinutesByHour().entrySet()) {
+            assertArrayEquals(e.getValue(), merged.getOccupiedMinutesByHour().get(e.getKey()), e.getKey());
+        }
+    }
+
+    @Test
+    void liveFiguresFollowExitsAndHandovers() {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), now.minusHours(2), now.plusHours(1), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+        ps.earlyExit(b.getBookingId(), now);
+
+        AnalyticsReport r = ps.getAnalytics();
+        assertEquals(1, r.getStays());
+        assertEquals(120.0, r.getAverageDwellMinutes());
+        assertEquals(4000L, r.getRevenuePaiseByDay().get(now.toLocalDate()));
+        assertEquals(1, r.getWaits());
+    }
+
+    @Test
+    void historyFileCountsOnlyFinishedStays() throws IOException {
+        Path file = Files.write(dir.resolve("bookings.txt"), List.of(
+                RecordCodec.join(1, "Ann", "AN 1", "1", 1, "2024-03-01T10:00", "2024-03-01T12:00", "40.0", "CLOSED"),
+                RecordCodec.join(2, "Bob", "BO 1", "2", 2, "2024-03-01T10:00", "2024-03-01T11:00", "20.0", "ACTIVE"),
+                RecordCodec.join(3, "Cy", "CY 1", "3", 1, "2024-03-02T10:00", "2024-03-02T11:00", "20.0", "RESERVED"),
+                RecordCodec.join(4, "Dee", "DE 1", "4", 1, "2024-03-02T10:00", "2024-03-02T11:00", "20.0", "CANCELLED"),
+                RecordCodec.join(5, "Eve", "EV 1", "5", 1, "2999-01-01T10:00", "2999-01-01T11:00", "20.0", "ACTIVE"),
+                RecordCodec.join(6, "Fay", "FA 1", "6", 9, "2024-03-01T10:00", "2024-03-01T11:00", "20.0", "CLOSED"),
+                "not,a,booking"));
+        for (boolean parallel : new boolean[] {false, true}) {
+            AnalyticsReport r = HistoryAnalyzer.analyze(file, LOT, parallel);
+            assertEquals(2, r.getStays());
+            assertEquals(Map.of(LocalDate.of(2024, 3, 1), 6000L), r.getRevenuePaiseByDay());
+            assertEquals(60, r.getOccupiedMinutesByHour().get("Floor 2 Bike")[10]);
+        }
+    }
+}
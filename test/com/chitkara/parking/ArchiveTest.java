@@ -0,0 +1,117 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+    private static final ParkingSlot SLOT = new ParkingSlot(1, 1, "Car");
+
+    @TempDir
+    Path dir;
+
+    private BookingArchive archive;
+    private int nextId = 1;
+
+    @BeforeEach
+    void open() throws IOException {
+        archive = new BookingArchive(dir);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        archive.close();
+    }
+
+    // A stay on the given day; every tenth one is vehicle AN 1
+    private int archive(LocalDate day, int minute) throws IOException {
+        int id = nextId++;
+        String vehicle = id % 10 == 0 ? "AN 1" : "X " + id;
+        LocalDateTime in = day.atStartOfDay().plusMinutes(minute);
+        assertTrue(archive.append(new Booking(id, new User("U" + id, vehicle, "1"), SLOT, in, in.plusMinutes(30)), false));
+        return id;
+    }
+
+    private List<Integer> ids(List<ArchivedStay> stays) {
+        return stays.stream().map(ArchivedStay::getBookingId).toList();
+    }
+
+    private interface Query {
+        HistoryPage page(String token) throws IOException;
+    }
+
+    // Pages through a query; every page but the last must be full
+    private List<Integer> all(Query query, int pageSize) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        String token = null;
+        do {
+            HistoryPage page = query.page(token);
+            assertTrue(page.getStays().size() <= pageSize);
+            if (page.hasMore()) assertEquals(pageSize, page.getStays().size());
+            ids.addAll(ids(page.getStays()));
+            token = page.getNextPageToken();
+        } while (token != null);
+        return ids;
+    }
+
+    @Test
+    void datePagesCoverEveryStayOnceInOrder() throws IOException {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 150; i++) expected.add(archive(DAY, i));  // more than two index strides
+        for (int i = 0; i < 5; i++) expected.add(archive(DAY.plusDays(1), i));
+        archive(DAY.plusDays(3), 0);  // outside the range
+
+        for (int size : new int[] {1, 7, 64, 155, 500}) {
+            assertEquals(expected, all(t -> archive.findByDate(DAY, DAY.plusDays(2), t, size), size), "page size " + size);
+        }
+        HistoryPage mid = archive.findByDate(DAY, DAY.plusDays(2), null, 100);
+        assertEquals(DAY + ":100", mid.getNextPageToken());
+        assertEquals(expected.subList(100, 110), ids(archive.findByDate(DAY, DAY.plusDays(2), mid.getNextPageToken(), 10).getStays()));
+        assertTrue(archive.findByDate(DAY.plusDays(5), DAY.plusDays(9), null, 10).getStays().isEmpty());
+    }
+
+    @Test
+    void vehiclePagesRunNewestDayFirst() throws IOException {
+        for (int i = 0; i < 100; i++) archive(DAY, i);           // AN 1 is ids 10, 20, ... 100
+        for (int i = 0; i < 20; i++) archive(DAY.plusDays(2), i); // 110, 120
+        List<Integer> ids = all(t -> archive.findByVehicle(" an 1", t, 3), 3);
+        assertEquals(List.of(110, 120, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100), ids);
+        assertEquals(120, archive.latestByVehicle("AN 1").getBookingId());
+        assertTrue(archive.findByVehicle("ZZ 9", null, 10).getStays().isEmpty());
+        assertNull(archive.latestByVehicle("ZZ 9"));
+    }
+
+    @Test
+    void tokensOutliveAppendsAndReopening() throws IOException {
+        for (int i = 0; i < 70; i++) archive(DAY, i);
+        HistoryPage first = archive.findByDate(DAY, DAY, null, 65);
+        archive(DAY, 500);  // appended after the token was handed out
+        archive.close();
+        archive = new BookingArchive(dir);
+
+        List<Integer> rest = ids(archive.findByDate(DAY, DAY, first.getNextPageToken(), 100).getStays());
+        assertEquals(List.of(66, 67, 68, 69, 70, 71), rest);
+        Booking again = new Booking(70, new User("U70", "AN 1", "1"), SLOT, DAY.atTime(1, 0), DAY.atTime(2, 0));
+        assertFalse(archive.append(again, false));  // archived already, e.g. on journal replay
+        assertEquals(71, new HashSet<>(all(t -> archive.findByDate(DAY, DAY, t, 9), 9)).size());
+    }
+
+    @Test
+    void badTokensAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> archive.findByDate(DAY, DAY, "garbage", 10));
+        assertThrows(DateTimeException.class, () -> archive.findByVehicle("AN 1", "2024-13-01:0", 10));
+    }
+}
@@ -0,0 +1,82 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentTest {
+    private static final int WEST = 0, EAST = 1;
+
+    @TempDir
+    Path dir;
+
+    private ParkingSystem ps;
+    private LocalDateTime in;
+    private int users;
+
+    // One row of 21 Car slots 3 m apart between a west gate at x=0 and an east gate at x=60,
+    // and a second floor reached by a lift at the west end
+    @BeforeEach
+    void lot() throws IOException {
+        Path file = Files.writeString(dir.resolve("lot.txt"), """
+                entrance,West,1,0,0
+                entrance,East,1,60,0
+                lift,0,0
+                1-21,1,Car,,0,0
+                101-102,2,Car,,0,0
+                """);
+        ps = new ParkingSystem(LotTopology.load(file), dir);
+        in = LocalDateTime.now().withNano(0).minusMinutes(5);
+    }
+
+    private int book(int entrance, int hours) {
+        users++;
+        BookingResult r = ps.bookSlot(new User("U" + users, "V " + users, "1"), in, in.plusHours(hours), "Car", entrance);
+        assertTrue(r.isSuccess(), r.getCode().toString());
+        return r.getBooking().getSlot().getSlotId();
+    }
+
+    @Test
+    void shortStaysGetTheSlotNearestTheirGate() {
+        assertEquals(1, book(WEST, 2));
+        assertEquals(21, book(EAST, 2));
+        assertEquals(2, book(WEST, 1));
+        assertEquals(20, book(EAST, 3));
+    }
+
+    @Test
+    void longStaysGetTheFarthestSlot() {
+        // From the west the upper floor is 10 m by lift, nearer than the far end of the row
+        assertEquals(21, book(WEST, 5));
+        assertEquals(102, book(EAST, 5));  // 60 m back along the row, up, and 3 m along
+        assertEquals(101, book(EAST, 5));
+        assertEquals(1, book(EAST, 5));
+        assertEquals(2, book(WEST, 1));
+    }
+
+    @Test
+    void freedSlotIsNearestAgain() {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, book(WEST, 1));
+        }
+        Booking first = ps.findBookingByVehicle("V 1");
+        assertTrue(ps.earlyExit(first.getBookingId(), in.plusMinutes(10)).isSuccess());
+        assertEquals(1, book(WEST, 1));
+        assertEquals(4, book(WEST, 1));
+    }
+
+    @Test
+    void unknownEntranceIsRefused() {
+        User u = new User("Ann", "AN 1", "1");
+        assertThrows(IllegalArgumentException.class, () -> ps.bookSlot(u, in, in.plusHours(1), "Car", 2));
+        assertThrows(IllegalArgumentException.class, () -> ps.bookSlot(u, in, in.plusHours(1), "Car", -1));
+        assertEquals(23, ps.getFreeSlotCount("Car"));
+    }
+}
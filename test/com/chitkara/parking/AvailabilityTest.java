@@ -0,0 +1,112 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityTest {
+    @TempDir
+    Path dir;
+
+    private final LocalDateTime in = LocalDateTime.now().withNano(0).minusMinutes(5);
+
+    // 130 Car slots on floor 1, so the group's bitmap spans three words, and two Bike slots on floor 2
+    private ParkingSystem lot() {
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (int id = 1; id <= 130; id++) {
+            slots.add(new ParkingSlot(id, 1, "Car"));
+        }
+        slots.add(new ParkingSlot(201, 2, "Bike"));
+        slots.add(new ParkingSlot(202, 2, "Bike"));
+        return new ParkingSystem(slots, dir);
+    }
+
+    private Booking book(ParkingSystem ps, int n, String type) {
+        return ps.bookSlot(new User("U" + n, "V " + n, "1"), in, in.plusHours(1), type).getBooking();
+    }
+
+    @Test
+    void eachChangePublishesTheNextVersion() {
+        ParkingSystem ps = lot();
+        AvailabilitySnapshot start = ps.getAvailability();
+        assertEquals(1, start.getVersion());
+        assertEquals(132, start.getFreeCount());
+        assertEquals(Map.of("Bike", 2, "Car", 130), start.getFreeCountsByType());
+
+        Booking bike = book(ps, 1, "Bike");
+        AvailabilitySnapshot afterBike = ps.getAvailability();
+        assertEquals(2, afterBike.getVersion());
+        assertArrayEquals(new int[] {202}, afterBike.getFreeSlotIds(2, "bike"));
+        // Only the changed group is copied; the old snapshot is untouched
+        assertSame(start.getGroups().get(0), afterBike.getGroups().get(0));
+        assertNotSame(start.getGroups().get(1), afterBike.getGroups().get(1));
+        assertEquals(2, start.getFreeCount(2, "Bike"));
+
+        assertTrue(ps.cancelBooking(bike.getBookingId()).isSuccess());
+        AvailabilitySnapshot afterCancel = ps.getAvailability();
+        assertEquals(3, afterCancel.getVersion());
+        assertEquals(132, afterCancel.getFreeCount());
+        assertEquals(0, afterCancel.getFreeCount(3, "Car"));
+        assertArrayEquals(new int[0], afterCancel.getFreeSlotIds(3, "Car"));
+    }
+
+    @Test
+    void bitsAcrossWordBoundariesTrackTheirSlots() {
+        ParkingSystem ps = lot();
+        for (int n = 0; n < 129; n++) {
+            book(ps, n, "Car");
+        }
+        AvailabilitySnapshot s = ps.getAvailability();
+        assertEquals(130, s.getVersion());
+        assertEquals(1, s.getFreeCount("CAR"));
+        AvailabilitySnapshot.Group cars = s.getGroups().get(0);
+        assertEquals(130, cars.getSlotCount());
+        int freeId = s.getFreeSlotIds(1, "Car")[0];
+        for (int bit = 0; bit < 130; bit++) {
+            assertEquals(bit + 1 == freeId, cars.isFree(bit), "bit " + bit);
+        }
+
+        // Free slots on either side of the 64-bit word edges
+        for (int n = 0; n < 129; n++) {
+            Booking b = ps.findBookingByVehicle("V " + n);
+            if (List.of(64, 65, 128).contains(b.getSlot().getSlotId())) ps.cancelBooking(b.getBookingId());
+        }
+        int[] free = ps.getAvailability().getFreeSlotIds(1, "Car");
+        assertEquals(4, free.length);
+        assertArrayEquals(IntStream.of(64, 65, 128, freeId).sorted().toArray(), free);
+        assertEquals(133, ps.getAvailability().getVersion());
+    }
+
+    @Test
+    void concurrentChangesLeaveTheBoardMatchingTheSlots() throws InterruptedException {
+        ParkingSystem ps = lot();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            threads.add(new Thread(() -> {
+                for (int n = 0; n < 30; n++) {
+                    Booking b = book(ps, base + n, "Car");
+                    if (n % 3 == 0) ps.cancelBooking(b.getBookingId());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+        AvailabilitySnapshot s = ps.getAvailability();
+        int[] expected = ps.getSlots().stream().filter(slot -> slot.getType().equals("Car") && slot.isAvailable())
+                .mapToInt(ParkingSlot::getSlotId).toArray();
+        assertArrayEquals(expected, s.getFreeSlotIds(1, "Car"));
+        assertEquals(130 - 80, s.getFreeCount("Car"));
+        assertEquals(1 + 120 + 40, s.getVersion());
+    }
+}
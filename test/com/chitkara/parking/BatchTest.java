@@ -0,0 +1,130 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+    @TempDir
+    Path dir;
+
+    private ParkingSystem lot() {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+    }
+
+    private static User user(String vehicle) {
+        return new User("U " + vehicle, vehicle, "0");
+    }
+
+    @Test
+    void failedBulkCheckInWriteChangesNothing() throws IOException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusHours(1);
+        Booking a = ps.reserveSlot(user("A 1"), in, in.plusHours(1), "Car").getBooking();
+        Booking b = ps.reserveSlot(user("B 1"), in, in.plusHours(1), "Car").getBooking();
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.checkIn(List.of(a.getBookingId(), b.getBookingId())));
+        assertEquals(BookingStatus.RESERVED, a.getStatus());
+        assertEquals(BookingStatus.RESERVED, b.getStatus());
+        assertEquals(2, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void failedBulkCheckOutWriteChangesNothing() throws IOException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking a = ps.bookSlot(user("A 1"), in, in.plusHours(3), "Car").getBooking();
+        Booking b = ps.bookSlot(user("B 1"), in, in.plusHours(3), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(user("W 1"), "Car"));
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class,
+                () -> ps.earlyExit(List.of(a.getBookingId(), b.getBookingId()), LocalDateTime.now()));
+        assertFalse(a.isClosed());
+        assertFalse(b.isClosed());
+        assertEquals(0, ps.getFreeSlotCount("Car"));
+        assertEquals(1, ps.getWaitlistDepth());
+    }
+
+    // Exits journaled, handovers not: memory must match what replay rebuilds
+    @Test
+    void failedHandoverWriteMatchesReplay() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        ParkingSystem ps = lot();
+        ps.setJournal(new FailingJournal(log, 4));  // two bookings, one waitlist join, the exits
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking a = ps.bookSlot(user("A 1"), in, in.plusHours(3), "Car").getBooking();
+        Booking b = ps.bookSlot(user("B 1"), in, in.plusHours(3), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(user("W 1"), "Car"));
+        assertThrows(UncheckedIOException.class,
+                () -> ps.earlyExit(List.of(a.getBookingId(), b.getBookingId()), LocalDateTime.now()));
+        ps.getJournal().close();
+
+        ParkingSystem replayed = lot();
+        Journal.replay(log, replayed);
+        for (ParkingSystem p : List.of(ps, replayed)) {
+            assertTrue(p.getBooking(a.getBookingId()) == null || p.getBooking(a.getBookingId()).isClosed());
+            assertEquals(2, p.getFreeSlotCount("Car"));
+            assertEquals(1, p.getWaitlistDepth());
+            assertNull(p.findBookingByVehicle("W 1"));
+        }
+    }
+
+    @Test
+    void resultsComeBackInRequestOrder() throws IOException {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Bike")), dir);
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 1));  // the whole batch is one write
+        LocalDateTime in = LocalDateTime.now().withNano(0).minusMinutes(5);
+        List<BookingResult> results = ps.bookSlots(List.of(
+                new BookingRequest(user("C 1"), in, in.plusHours(1), "Car"),
+                new BookingRequest(user("B 1"), in, in.plusHours(1), "Bike"),
+                new BookingRequest(user("C 2"), in, in.plusHours(1), "Car"),
+                new BookingRequest(user("X 1"), in, in, "Bike"),
+                new BookingRequest(user("T 1"), in, in.plusHours(1), "Hovercraft"),
+                new BookingRequest(user("B 2"), in, in.plusHours(1), "bike")));
+        assertEquals(List.of(ResultCode.OK, ResultCode.OK, ResultCode.NO_SLOT_AVAILABLE, ResultCode.INVALID_TIME,
+                ResultCode.NO_SLOT_AVAILABLE, ResultCode.NO_SLOT_AVAILABLE), results.stream().map(BookingResult::getCode).toList());
+        assertEquals("C 1", results.get(0).getBooking().getUser().getVehicleNumber());
+        assertEquals(2, results.get(1).getBooking().getSlot().getSlotId());
+        assertEquals(4, ps.getMetrics().getBookingsRejected());
+    }
+
+    @Test
+    void repeatedCheckInGetsItsFirstResult() {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusHours(1);
+        Booking a = ps.reserveSlot(user("A 1"), in, in.plusHours(1), "Car").getBooking();
+        List<BookingResult> results = ps.checkIn(List.of(a.getBookingId(), 999, a.getBookingId()));
+        assertEquals(List.of(ResultCode.OK, ResultCode.BOOKING_NOT_FOUND, ResultCode.OK),
+                results.stream().map(BookingResult::getCode).toList());
+        assertSame(results.get(0), results.get(2));
+        assertEquals(BookingStatus.ACTIVE, a.getStatus());
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void bulkExitHandsFreedSlotsToTheWaitlistInOrder() {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking a = ps.bookSlot(user("A 1"), in, in.plusHours(3), "Car").getBooking();
+        Booking b = ps.bookSlot(user("B 1"), in, in.plusHours(3), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(user("W 1"), "Car"));
+        List<BookingResult> results = ps.earlyExit(List.of(b.getBookingId(), a.getBookingId(), b.getBookingId()), LocalDateTime.now());
+        assertEquals(List.of(ResultCode.OK, ResultCode.OK, ResultCode.ALREADY_EXITED),
+                results.stream().map(BookingResult::getCode).toList());
+        // One waiting user, so only the first slot freed is handed over
+        Booking promoted = results.get(0).getPromoted();
+        assertEquals("W 1", promoted.getUser().getVehicleNumber());
+        assertSame(b.getSlot(), promoted.getSlot());
+        assertNull(results.get(1).getPromoted());
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+        assertEquals(0, ps.getWaitlistDepth());
+        assertEquals(2, ps.getMetrics().getExits());
+    }
+}
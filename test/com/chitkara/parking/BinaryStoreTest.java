@@ -0,0 +1,98 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path bookings(String... lines) throws IOException {
+        return Files.write(dir.resolve("bookings.txt"), List.of(lines));
+    }
+
+    private ParkingSystem lot() {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Bike")), dir);
+    }
+
+    @Test
+    void convertedFileLoadsBack() throws IOException {
+        Path in = bookings(
+                RecordCodec.join(1, "Smith, John", "PB10\\1", "98\n76", 1, "2030-01-01T10:00", "2030-01-01T12:00", "80.0", "RESERVED"),
+                "not,a,booking");
+        Path waitlist = Files.write(dir.resolve("waitlist.txt"), List.of(RecordCodec.join("Eve, C", "EV 1", "0", "Bike", "PERMIT")));
+        Path out = dir.resolve("parking.bin");
+        List<String> skipped = new ArrayList<>();
+
+        assertEquals(1, BinaryStore.convert(in, waitlist, out, skipped));
+        assertEquals(List.of("not,a,booking"), skipped);
+
+        ParkingSystem ps = lot();
+        assertEquals(1, BinaryStore.load(out, ps));
+        Booking b = ps.getBooking(1);
+        assertEquals("Smith, John", b.getUser().getName());
+        assertEquals("PB10\\1", b.getUser().getVehicleNumber());
+        assertEquals("98\n76", b.getUser().getContact());
+        assertEquals(BookingStatus.RESERVED, b.getStatus());
+        WaitlistEntry e = ps.getWaitlist().get(0);
+        assertEquals("Eve, C", e.getUser().getName());
+        assertEquals(WaitlistPriority.PERMIT, e.getPriority());
+    }
+
+    @Test
+    void failedConvertLeavesTargetAlone() throws IOException {
+        Path out = Files.writeString(dir.resolve("parking.bin"), "previous contents");
+        Path in = bookings(
+                RecordCodec.join(1, "Ann", "AN 1", "1", 1, "2030-01-01T10:00", "2030-01-01T12:00", "80.0"),
+                RecordCodec.join(2, "x".repeat(70_000), "BO 1", "1", 1, "2030-01-02T10:00", "2030-01-02T12:00", "80.0"));
+
+        // The oversized name only fails once the string table is written, after every record
+        assertThrows(IOException.class, () -> BinaryStore.convert(in, dir.resolve("waitlist.txt"), out, new ArrayList<>()));
+        assertEquals("previous contents", Files.readString(out));
+        assertFalse(Files.exists(dir.resolve("parking.bin.tmp")));
+    }
+
+    @Test
+    void timesAndJoinTimesRoundTripExactly() throws IOException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.parse("2030-01-01T10:00:01.123456789");
+        Booking b = ps.reserveSlot(new User("Ann", "AN 1", "1"), in, in.plusMinutes(90).plusNanos(1), "Car").getBooking();
+        LocalDateTime joined = LocalDateTime.parse("2029-12-31T23:59:58.5");
+        ps.applyWaitlistAdd(new WaitlistEntry(new User("Bob", "BO 1", "2"), "Bike", WaitlistPriority.REGULAR, joined));
+        Path file = dir.resolve("parking.bin");
+        ps.saveToBinary(file);
+
+        ParkingSystem loaded = lot();
+        assertEquals(1, loaded.loadFromBinary(file));
+        assertEquals(b.getTimeIn(), loaded.getBooking(b.getBookingId()).getTimeIn());
+        assertEquals(b.getTimeOut(), loaded.getBooking(b.getBookingId()).getTimeOut());
+        assertEquals(joined, loaded.getWaitlist().get(0).getJoinedAt());
+    }
+
+    @Test
+    void textLoadersSkipUnreadableLines() throws IOException {
+        Path in = bookings(
+                RecordCodec.join(1, "Ann", "AN 1", "1", 1, "2030-01-01T10:00", "2030-01-01T12:00", "40.0", "RESERVED"),
+                "2,Bob,BO\\q1,2,1,2030-01-01T13:00,2030-01-01T14:00,20.0,RESERVED",  // unknown escape
+                "3,Cy,CY 1,3,1,yesterday,2030-01-01T16:00,20.0,RESERVED");
+        Files.write(dir.resolve("waitlist.txt"), List.of(
+                RecordCodec.join("Dee", "DE 1", "4", "Car", "REGULAR", "2030-01-01T09:00"),
+                "Eve,EV 1,5,Car\\"));  // dangling escape
+        ParkingSystem ps = lot();
+        List<String> skipped = new ArrayList<>();
+        assertEquals(1, ps.loadBookingsFromFile(in, skipped));
+        assertEquals(1, ps.loadWaitlistFromFile(skipped));
+        assertEquals(3, skipped.size());
+        assertNotNull(ps.getBooking(1));
+        assertNotNull(ps.findWaitlistEntry("DE 1"));
+    }
+}
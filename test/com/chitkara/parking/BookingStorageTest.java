@@ -0,0 +1,97 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingStorageTest {
+    private static final ParkingSlot SLOT = new ParkingSlot(1, 1, "Car");
+    private static final User ANN = new User("Ann", "AN 1", "1");
+    private static final LocalDateTime T = LocalDateTime.parse("2030-01-01T10:00");
+
+    @TempDir
+    Path dir;
+
+    private static Booking booking(int id) {
+        return new Booking(id, ANN, SLOT, T, T.plusHours(1));
+    }
+
+    @Test
+    void timesRoundTripToTheNanosecond() {
+        for (String t : new String[] {"2030-01-01T10:00", "2024-02-29T23:59:59.999999999", "1969-12-31T23:59:59.5",
+                "1700-06-15T12:00:00.000000001", "2262-04-11T23:47:16"}) {
+            LocalDateTime time = LocalDateTime.parse(t);
+            assertEquals(time, Booking.decode(Booking.encode(time)), t);
+        }
+        assertTrue(Booking.encode(LocalDateTime.parse("1969-12-31T23:59:59.5")) < 0);
+        assertThrows(IllegalArgumentException.class, () -> Booking.encode(LocalDateTime.parse("2263-01-01T00:00")));
+        assertThrows(IllegalArgumentException.class, () -> booking(1).setTimeOut(LocalDateTime.MAX));
+    }
+
+    @Test
+    void tableFindsDenseAndSparseIds() {
+        BookingTable table = new BookingTable();
+        int[] ids = {1, 4095, 4096, 70_000, -3, 1 << 28, Integer.MAX_VALUE};
+        for (int id : ids) {
+            table.put(booking(id));
+        }
+        assertEquals(ids.length, table.size());
+        for (int id : ids) {
+            assertEquals(id, table.get(id).getBookingId());
+        }
+        assertNull(table.get(2));
+        assertNull(table.get(1 << 20));  // a page that was never allocated
+        List<Integer> order = new ArrayList<>();
+        table.values().forEach(b -> order.add(b.getBookingId()));
+        assertEquals(List.of(1, 4095, 4096, 70_000), order.subList(0, 4));  // dense ids in order, sparse ones after
+        assertEquals(ids.length, order.size());
+
+        Booking replaced = booking(4096);
+        table.put(replaced);
+        assertEquals(ids.length, table.size());
+        assertFalse(table.remove(booking(4096)));  // not the stored one
+        assertTrue(table.remove(replaced));
+        assertSame(table.get(-3), table.remove(-3));
+        assertNull(table.remove(-3));
+        assertEquals(ids.length - 2, table.size());
+    }
+
+    @Test
+    void repeatCustomersShareOneUser() {
+        CustomerRegistry registry = new CustomerRegistry();
+        User ann = registry.intern(new User("Ann", "AN 1", "1"));
+        assertSame(ann, registry.intern(new User("Ann", "AN 1", "1")));
+        assertSame(ann, registry.intern("Ann", "AN 1", "1"));
+        assertSame(ann, registry.find(" an 1"));
+
+        // Same vehicle, new details: a new User is registered, the old one is left as it was
+        User moved = registry.intern("Ann", "AN 1", "2");
+        assertNotSame(ann, moved);
+        assertEquals("1", ann.getContact());
+        assertSame(moved, registry.find("AN 1"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void loadedBookingsShareTheirCustomer() throws IOException {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+        LocalDateTime in = LocalDateTime.now().withNano(0).plusHours(1);
+        ps.reserveSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(1), "Car");
+        ps.reserveSlot(new User("Ann", "AN 1", "1"), in.plusHours(2), in.plusHours(3), "Car");
+        ps.saveBookingsToFile();
+
+        ParkingSystem loaded = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+        loaded.loadBookingsFromFile();
+        List<Booking> bookings = loaded.getBookingsByVehicle("AN 1");
+        assertEquals(2, bookings.size());
+        assertSame(bookings.get(0).getUser(), bookings.get(1).getUser());
+        assertEquals(in, bookings.get(0).getTimeIn());
+    }
+}
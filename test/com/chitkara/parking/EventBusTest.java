@@ -0,0 +1,142 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+    @TempDir
+    Path dir;
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean publish(EventBus bus) {
+        return bus.publish(BookingEvent.Type.WAITLISTED, null, null, null, "Car");
+    }
+
+    @Test
+    void nothingIsPublishedWithoutSubscribers() {
+        EventBus bus = new EventBus(8);
+        assertFalse(publish(bus));
+        assertEquals(0, bus.getPublished());
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(12));
+    }
+
+    @Test
+    void closeDrainsEveryEventInSequenceOrder() throws InterruptedException {
+        EventBus bus = new EventBus(8);  // small, so producers wrap the ring many times
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("test", batch -> batch.forEach(e -> seen.add(e.getSequence())));
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    assertTrue(publish(bus));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread t : producers) {
+            t.join();
+        }
+        bus.close();
+
+        assertEquals(2000, bus.getPublished());
+        assertEquals(2000, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i, (long) seen.get(i));
+        }
+        assertEquals(0, bus.getBacklog());
+        assertFalse(publish(bus));
+        assertThrows(IllegalStateException.class, () -> bus.subscribe("late", batch -> { }));
+    }
+
+    @Test
+    void fullRingHoldsProducersBackWithoutLosingEvents() throws InterruptedException {
+        EventBus bus = new EventBus(4);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("slow", batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batch.forEach(e -> seen.add(e.getSequence()));
+        });
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                publish(bus);
+            }
+        });
+        producer.start();
+        await(() -> bus.getStalls() > 0);
+        assertTrue(producer.isAlive());
+        assertTrue(bus.getBacklog() >= 4);  // the ring is full behind the stuck subscriber
+
+        release.countDown();
+        producer.join();
+        bus.close();
+        assertEquals(10, seen.size());
+        assertEquals(0, bus.getBacklog());
+    }
+
+    @Test
+    void subscriberThatThrowsKeepsReceiving() throws InterruptedException {
+        EventBus bus = new EventBus(8);
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        List<Long> other = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("failing", batch -> {
+            if (batch.get(0).getSequence() == 0) throw new AssertionError("boom");
+            batch.forEach(e -> seen.add(e.getSequence()));
+        });
+        bus.subscribe("other", batch -> batch.forEach(e -> other.add(e.getSequence())));
+        publish(bus);
+        await(() -> bus.getFailures() == 1);
+        for (int i = 0; i < 20; i++) {
+            publish(bus);  // wraps the ring: the failed consumer must still be moving
+        }
+        bus.close();
+        assertEquals(1, bus.getFailures());
+        assertEquals(20, seen.size());
+        assertEquals(1L, (long) seen.get(0));
+        assertEquals(21, other.size());
+    }
+
+    @Test
+    void engineAnnouncesChangesAfterMakingThem() throws InterruptedException {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        List<BookingEvent> events = Collections.synchronizedList(new ArrayList<>());
+        ps.getEvents().subscribe("test", events::addAll);
+        LocalDateTime in = LocalDateTime.now().withNano(0).minusMinutes(5);
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(1), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+        assertTrue(ps.cancelBooking(b.getBookingId()).isSuccess());
+        assertFalse(ps.cancelBooking(b.getBookingId()).isSuccess());  // failures are not announced
+        ps.getEvents().close();
+
+        assertEquals(List.of(BookingEvent.Type.BOOKED, BookingEvent.Type.WAITLISTED, BookingEvent.Type.CANCELLED,
+                BookingEvent.Type.PROMOTED), events.stream().map(BookingEvent::getType).toList());
+        BookingEvent promoted = events.get(3);
+        assertEquals("BO 1", promoted.getUser().getVehicleNumber());
+        assertSame(b, promoted.getRelated());
+        assertSame(promoted.getBooking(), events.get(2).getRelated());
+        assertEquals("Car", promoted.getVehicleType());
+    }
+}
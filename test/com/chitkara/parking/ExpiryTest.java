@@ -0,0 +1,103 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryTest {
+    @TempDir
+    Path dir;
+
+    private ParkingSystem ps;
+
+    @AfterEach
+    void stop() {
+        if (ps != null) ps.stopExpiry();
+    }
+
+    // Up to two seconds for the expiry thread to get there
+    private static void await(BooleanSupplier done) throws InterruptedException {
+        for (int i = 0; i < 200 && !done.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void closesBookingsOnceTheirExitTimePasses() throws InterruptedException {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), in, LocalDateTime.now().plusNanos(50_000_000), "Car").getBooking();
+        ps.startExpiry();
+        await(() -> ps.getFreeSlotCount("Car") == 1);  // the slot is released just after the booking closes
+        assertTrue(b.isClosed());
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+        assertEquals(1, ps.getMetrics().getExpirations());
+    }
+
+    @Test
+    void anErrorIsCountedAndTheWorkerKeepsGoing() throws InterruptedException {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir) {
+            private boolean failed;
+
+            @Override
+            BookingResult expire(int id, LocalDateTime now) {
+                if (!failed) {
+                    failed = true;
+                    throw new StackOverflowError("first expiry");
+                }
+                return super.expire(id, now);
+            }
+        };
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking first = ps.bookSlot(new User("Ann", "AN 1", "1"), in, LocalDateTime.now(), "Car").getBooking();
+        ps.startExpiry();
+        Booking second = ps.bookSlot(new User("Bob", "BO 1", "2"), in, LocalDateTime.now().plusNanos(50_000_000), "Car").getBooking();
+        await(second::isClosed);
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());  // put back for a retry later
+        assertEquals(1, ps.getMetrics().getExpiryFailures());
+    }
+
+    @Test
+    void bookingWhoseExitTimeMovedLaterIsLeftOpen() {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime now = LocalDateTime.now();
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), now.minusHours(1), now.plusHours(1), "Car").getBooking();
+        assertEquals(ResultCode.INVALID_TIME, ps.expire(b.getBookingId(), now).getCode());
+        assertFalse(b.isClosed());
+        assertTrue(ps.expire(b.getBookingId(), now.plusHours(1)).isSuccess());
+        assertTrue(b.isClosed());
+        assertEquals(now.plusHours(1), b.getTimeOut());  // closed at its exit time, not when noticed
+    }
+
+    @Test
+    void expiredStayHandsTheSlotToTheWaitlist() {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime now = LocalDateTime.now();
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), now.minusHours(2), now.minusMinutes(1), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+        BookingResult r = ps.expire(b.getBookingId(), now);
+        assertEquals("BO 1", r.getPromoted().getUser().getVehicleNumber());
+        assertEquals(0, ps.getWaitlistDepth());
+        assertEquals(0, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void reservationNobodyCheckedInForLapses() {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime at = LocalDateTime.now().plusHours(1);
+        Booking b = ps.reserveSlot(new User("Ann", "AN 1", "1"), at, at.plusHours(1), "Car").getBooking();
+        assertTrue(ps.expire(b.getBookingId(), at.plusHours(2)).isSuccess());
+        assertTrue(b.isClosed());
+        assertFalse(ps.expire(b.getBookingId(), at.plusHours(3)).isSuccess());  // already closed: nothing to do
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+        assertTrue(b.getSlot().getCalendar().isFree(at, at.plusHours(1), null));
+    }
+}
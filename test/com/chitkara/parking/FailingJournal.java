@@ -0,0 +1,27 @@
+package com.chitkara.parking;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Journal that takes the first writes it is allowed and fails every one after, as a full disk would
+class FailingJournal extends Journal {
+    private int writesLeft;
+
+    FailingJournal(Path path, int writesLeft) throws IOException {
+        super(path, 1);
+        this.writesLeft = writesLeft;
+    }
+
+    @Override
+    public synchronized void append(String record) throws IOException {
+        if (writesLeft-- <= 0) throw new IOException("Disk full");
+        super.append(record);
+    }
+
+    @Override
+    public synchronized void appendAll(List<String> records) throws IOException {
+        if (writesLeft-- <= 0) throw new IOException("Disk full");
+        super.appendAll(records);
+    }
+}
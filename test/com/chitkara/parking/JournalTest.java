@@ -0,0 +1,115 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    // Separators and escapes in every field a user can type
+    private static final User AWKWARD = new User("Smith, John \\ Jr.", "PB10,AB\\n1", "98\n76\r,5");
+    private static final User FORGER = new User("Eve\nB,99,Mallory,X,1,1,2024-01-01T10:00,2024-01-01T11:00", "EV 1", "0");
+
+    @TempDir
+    Path dir;
+
+    private static ParkingSystem lot(Path dir) {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+    }
+
+    @Test
+    void awkwardNamesSurviveReplay() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        ParkingSystem ps = lot(dir);
+        Journal journal = new Journal(log, 1);
+        ps.setJournal(journal);
+        LocalDateTime in = LocalDateTime.now().withNano(0);
+        Booking booked = ps.bookSlot(AWKWARD, in, in.plusHours(2), "Car").getBooking();
+        Booking other = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(1), "Car").getBooking();
+        assertTrue(ps.changeVehicleNumber(other.getBookingId(), "AN,2\\x").isSuccess());
+        assertTrue(ps.joinWaitlist(FORGER, "Car"));
+        journal.close();
+
+        ParkingSystem replayed = lot(dir);
+        assertEquals(4, Journal.replay(log, replayed));
+        Booking b = replayed.getBooking(booked.getBookingId());
+        assertEquals(AWKWARD.getName(), b.getUser().getName());
+        assertEquals(AWKWARD.getVehicleNumber(), b.getUser().getVehicleNumber());
+        assertEquals(AWKWARD.getContact(), b.getUser().getContact());
+        assertEquals(in.plusHours(2), b.getTimeOut());
+        assertEquals("AN,2\\x", replayed.getBooking(other.getBookingId()).getUser().getVehicleNumber());
+        assertNull(replayed.getBooking(99));  // the name is data, not a record
+        assertEquals(2, replayed.getAllBookings().size());
+        WaitlistEntry waiting = replayed.getWaitlist().get(0);
+        assertEquals(FORGER.getName(), waiting.getUser().getName());
+    }
+
+    @Test
+    void badRecordStopsReplay() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        Files.writeString(log, "B,1,Ann,AN 1,1,1,2024-01-01T10:00,2024-01-01T11:00\n"
+                + "B,2,Bob,BO\\q1,1,2,2024-01-01T10:00,2024-01-01T11:00\n"
+                + "C,1\n");
+        IOException e = assertThrows(IOException.class, () -> Journal.replay(log, lot(dir)));
+        assertTrue(e.getMessage().contains(":2:"), e.getMessage());
+    }
+
+    @Test
+    void tornLastRecordIsSkipped() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        Files.writeString(log, "B,1,Ann,AN 1,1,1,2024-01-01T10:00,2024-01-01T11:00\nB,2,Bob,BO 1,1,2,2024-01-01T1");
+        ParkingSystem ps = lot(dir);
+        assertEquals(1, Journal.replay(log, ps));
+        assertNotNull(ps.getBooking(1));
+        assertNull(ps.getBooking(2));
+    }
+
+    @Test
+    void failedExitWriteLeavesTheBookingOpen() throws IOException {
+        ParkingSystem ps = lot(dir);
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking b = ps.bookSlot(AWKWARD, in, in.plusHours(3), "Car").getBooking();
+        ps.setJournal(new FailingJournal(dir.resolve("broken.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.earlyExit(b.getBookingId(), LocalDateTime.now()));
+        assertFalse(b.isClosed());
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+
+        ps.setJournal(new Journal(dir.resolve("journal.0.log"), 1));
+        assertTrue(ps.earlyExit(b.getBookingId(), LocalDateTime.now()).isSuccess());  // the retry goes through
+        assertEquals(2, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void failedExpiryWriteLeavesTheBookingOpen() throws IOException {
+        ParkingSystem ps = lot(dir);
+        LocalDateTime in = LocalDateTime.now().minusHours(2);
+        Booking b = ps.bookSlot(AWKWARD, in, in.plusHours(1), "Car").getBooking();
+        ps.setJournal(new FailingJournal(dir.resolve("broken.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.expire(b.getBookingId(), LocalDateTime.now()));
+        assertFalse(b.isClosed());
+
+        ps.setJournal(new Journal(dir.resolve("journal.0.log"), 1));
+        assertTrue(ps.expire(b.getBookingId(), LocalDateTime.now()).isSuccess());
+        assertTrue(b.isClosed());
+        assertEquals(2, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void failedHandoverWriteKeepsTheWaiterQueued() throws IOException {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime in = LocalDateTime.now().minusHours(1);
+        Booking b = ps.bookSlot(AWKWARD, in, in.plusHours(3), "Car").getBooking();
+        assertTrue(ps.joinWaitlist(FORGER, "Car"));
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 1));
+        assertThrows(UncheckedIOException.class, () -> ps.cancelBooking(b.getBookingId()));  // C written, handover not
+        assertEquals(1, ps.getWaitlistDepth());
+        assertEquals(1, ps.getFreeSlotCount("Car"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LotRouterTest {
+    @TempDir
+    Path dir;
+
+    private LotRouter router;
+    private LocalDateTime in;
+
+    @BeforeEach
+    void lots() throws IOException {
+        router = new LotRouter();
+        router.openLot("north", 0, 10, List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Bike")), dir);
+        router.openLot("south", 0, -2, List.of(new ParkingSlot(1, 1, "Car")), dir);
+        in = LocalDateTime.now().withNano(0).minusHours(1);
+    }
+
+    @Test
+    void requestsGoToTheirOwnLot() {
+        Booking b = router.bookSlot("south", new User("Ann", "AN 1", "1"), in, in.plusHours(2), "Car").getBooking();
+        assertEquals(0, router.getLot("south").getSystem().getFreeSlotCount("Car"));
+        assertEquals(1, router.getLot("north").getSystem().getFreeSlotCount("Car"));
+        // Booking ids are per lot, so the same id means nothing in another one
+        assertEquals(ResultCode.BOOKING_NOT_FOUND, router.cancelBooking("north", b.getBookingId()).getCode());
+        assertTrue(router.cancelBooking("south", b.getBookingId()).isSuccess());
+
+        assertEquals(ResultCode.LOT_NOT_FOUND, router.bookSlot("east", new User("Ann", "AN 1", "1"), in, in.plusHours(2), "Car").getCode());
+        assertEquals(ResultCode.LOT_NOT_FOUND, router.cancelBooking("east", 1).getCode());
+        assertThrows(IllegalArgumentException.class, () -> router.addLot(new ParkingLot("north", 0, 0, router.getLot("south").getSystem())));
+    }
+
+    @Test
+    void nearestLotSkipsFullOnes() {
+        assertEquals("south", router.nearestWithFreeSlot("Car", 0, 0).getId());
+        router.bookSlot("south", new User("Ann", "AN 1", "1"), in, in.plusHours(2), "Car");
+        assertEquals("north", router.nearestWithFreeSlot("Car", 0, 0).getId());
+        assertEquals("north", router.nearestWithFreeSlot("Bike", 0, -2).getId());
+        assertNull(router.nearestWithFreeSlot("Truck", 0, 0));
+        assertEquals(Map.of("north", 1, "south", 0), router.freeSlots("Car"));
+    }
+
+    @Test
+    void vehicleIsFoundInEveryLotThatKnowsIt() throws IOException {
+        router.bookSlot("north", new User("Ann", "AN 1", "1"), in, in.plusHours(2), "Bike");
+        router.bookSlot("south", new User("Ann", "AN 1", "1"), in, in.plusHours(2), "Car");
+        Map<String, Booking> found = router.findVehicle(" an 1 ");
+        assertEquals(List.of("north", "south"), List.copyOf(found.keySet()));
+        assertEquals("Car", found.get("south").getSlot().getVehicleType().getName());
+        assertTrue(router.findVehicle("ZZ 9").isEmpty());
+
+        // Each lot saves to and reloads from its own directory
+        router.saveAll();
+        LotRouter reopened = new LotRouter();
+        reopened.openLot("north", 0, 10, List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Bike")), dir);
+        reopened.openLot("south", 0, -2, List.of(new ParkingSlot(1, 1, "Car")), dir);
+        assertEquals(Map.of("north", 1, "south", 0), reopened.freeSlots("Car"));
+        assertEquals(2, reopened.findVehicle("AN 1").size());
+    }
+}
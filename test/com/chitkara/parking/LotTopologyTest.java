@@ -0,0 +1,96 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LotTopologyTest {
+    @TempDir
+    Path dir;
+
+    private LotTopology load(String text) throws IOException {
+        return LotTopology.load(Files.writeString(dir.resolve("lot.txt"), text));
+    }
+
+    @Test
+    void rangesAndWalkingDistancesAreWorkedOut() throws IOException {
+        LotTopology lot = load("""
+                # two entrances on different floors, one lift
+                entrance,North,1,0,0
+                entrance,Upper,2,30,0
+                lift,20,0
+                101-103,1,Car,,0,10   # 3 m apart along x
+                201,2,Bike,,30,10
+                """);
+        assertEquals(List.of("North", "Upper"), lot.getEntrances());
+        List<ParkingSlot> slots = lot.getSlots();
+        assertEquals(List.of(101, 102, 103, 201), slots.stream().map(ParkingSlot::getSlotId).toList());
+        assertSame(VehicleType.CAR, slots.get(0).getVehicleType());
+
+        ParkingSlot first = slots.get(0), last = slots.get(2), bike = slots.get(3);
+        assertEquals(10, first.getDistance(0));
+        assertEquals(16, last.getDistance(0));
+        assertEquals(10 + LotTopology.FLOOR_METRES + 20 + 10, first.getDistance(1));  // to the lift, down, across
+        assertEquals(10 + LotTopology.FLOOR_METRES + 14 + 10, last.getDistance(1));
+        assertEquals(20 + LotTopology.FLOOR_METRES + 10 + 10, bike.getDistance(0));
+        assertEquals(10, bike.getDistance(1));
+    }
+
+    @Test
+    void singleEntranceLotKeepsTheDistanceColumn() throws IOException {
+        LotTopology lot = load("1,1,Car,25\n2,1,Bike\n");
+        assertEquals(List.of("Main"), lot.getEntrances());
+        assertEquals(25, lot.getSlots().get(0).getDistance());
+        assertEquals(0, lot.getSlots().get(1).getDistance());
+    }
+
+    @Test
+    void badFilesNameTheLine() {
+        IOException dup = assertThrows(IOException.class, () -> load("1-3,1,Car\n# gap\n3,1,Bike\n"));
+        assertTrue(dup.getMessage().endsWith("lot.txt:3: duplicate slot id 3"), dup.getMessage());
+        assertThrows(IOException.class, () -> load("1,1\n"));
+        assertThrows(IOException.class, () -> load("5-4,1,Car\n"));
+        assertThrows(IOException.class, () -> load("x,1,Car\n"));
+        assertThrows(IOException.class, () -> load("# nothing\n"));
+        // Without coordinates a slot's distance is ambiguous once there are two entrances
+        assertThrows(IOException.class, () -> load("entrance,A,1,0,0\nentrance,B,1,9,9\n1,1,Car,5\n"));
+    }
+
+    @Test
+    void vehicleTypesAreInterned() {
+        assertSame(VehicleType.CAR, VehicleType.of("car"));
+        assertSame(VehicleType.BIKE, VehicleType.find(" BIKE "));
+        assertNull(VehicleType.find("Hovercraft"));
+        VehicleType ev = VehicleType.of(" Electric Van ");
+        assertEquals("Electric Van", ev.getName());
+        assertSame(ev, VehicleType.find("ELECTRIC VAN"));
+        assertNotEquals(VehicleType.CAR.code(), ev.code());
+        assertSame(VehicleType.CAR, new ParkingSlot(1, 1, "CAR").getVehicleType());
+    }
+
+    @Test
+    void slotsAreFoundByIdInDenseAndSparseLots() {
+        LocalDateTime in = LocalDateTime.now().withNano(0).minusHours(1);
+        for (List<Integer> ids : List.of(List.of(101, 102, 104), List.of(7, 100_000, 2_000_000))) {
+            ParkingSystem ps = new ParkingSystem(ids.stream().map(id -> new ParkingSlot(id, 1, "Car")).toList(), dir);
+            for (int i = 0; i < ids.size(); i++) {
+                ps.restoreBooking(i + 1, new User("U" + i, "V " + i, "1"), ids.get(i), in, in.plusHours(2),
+                        BookingStatus.ACTIVE, Booking.OPEN);
+                assertEquals((int) ids.get(i), ps.getBooking(i + 1).getSlot().getSlotId());
+            }
+            // Ids outside the lot, including ones inside the dense array's span, are skipped
+            ps.restoreBooking(10, new User("X", "X 1", "1"), 103, in, in.plusHours(2), BookingStatus.ACTIVE, Booking.OPEN);
+            ps.restoreBooking(11, new User("Y", "Y 1", "1"), -5, in, in.plusHours(2), BookingStatus.ACTIVE, Booking.OPEN);
+            assertNull(ps.getBooking(10));
+            assertNull(ps.getBooking(11));
+            assertEquals(0, ps.getFreeSlotCount("Car"));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentile(0.99, TimeUnit.NANOSECONDS));
+        assertEquals(0, h.max(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void percentilesAreWithinABucketOfTheTruth() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++) h.record(v * 1000);  // 1 µs to 10 ms
+        assertEquals(10_000, h.count());
+        long p50 = h.percentile(0.5, TimeUnit.NANOSECONDS);
+        long p99 = h.percentile(0.99, TimeUnit.NANOSECONDS);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.07, "p50 " + p50);
+        assertTrue(p99 >= 9_900_000 && p99 <= 10_000_000, "p99 " + p99);
+        assertEquals(10_000_000, h.percentile(1.0, TimeUnit.NANOSECONDS));  // never above the max seen
+        assertEquals(10, h.max(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void smallAndOutOfRangeValuesAreCounted() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(3);
+        h.record(Long.MAX_VALUE);
+        assertEquals(3, h.count());
+        assertEquals(0, h.percentile(0.3, TimeUnit.NANOSECONDS));
+        assertEquals(3, h.percentile(0.6, TimeUnit.NANOSECONDS));
+        assertEquals(Long.MAX_VALUE, h.max(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void countersFollowTheBookingLifecycle() throws Exception {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime in = LocalDateTime.now().withNano(0).minusHours(1);
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(3), "Car").getBooking();
+        assertFalse(ps.bookSlot(new User("Bob", "BO 1", "2"), in, in.plusHours(3), "Car").isSuccess());
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+        assertTrue(ps.cancelBooking(b.getBookingId()).isSuccess());
+
+        Metrics m = ps.getMetrics();
+        assertEquals(1, m.getBookingsCreated());
+        assertEquals(1, m.getBookingsRejected());
+        assertEquals(1, m.getWaitlistJoins());
+        assertEquals(1, m.getCancellations());
+        assertEquals(1, m.getPromotions());
+        assertEquals(2, m.getBookSlotLatency().count());
+        assertEquals(1, m.getCancelBookingLatency().count());
+        assertEquals(1, m.getPromotionLatency().count());
+        assertTrue(m.dump(ps).contains("Promotions:         1\n"));
+
+        ObjectName name = ParkingMetrics.register(ps);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "BookingsCreated"));
+            assertEquals(0, server.getAttribute(name, "WaitlistDepth"));
+            assertEquals(Map.of("Car", 0), new ParkingMetrics(ps).getFreeSlotsByType());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
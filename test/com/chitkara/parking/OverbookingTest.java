@@ -0,0 +1,145 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverbookingTest {
+    private static final int SLOTS = 4;
+
+    @TempDir
+    Path dir;
+
+    private ParkingSystem ps;
+    private LocalDateTime in;
+
+    @BeforeEach
+    void fill() {
+        ps = lot();
+        in = LocalDateTime.now().minusMinutes(1);
+    }
+
+    private ParkingSystem lot() {
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (int i = 1; i <= SLOTS; i++) {
+            slots.add(new ParkingSlot(i, 1, "Car"));
+        }
+        return new ParkingSystem(slots, dir);
+    }
+
+    // Fills every slot; returns the first booking
+    private Booking parkAll(int minutesLeft) {
+        Booking first = null;
+        for (int i = 0; i < SLOTS; i++) {
+            BookingResult r = ps.bookSlot(new User("P" + i, "PK " + i, "0"), in, LocalDateTime.now().plusMinutes(minutesLeft), "Car");
+            assertTrue(r.isSuccess());
+            if (first == null) first = r.getBooking();
+        }
+        return first;
+    }
+
+    private BookingResult late(int i) {
+        return ps.bookSlot(new User("L" + i, "LT " + i, "0"), in, in.plusHours(1), "Car");
+    }
+
+    @Test
+    void offByDefault() {
+        parkAll(10);
+        assertEquals(ResultCode.NO_SLOT_AVAILABLE, late(0).getCode());
+        assertEquals(0, ps.getWaitlistDepth());
+    }
+
+    @Test
+    void stopsAtTheShareOfSlots() {
+        ps.setOverbooking(0.5, 60);
+        parkAll(10);  // every slot frees up within the window
+        for (int i = 0; i < SLOTS / 2; i++) {
+            BookingResult r = late(i);
+            assertEquals(ResultCode.OVERBOOKED, r.getCode());
+            assertNotNull(r.getEta());
+        }
+        assertEquals(ResultCode.NO_SLOT_AVAILABLE, late(SLOTS / 2).getCode());
+        assertEquals(SLOTS / 2, ps.getWaitlistDepth());
+        assertEquals(SLOTS / 2, ps.getMetrics().getOverbookings());
+    }
+
+    @Test
+    void refusedWhenTheForecastSeesNoSlotInTime() {
+        ps.setOverbooking(0.5, 60);
+        parkAll(8 * 60);  // booked well past the window and nothing learned about early exits
+        assertEquals(ResultCode.NO_SLOT_AVAILABLE, late(0).getCode());
+        assertEquals(0, ps.getWaitlistDepth());
+    }
+
+    @Test
+    void overbookedUserGetsTheNextFreedSlot() {
+        ps.setOverbooking(0.5, 60);
+        Booking first = parkAll(10);
+        User waiting = new User("L0", "LT 0", "0");
+        assertEquals(ResultCode.OVERBOOKED, ps.bookSlot(waiting, in, in.plusHours(1), "Car").getCode());
+        // A regular waiter who joined later still comes second
+        assertTrue(ps.joinWaitlist(new User("R", "RG 1", "0"), "Car"));
+        BookingResult exit = ps.earlyExit(first.getBookingId(), LocalDateTime.now());
+        assertEquals("LT 0", exit.getPromoted().getUser().getVehicleNumber());
+    }
+
+    @Test
+    void overbookedUserKeepsTheStayAskedForAndTheirPlace() {
+        ps.setOverbooking(0.5, 60);
+        Booking first = parkAll(10);
+        BookingResult r = late(0);
+        assertEquals(1, r.getPosition());
+        BookingResult second = ps.bookSlot(new User("L1", "LT 1", "0"), in, in.plusHours(3), "Car");
+        assertEquals(ResultCode.OVERBOOKED, second.getCode());
+        assertEquals(2, second.getPosition());
+        assertEquals(2, ps.waitlistPosition("lt 1"));
+
+        LocalDateTime exitAt = LocalDateTime.now();
+        Booking promoted = ps.earlyExit(first.getBookingId(), exitAt).getPromoted();
+        assertEquals("LT 0", promoted.getUser().getVehicleNumber());
+        assertEquals(exitAt.plusHours(1), promoted.getTimeOut());
+        assertEquals(1, ps.waitlistPosition("LT 1"));
+        assertEquals(0, ps.waitlistPosition("LT 0"));
+    }
+
+    @Test
+    void stayAskedForSurvivesReplayAndBinaryStore() throws IOException {
+        ps.setOverbooking(0.5, 60);
+        Path log = dir.resolve("journal.0.log");
+        Journal journal = new Journal(log, 1);
+        ps.setJournal(journal);
+        parkAll(10);
+        assertEquals(ResultCode.OVERBOOKED, late(0).getCode());
+        journal.close();
+
+        ParkingSystem replayed = lot();
+        Journal.replay(log, replayed);
+        assertEquals(Duration.ofHours(1), replayed.findWaitlistEntry("LT 0").getStay());
+
+        Path file = dir.resolve("parking.bin");
+        replayed.saveToBinary(file);
+        ParkingSystem loaded = lot();
+        loaded.loadFromBinary(file);
+        assertEquals(Duration.ofHours(1), loaded.findWaitlistEntry("LT 0").getStay());
+    }
+
+    @Test
+    void forecastIsReusedUntilAvailabilityChanges() {
+        CapacityForecast f = ps.forecast("Car");
+        assertSame(f, ps.forecast("Car"));
+        assertTrue(late(0).isSuccess());
+        CapacityForecast after = ps.forecast("Car");
+        assertNotSame(f, after);
+        assertEquals(SLOTS - 1, after.getFreeNow());
+        assertSame(after, ps.forecast("Car"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkingServerTest {
+    @TempDir
+    Path dir;
+
+    private ParkingSystem ps;
+    private ParkingServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        server = new ParkingServer(ps, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return send("POST", path, body);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String... headers)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (headers.length > 0) request.headers(headers);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int book(String vehicle) throws Exception {
+        HttpResponse<String> r = post("/bookings", "name=Ann&vehicle=" + vehicle + "&type=Car&hours=3");
+        assertEquals(201, r.statusCode(), r.body());
+        return ps.findBookingByVehicle(vehicle.replace('+', ' ')).getBookingId();
+    }
+
+    @Test
+    void booksAndReturnsTheBooking() throws Exception {
+        HttpResponse<String> r = post("/bookings", "name=Ann&vehicle=AN+1&type=Car&hours=3");
+        assertEquals(201, r.statusCode());
+        assertTrue(r.body().contains("\"vehicle\":\"AN 1\""));
+    }
+
+    @Test
+    void hoursOutOfRangeIsABadRequest() throws Exception {
+        HttpResponse<String> r = post("/bookings", "name=Ann&vehicle=AN+1&type=Car&hours=" + Long.MAX_VALUE);
+        assertEquals(400, r.statusCode());
+        assertEquals("{\"error\":\"BAD_REQUEST\"}", r.body());
+    }
+
+    @Test
+    void oversizedBodyIsRefused() throws Exception {
+        HttpResponse<String> r = post("/bookings", "name=Ann&vehicle=AN+1&type=Car&pad=" + "x".repeat(20_000));
+        assertEquals(413, r.statusCode());
+    }
+
+    @Test
+    void slotsAnswerNotModifiedUntilAvailabilityChanges() throws Exception {
+        HttpResponse<String> first = send("GET", "/slots?type=Car", null);
+        assertEquals(200, first.statusCode());
+        assertTrue(first.body().contains("\"free\":{\"Car\":1}"), first.body());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> again = send("GET", "/slots", null, "If-None-Match", etag);
+        assertEquals(304, again.statusCode());
+        assertEquals(etag, again.headers().firstValue("ETag").orElseThrow());
+
+        book("AN+1");
+        HttpResponse<String> changed = send("GET", "/slots", null, "If-None-Match", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        assertTrue(changed.body().contains("\"freeSlotIds\":[]"), changed.body());
+        assertEquals(405, send("POST", "/slots", "").statusCode());
+    }
+
+    @Test
+    void patchChangesVehicleAndExitTogether() throws Exception {
+        int id = book("AN+1");
+        String exit = ps.getBooking(id).getTimeIn().plusHours(1).withSecond(0).withNano(0).toString();
+        HttpResponse<String> r = send("PATCH", "/bookings/" + id, "vehicle=AN+2&exit=" + exit);
+        assertEquals(200, r.statusCode(), r.body());
+        assertTrue(r.body().contains("\"vehicle\":\"AN 2\""));
+        assertTrue(r.body().contains("\"timeOut\":\"" + exit + "\""), r.body());
+
+        assertEquals(400, send("PATCH", "/bookings/" + id, "vehicle=AN%0A3").statusCode());
+        assertEquals(400, send("PATCH", "/bookings/" + id, "").statusCode());
+        assertEquals(404, send("PATCH", "/bookings/99", "vehicle=AN+3").statusCode());
+        assertEquals("AN 2", ps.getBooking(id).getUser().getVehicleNumber());
+    }
+
+    @Test
+    void cancelHandsTheSlotToTheWaitlist() throws Exception {
+        int id = book("AN+1");
+        assertEquals(409, post("/bookings", "name=Bob&vehicle=BO+1&type=Car").statusCode());
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+
+        HttpResponse<String> line = send("GET", "/waitlist/BO%201", null);
+        assertEquals(200, line.statusCode());
+        assertTrue(line.body().startsWith("{\"status\":\"REGULAR\",\"vehicle\":\"BO 1\",\"position\":1,"), line.body());
+
+        HttpResponse<String> r = send("DELETE", "/bookings/" + id, null);
+        assertEquals(200, r.statusCode());
+        assertTrue(r.body().contains("\"promoted\":{"), r.body());
+        assertTrue(r.body().contains("\"vehicle\":\"BO 1\""), r.body());
+        assertEquals(404, send("GET", "/bookings/" + id, null).statusCode());
+        assertEquals(404, send("GET", "/waitlist/BO%201", null).statusCode());
+        assertEquals(200, send("GET", "/vehicles/BO%201", null).statusCode());
+    }
+
+    @Test
+    void leavingTheWaitlist() throws Exception {
+        assertTrue(ps.joinWaitlist(new User("Bob", "BO 1", "2"), "Car"));
+        HttpResponse<String> r = send("DELETE", "/waitlist/bo%201", null);
+        assertEquals(200, r.statusCode());
+        assertEquals("{\"vehicle\":\"BO 1\",\"status\":\"LEFT\"}", r.body());
+        assertEquals(0, ps.getWaitlistDepth());
+        assertEquals(404, send("DELETE", "/waitlist/BO%201", null).statusCode());
+        assertEquals(405, send("POST", "/waitlist/BO%201", "").statusCode());
+    }
+}
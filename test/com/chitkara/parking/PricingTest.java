@@ -0,0 +1,139 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingTest {
+    private static final PricingEngine DEARER = new PricingEngine(Tariff.flatHourly(5000));  // ₹50/hour
+    private static final LocalDateTime DAY = LocalDateTime.parse("2030-01-01T00:00");
+    // ₹20/h, ₹30/h 08:00-20:00, ₹200 a day, 10 minutes free
+    private static final Tariff PEAK = new Tariff(2000, 3000, LocalTime.of(8, 0), LocalTime.of(20, 0), 20000, 10, 60, false);
+
+    @TempDir
+    Path dir;
+
+    private ParkingSystem ps;
+    private LocalDateTime in;
+
+    @BeforeEach
+    void lot() {
+        ps = lot(dir);
+        in = LocalDateTime.now().withNano(0).minusHours(3);
+    }
+
+    private static ParkingSystem lot(Path dir) {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+    }
+
+    @Test
+    void closedStayKeepsItsFeeWhenTheTariffChanges() {
+        Booking closed = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(5), "Car").getBooking();
+        Booking open = ps.bookSlot(new User("Bob", "BO 1", "2"), in, in.plusHours(5), "Car").getBooking();
+        assertTrue(ps.earlyExit(closed.getBookingId(), in.plusHours(2)).isSuccess());
+        assertEquals(4000, closed.getFeePaise());
+
+        ps.setPricing(DEARER);
+        assertEquals(4000, closed.getFeePaise());
+        assertEquals(25000, open.getFeePaise());  // open bookings follow the new tariff
+    }
+
+    @Test
+    void changingAClosedStaysExitTimeRechargesIt() {
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(5), "Car").getBooking();
+        assertTrue(ps.earlyExit(b.getBookingId(), in.plusHours(2)).isSuccess());
+        ps.setPricing(DEARER);
+        assertTrue(ps.changeExitTime(b.getBookingId(), in.plusHours(1)).isSuccess());
+        assertEquals(5000, b.getFeePaise());
+    }
+
+    @Test
+    void frozenFeeSurvivesReplayAndBothStores() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        Journal journal = new Journal(log, 1);
+        ps.setJournal(journal);
+        Booking b = ps.bookSlot(new User("Ann", "AN 1", "1"), in, in.plusHours(5), "Car").getBooking();
+        assertTrue(ps.earlyExit(b.getBookingId(), in.plusHours(2)).isSuccess());
+        journal.close();
+
+        ParkingSystem replayed = lot(dir);
+        replayed.setPricing(DEARER);
+        Journal.replay(log, replayed);
+        assertEquals(4000, replayed.getBooking(b.getBookingId()).getFeePaise());
+
+        Path bin = dir.resolve("parking.bin");
+        replayed.saveToBinary(bin);
+        ParkingSystem loaded = lot(dir);
+        loaded.setPricing(DEARER);
+        loaded.loadFromBinary(bin);
+        assertEquals(4000, loaded.getBooking(b.getBookingId()).getFeePaise());
+
+        replayed.saveBookingsToFile();
+        ParkingSystem fromText = lot(dir);
+        fromText.setPricing(DEARER);
+        fromText.loadBookingsFromFile();
+        assertEquals(4000, fromText.getBooking(b.getBookingId()).getFeePaise());
+    }
+
+    @Test
+    void staysInsideTheGracePeriodAreFree() {
+        TariffTable t = new TariffTable(PEAK);
+        LocalDateTime at = DAY.plusHours(7);
+        assertEquals(0, t.quote(at, at.plusMinutes(9)));
+        assertEquals(2000, t.quote(at, at.plusMinutes(10)));  // one-unit minimum once past the grace
+        assertEquals(0, t.quote(at, at.minusHours(1)));
+    }
+
+    @Test
+    void eachUnitIsChargedAtTheBandItStartsIn() {
+        TariffTable t = new TariffTable(PEAK);
+        assertEquals(2000 + 3000 + 3000, t.quote(DAY.plusHours(7), DAY.plusHours(10)));
+        assertEquals(3000 + 2000, t.quote(DAY.plusHours(19), DAY.plusHours(21)));
+        // A unit started at 07:30 runs into the peak but is charged off-peak
+        assertEquals(2000 + 3000, t.quote(DAY.plusHours(7).plusMinutes(30), DAY.plusHours(9).plusMinutes(30)));
+    }
+
+    @Test
+    void dailyCapLimitsEachDayFromEntry() {
+        TariffTable t = new TariffTable(PEAK);
+        assertEquals(20000, t.quote(DAY, DAY.plusHours(24)));  // 60000 uncapped
+        assertEquals(20000 + 6 * 2000, t.quote(DAY, DAY.plusHours(30)));
+        assertEquals(3 * 20000, t.quote(DAY, DAY.plusDays(3)));
+        assertEquals(8 * 2000, t.quote(DAY, DAY.plusHours(8)));  // under the cap
+    }
+
+    @Test
+    void roundingUpChargesAStartedUnit() {
+        Tariff up = new Tariff(2000, 2000, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, 0, 0, 15, true);
+        Tariff down = new Tariff(2000, 2000, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, 0, 0, 15, false);
+        assertEquals(5 * 2000, new TariffTable(up).quote(DAY, DAY.plusMinutes(61)));
+        assertEquals(4 * 2000, new TariffTable(down).quote(DAY, DAY.plusMinutes(61)));
+        assertEquals(2000, new TariffTable(down).quote(DAY, DAY.plusMinutes(5)));
+    }
+
+    @Test
+    void floorRuleOverridesTheTypeRule() throws IOException {
+        Path file = Files.writeString(dir.resolve("tariffs.txt"), """
+                # type,floor,rate,peakRate,peakStart,peakEnd,dailyCap,graceMinutes
+                Car,*,20,30,08:00,20:00,200,10
+                Car,2,15,15,00:00,00:00,0,0
+                """);
+        PricingEngine engine = PricingEngine.load(file);
+        LocalDateTime at = DAY.plusHours(7);
+        assertEquals(8000, engine.tableFor("car", 1).quote(at, at.plusHours(3)));
+        assertEquals(4500, engine.tableFor("Car", 2).quote(at, at.plusHours(3)));
+        assertEquals(6000, engine.tableFor("Bike", 2).quote(at, at.plusHours(3)));  // no rule: ₹20/hour
+
+        ps.setPricing(engine);
+        assertEquals(8000, ps.quote("Car", 1, at, at.plusHours(3)));
+    }
+}
@@ -0,0 +1,158 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationTest {
+    private static final LocalDateTime T = LocalDateTime.parse("2030-01-01T10:00");
+    private static final User ANN = new User("Ann", "AN 1", "1");
+
+    @TempDir
+    Path dir;
+
+    private ParkingSystem lot() {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Car")), dir);
+    }
+
+    @Test
+    void calendarWindowsAreHalfOpen() {
+        ParkingSlot slot = new ParkingSlot(1, 1, "Car");
+        ReservationCalendar c = new ReservationCalendar();
+        Booking b = new Booking(1, ANN, slot, T, T.plusHours(1));
+        c.add(b);
+        assertFalse(c.isFree(T.minusMinutes(30), T.plusMinutes(1), null));
+        assertFalse(c.isFree(T.plusMinutes(10), T.plusMinutes(20), null));
+        assertTrue(c.isFree(T.plusHours(1), T.plusHours(2), null));
+        assertTrue(c.isFree(T.minusHours(1), T, null));
+        assertTrue(c.isFree(T, T.plusHours(2), b));  // moving its own window
+        assertEquals(T, c.freeUntil(T.minusHours(1)));
+        assertEquals(T.plusHours(1), c.horizon());
+    }
+
+    @Test
+    void calendarRefusesASecondBookingWithTheSameStart() {
+        ParkingSlot slot = new ParkingSlot(1, 1, "Car");
+        ReservationCalendar c = new ReservationCalendar();
+        Booking first = new Booking(1, ANN, slot, T, T.plusHours(1));
+        c.add(first);
+        assertThrows(IllegalStateException.class, () -> c.add(new Booking(2, ANN, slot, T, T.plusHours(2))));
+        assertSame(first, c.at(T));
+    }
+
+    @Test
+    void zeroLengthWindowIsRejected() {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusDays(1);
+        assertEquals(ResultCode.INVALID_TIME, ps.bookSlot(ANN, in, in, "Car").getCode());
+        assertEquals(ResultCode.INVALID_TIME, ps.reserveSlot(ANN, in, in, "Car").getCode());
+        assertEquals(ResultCode.INVALID_TIME,
+                ps.bookSlots(List.of(new BookingRequest(ANN, in, in, "Car"))).get(0).getCode());
+    }
+
+    @Test
+    void clashingBookingsStopReplay() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        Files.writeString(log, "B,1,Ann,AN 1,1,1,2030-01-01T10:00,2030-01-01T11:00,RESERVED\n"
+                + "B,2,Bob,BO 1,1,1,2030-01-01T10:00,2030-01-01T12:00,RESERVED\n");
+        ParkingSystem ps = lot();
+        assertThrows(IOException.class, () -> Journal.replay(log, ps));
+        assertEquals(LocalDateTime.parse("2030-01-01T11:00"), ps.getBooking(1).getTimeOut());
+    }
+
+    @Test
+    void overlappingWindowsStopReplayAndLoad() throws IOException {
+        Path log = dir.resolve("journal.0.log");
+        Files.writeString(log, "B,1,Ann,AN 1,1,1,2030-01-01T10:00,2030-01-01T12:00,RESERVED\n"
+                + "B,2,Bob,BO 1,1,1,2030-01-01T11:00,2030-01-01T13:00,RESERVED\n");
+        ParkingSystem replayed = lot();
+        assertThrows(IOException.class, () -> Journal.replay(log, replayed));
+        assertNull(replayed.getBooking(2));
+
+        Path txt = Files.write(dir.resolve("bookings.txt"), List.of(
+                RecordCodec.join(1, "Ann", "AN 1", "1", 1, "2030-01-01T10:00", "2030-01-01T12:00", "40.0", "RESERVED"),
+                RecordCodec.join(2, "Bob", "BO 1", "1", 1, "2030-01-01T09:00", "2030-01-01T10:30", "20.0", "RESERVED")));
+        assertThrows(IOException.class, () -> lot().loadBookingsFromFile(txt));
+        Path bin = dir.resolve("parking.bin");
+        BinaryStore.convert(txt, dir.resolve("waitlist.txt"), bin, new ArrayList<>());
+        assertThrows(IOException.class, () -> BinaryStore.load(bin, lot()));
+    }
+
+    @Test
+    void loadRejectsClashingBookings() throws IOException {
+        Path in = Files.write(dir.resolve("bookings.txt"), List.of(
+                RecordCodec.join(1, "Ann", "AN 1", "1", 1, "2030-01-01T10:00", "2030-01-01T12:00", "80.0", "RESERVED"),
+                RecordCodec.join(2, "Bob", "BO 1", "1", 1, "2030-01-01T10:00", "2030-01-01T11:00", "40.0", "RESERVED")));
+        Path out = dir.resolve("parking.bin");
+        BinaryStore.convert(in, dir.resolve("waitlist.txt"), out, new ArrayList<>());
+        assertThrows(IOException.class, () -> BinaryStore.load(out, lot()));
+    }
+
+    @Test
+    void failedCheckInWriteLeavesTheReservation() throws IOException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusHours(1);
+        Booking b = ps.reserveSlot(ANN, in, in.plusHours(1), "Car").getBooking();
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.checkIn(b.getBookingId()));
+        assertEquals(BookingStatus.RESERVED, b.getStatus());
+        assertEquals(2, ps.getFreeSlotCount("Car"));
+    }
+
+    @Test
+    void failedExitTimeWriteKeepsTheOldWindow() throws IOException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusHours(1);
+        Booking b = ps.reserveSlot(ANN, in, in.plusHours(2), "Car").getBooking();
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.changeExitTime(b.getBookingId(), in.plusHours(1)));
+        assertEquals(in.plusHours(2), b.getTimeOut());
+        assertFalse(b.getSlot().getCalendar().isFree(in.plusMinutes(90), in.plusHours(2), null));
+    }
+
+    @Test
+    void combinedUpdateIsOneRecordAndReplays() throws IOException {
+        ParkingSystem ps = lot();
+        Path log = dir.resolve("journal.0.log");
+        Journal journal = new Journal(log, 1);
+        ps.setJournal(journal);
+        LocalDateTime in = LocalDateTime.now().plusHours(1).withNano(0);
+        Booking b = ps.reserveSlot(ANN, in, in.plusHours(2), "Car").getBooking();
+        assertTrue(ps.updateBooking(b.getBookingId(), "AN 2", in.plusHours(3)).isSuccess());
+        journal.close();
+        assertEquals(2, Files.readAllLines(log).size());
+
+        ParkingSystem replayed = lot();
+        Journal.replay(log, replayed);
+        Booking r = replayed.getBooking(b.getBookingId());
+        assertEquals("AN 2", r.getUser().getVehicleNumber());
+        assertEquals(in.plusHours(3), r.getTimeOut());
+        assertSame(r, replayed.findBookingByVehicle("AN 2"));
+    }
+
+    @Test
+    void refusedOrFailedUpdateChangesNeitherPart() throws IOException {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        LocalDateTime in = LocalDateTime.now().plusHours(1);
+        Booking b = ps.reserveSlot(ANN, in, in.plusHours(2), "Car").getBooking();
+        assertTrue(ps.reserveSlot(new User("Bob", "BO 1", "2"), in.plusHours(2), in.plusHours(4), "Car").isSuccess());
+
+        assertEquals(ResultCode.SLOT_CONFLICT, ps.updateBooking(b.getBookingId(), "AN 2", in.plusHours(3)).getCode());
+        assertEquals("AN 1", b.getUser().getVehicleNumber());
+
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.updateBooking(b.getBookingId(), "AN 2", in.plusHours(1)));
+        assertEquals("AN 1", b.getUser().getVehicleNumber());
+        assertEquals(in.plusHours(2), b.getTimeOut());
+        assertNull(ps.findBookingByVehicle("AN 2"));
+    }
+}
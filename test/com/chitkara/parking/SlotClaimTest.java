@@ -0,0 +1,89 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotClaimTest {
+    private static final int SLOTS = 20;
+    private static final int THREADS = 16;
+    private static final int TRIES = 10;
+
+    @TempDir
+    Path dir;
+
+    private ParkingSystem lot() {
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (int i = 1; i <= SLOTS; i++) {
+            slots.add(new ParkingSlot(i, 1 + i % 2, "Car"));
+        }
+        return new ParkingSystem(slots, dir);
+    }
+
+    // Runs every try of every thread at once and returns the bookings that went through
+    private static Collection<Booking> race(Function<User, BookingResult> book) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        Collection<Booking> won = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < TRIES; i++) {
+                    BookingResult r = book.apply(new User("U" + thread + "-" + i, "V" + thread + "-" + i, "0"));
+                    if (r.isSuccess()) won.add(r.getBooking());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        go.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        return won;
+    }
+
+    private static void assertOnePerSlot(Collection<Booking> won) {
+        Set<Integer> slots = new HashSet<>();
+        for (Booking b : won) {
+            assertTrue(slots.add(b.getSlot().getSlotId()), "slot " + b.getSlot().getSlotId() + " booked twice");
+        }
+        assertEquals(SLOTS, won.size());
+    }
+
+    @Test
+    void concurrentBookingsNeverShareASlot() throws InterruptedException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now();
+        Collection<Booking> won = race(u -> ps.bookSlot(u, in, in.plusHours(1), "Car"));
+        assertOnePerSlot(won);
+        assertEquals(0, ps.getFreeSlotCount("Car"));
+        assertEquals(SLOTS, ps.getAllBookings().size());
+    }
+
+    @Test
+    void concurrentReservationsNeverShareAWindow() throws InterruptedException {
+        ParkingSystem ps = lot();
+        LocalDateTime in = LocalDateTime.now().plusDays(1);
+        Collection<Booking> won = race(u -> ps.reserveSlot(u, in, in.plusHours(1), "Car"));
+        assertOnePerSlot(won);
+        assertNull(ps.findFreeSlot("Car", in.plusMinutes(30), in.plusMinutes(45)));
+        assertNotNull(ps.findFreeSlot("Car", in.plusHours(1), in.plusHours(2)));  // windows are half-open
+    }
+}
@@ -0,0 +1,80 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotPoolTest {
+    private static final LocalDateTime T = LocalDateTime.parse("2030-01-01T10:00");
+    private static final User ANN = new User("Ann", "AN 1", "1");
+
+    private static SlotPool pool(ParkingSlot... slots) {
+        SlotPool pool = new SlotPool();
+        for (ParkingSlot s : slots) {
+            pool.register(s);
+        }
+        return pool;
+    }
+
+    private static Function<ParkingSlot, Booking> booking(LocalDateTime in, LocalDateTime out) {
+        return slot -> new Booking(1, ANN, slot, in, out);
+    }
+
+    private static ParkingSlot claim(SlotPool pool, VehicleType type) {
+        Booking b = pool.claimNearest(type, 0, T, T.plusHours(1), booking(T, T.plusHours(1)));
+        return b == null ? null : b.getSlot();
+    }
+
+    @Test
+    void typesHaveSeparatePools() {
+        ParkingSlot car = new ParkingSlot(1, 1, "Car");
+        ParkingSlot bike = new ParkingSlot(2, 1, "Bike");
+        SlotPool pool = pool(car, bike);
+        assertSame(bike, claim(pool, VehicleType.BIKE));
+        assertNull(claim(pool, VehicleType.BIKE));
+        assertEquals(1, pool.freeCount(VehicleType.CAR));
+        assertSame(car, claim(pool, VehicleType.CAR));
+        assertNull(claim(pool, VehicleType.of("Truck")));  // no slot of the type at all
+    }
+
+    @Test
+    void equallyNearSlotsFillTheLowestFloorFirst() {
+        ParkingSlot upper = new ParkingSlot(1, 2, "Car");
+        ParkingSlot lowerHigherId = new ParkingSlot(5, 1, "Car");
+        ParkingSlot lowerLowerId = new ParkingSlot(3, 1, "Car");
+        SlotPool pool = pool(upper, lowerHigherId, lowerLowerId);
+        assertSame(lowerLowerId, claim(pool, VehicleType.CAR));
+        assertSame(lowerHigherId, claim(pool, VehicleType.CAR));
+        assertSame(upper, claim(pool, VehicleType.CAR));
+        assertEquals(0, pool.freeCount(VehicleType.CAR));
+    }
+
+    @Test
+    void freedSlotReturnsToItsPool() {
+        ParkingSlot a = new ParkingSlot(1, 1, "Car");
+        ParkingSlot b = new ParkingSlot(2, 1, "Car");
+        SlotPool pool = pool(a, b);
+        Booking first = pool.claimNearest(VehicleType.CAR, 0, T, T.plusHours(1), booking(T, T.plusHours(1)));
+        assertSame(a, first.getSlot());
+        assertEquals(1, pool.freeCount(VehicleType.CAR));
+
+        pool.release(first);
+        a.markAvailable();
+        assertEquals(2, pool.freeCount(VehicleType.CAR));
+        assertSame(a, claim(pool, VehicleType.CAR));
+    }
+
+    @Test
+    void claimSkipsASlotBookedLaterForTheSameWindow() {
+        ParkingSlot a = new ParkingSlot(1, 1, "Car");
+        ParkingSlot b = new ParkingSlot(2, 1, "Car");
+        SlotPool pool = pool(a, b);
+        // An advance reservation on slot 1 leaves it free now, but not for a stay that overlaps it
+        pool.restore(new Booking(9, ANN, a, T.plusMinutes(30), T.plusHours(2), BookingStatus.RESERVED));
+        assertSame(b, claim(pool, VehicleType.CAR));
+        assertNull(claim(pool, VehicleType.CAR));
+    }
+}
@@ -0,0 +1,69 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleIndexTest {
+    private static final LocalDateTime T = LocalDateTime.parse("2030-01-01T10:00");
+
+    @TempDir
+    Path dir;
+
+    private static Booking booking(int id, String vehicle) {
+        return new Booking(id, new User("Ann", vehicle, "1"), new ParkingSlot(1, 1, "Car"), T, T.plusHours(1));
+    }
+
+    @Test
+    void foldsCaseAndSurroundingSpaces() {
+        VehicleIndex index = new VehicleIndex();
+        Booking b = booking(1, " pb10 ab 1 ");
+        index.add(b);
+        assertSame(b, index.latest("PB10 AB 1"));
+        assertSame(b, index.latest("pb10 AB 1\t"));
+        assertNull(index.latest("PB10AB1"));  // inner spaces still count
+        assertEquals("PB10 AB 1", VehicleIndex.normalize("  pB10 ab 1 "));
+        assertEquals("ÄB-1", VehicleIndex.normalize("äb-1"));
+    }
+
+    @Test
+    void normalNumbersAreReturnedAsIs() {
+        String number = new String("PB10 AB-1");
+        assertSame(number, VehicleIndex.normalize(number));
+        assertSame("", VehicleIndex.normalize(""));
+        assertEquals("PB10 AB-1", VehicleIndex.normalize("PB10 AB-1\n"));
+    }
+
+    @Test
+    void keepsEveryBookingOfAVehicleOldestFirst() {
+        VehicleIndex index = new VehicleIndex();
+        Booking first = booking(1, "AN 1"), second = booking(2, "an 1"), third = booking(3, "AN 1");
+        index.add(first);
+        index.add(second);
+        index.add(third);
+        assertEquals(List.of(first, second, third), index.getBookings("an 1"));
+        assertSame(third, index.latest("AN 1"));
+
+        index.remove(third);
+        assertSame(second, index.latest("AN 1"));
+        index.remove(first);
+        index.remove(second);
+        assertNull(index.latest("AN 1"));
+        assertTrue(index.getBookings("AN 1").isEmpty());
+    }
+
+    @Test
+    void vehicleChangeMovesTheBookingToItsNewKey() {
+        ParkingSystem ps = new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car")), dir);
+        Booking b = ps.reserveSlot(new User("Ann", "AN 1", "1"), T, T.plusHours(1), "Car").getBooking();
+        assertTrue(ps.changeVehicleNumber(b.getBookingId(), "an 2").isSuccess());
+        assertNull(ps.findBookingByVehicle("AN 1"));
+        assertSame(b, ps.findBookingByVehicle("AN 2"));
+        assertEquals(List.of(b), ps.getBookingsByVehicle(" An 2 "));
+    }
+}
@@ -0,0 +1,81 @@
+package com.chitkara.parking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistTest {
+    @TempDir
+    Path dir;
+
+    private ParkingSystem lot() {
+        return new ParkingSystem(List.of(new ParkingSlot(1, 1, "Car"), new ParkingSlot(2, 1, "Bike")), dir);
+    }
+
+    private static User user(String vehicle) {
+        return new User("U " + vehicle, vehicle, "0");
+    }
+
+    @Test
+    void failedLeaveWriteKeepsTheUserWaiting() throws IOException {
+        ParkingSystem ps = lot();
+        assertTrue(ps.joinWaitlist(user("CAR 1"), "Car"));
+        ps.setJournal(new FailingJournal(dir.resolve("journal.0.log"), 0));
+        assertThrows(UncheckedIOException.class, () -> ps.leaveWaitlist("CAR 1"));
+        assertEquals(1, ps.getWaitlistDepth());
+    }
+
+    @Test
+    void leavingTwiceFindsNothingTheSecondTime() {
+        ParkingSystem ps = lot();
+        assertTrue(ps.joinWaitlist(user("CAR 1"), "Car"));
+        assertNotNull(ps.leaveWaitlist("car 1"));
+        assertNull(ps.leaveWaitlist("CAR 1"));
+        assertEquals(0, ps.getWaitlistDepth());
+    }
+
+    @Test
+    void servesPermitHoldersFirstThenFirstComeFirstServed() {
+        Waitlist w = new Waitlist();
+        w.addToWaitlist(new WaitlistEntry(user("R1"), VehicleType.CAR, WaitlistPriority.REGULAR));
+        w.addToWaitlist(new WaitlistEntry(user("R2"), VehicleType.CAR, WaitlistPriority.REGULAR));
+        w.addToWaitlist(new WaitlistEntry(user("P1"), VehicleType.CAR, WaitlistPriority.PERMIT));
+        w.addToWaitlist(new WaitlistEntry(user("O1"), VehicleType.CAR, WaitlistPriority.OVERBOOKED));
+        assertEquals(1, w.position("O1"));
+        assertEquals(3, w.position("r1"));
+        assertEquals("O1", w.removeFromWaitlist(VehicleType.CAR).getUser().getVehicleNumber());
+        assertEquals("P1", w.removeFromWaitlist(VehicleType.CAR).getUser().getVehicleNumber());
+        assertEquals("R1", w.removeFromWaitlist(VehicleType.CAR).getUser().getVehicleNumber());
+        assertEquals("R2", w.removeFromWaitlist(VehicleType.CAR).getUser().getVehicleNumber());
+        assertNull(w.removeFromWaitlist(VehicleType.CAR));
+    }
+
+    @Test
+    void aVehicleWaitsOnlyOnce() {
+        Waitlist w = new Waitlist();
+        assertTrue(w.addToWaitlist(new WaitlistEntry(user("CAR 1"), VehicleType.CAR, WaitlistPriority.REGULAR)));
+        assertFalse(w.addToWaitlist(new WaitlistEntry(user(" car 1"), VehicleType.BIKE, WaitlistPriority.PERMIT)));
+        assertEquals(1, w.getWaitlist().size());
+    }
+
+    @Test
+    void freedSlotOnlyServesItsOwnType() {
+        ParkingSystem ps = lot();
+        LocalDateTime now = LocalDateTime.now();
+        Booking bike = ps.bookSlot(user("BIKE 0"), now.minusHours(1), now.plusHours(1), "Bike").getBooking();
+        assertTrue(ps.joinWaitlist(user("CAR 1"), "Car"));
+        assertTrue(ps.joinWaitlist(user("BIKE 1"), "Bike"));
+
+        BookingResult r = ps.earlyExit(bike.getBookingId(), now);
+        assertEquals("BIKE 1", r.getPromoted().getUser().getVehicleNumber());
+        assertEquals(1, ps.waitlistPosition("CAR 1"));
+        assertEquals(1, ps.getWaitlistDepth());
+    }
+}